@@ -0,0 +1,32 @@
+package graph;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waiting of a thread spinning for a condition set by another thread: it yields for the first spins,
+ * while the other thread is likely in the middle of a short step, and parks briefly afterwards.
+ */
+final class BackOff
+{
+	private static final int YIELDS = 64;
+	private static final long PARK_NANOS = 50_000;
+
+	private BackOff()
+	{
+	}
+
+	/*
+		Waits once, given the number of spins done so far
+	 */
+	static void pause(int spins)
+	{
+		if(spins < YIELDS)
+		{
+			Thread.yield();
+		}
+		else
+		{
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+}
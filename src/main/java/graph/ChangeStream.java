@@ -0,0 +1,160 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer of the mutation events of a graph, read by any number of subscriptions.
+ *
+ * A writer claims the sequence number of its event while the mutation is ordered with the others,
+ * and publishes the event afterwards, outside of the locks of the graph. A writer whose mutation fails after claiming cancels its sequence number,
+ * which subscriptions skip, so that no claimed sequence number is left without an event. Publishing waits while the slot
+ * of the event is still to be read by the slowest subscription. Each subscription reads the events
+ * in sequence order with a cursor of its own. Without subscriptions, events are not claimed at all.
+ */
+final class ChangeStream<V, T extends Edge>
+{
+	private static final int DEFAULT_CAPACITY = 1 << 10;
+
+	private final int mask;
+	private final AtomicReferenceArray<GraphEvent<V, T>> slots;
+	// Sequence number of the event in each slot, or -1
+	private final AtomicLongArray published;
+	private final AtomicLong claimed = new AtomicLong();
+	private final List<GraphSubscription<V, T>> subscriptions = new CopyOnWriteArrayList<>();
+
+	ChangeStream()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/*
+		Takes the number of slots, a power of two
+	 */
+	ChangeStream(int capacity)
+	{
+		if(capacity < 1 || Integer.bitCount(capacity) != 1)
+		{
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		this.mask = capacity - 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.published = new AtomicLongArray(capacity);
+		for(int i = 0; i < capacity; i++)
+		{
+			published.set(i, -1);
+		}
+	}
+
+	synchronized GraphSubscription<V, T> subscribe()
+	{
+		GraphSubscription<V, T> subscription = new GraphSubscription<>(this, claimed.get());
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	void unsubscribe(GraphSubscription<V, T> subscription)
+	{
+		subscriptions.remove(subscription);
+	}
+
+	boolean hasSubscriptions()
+	{
+		return !subscriptions.isEmpty();
+	}
+
+	/*
+		Returns the sequence number for the next event, or -1 if there are no subscriptions
+	 */
+	long claim()
+	{
+		return subscriptions.isEmpty() ? -1 : claimed.getAndIncrement();
+	}
+
+	/*
+		Returns the first of the sequence numbers for the next events, or -1 if there are no subscriptions
+	 */
+	long claim(int count)
+	{
+		return subscriptions.isEmpty() ? -1 : claimed.getAndAdd(count);
+	}
+
+	/*
+		Publishes the event with a claimed sequence number; waits for the slowest subscription to free the slot
+	 */
+	void publish(long sequence, GraphEvent.Type type, int vertexId, V vertex, T edge)
+	{
+		if(sequence < 0) return;
+
+		put(sequence, new GraphEvent<>(type, sequence, vertexId, vertex, edge));
+	}
+
+	/*
+		Publishes an event without type in place of the event of a failed mutation, skipped by subscriptions
+	 */
+	void cancel(long sequence)
+	{
+		if(sequence < 0) return;
+
+		put(sequence, new GraphEvent<>(null, sequence, 0, null, null));
+	}
+
+	/*
+		Publishes the events of the objects replaced by apply with the claimed sequence numbers from the first one on,
+		and cancels the numbers left when there are fewer objects or an object cannot be read
+	 */
+	void publishReplaced(long first, int count, List<V> replaced)
+	{
+		if(first < 0) return;
+
+		int published = 0;
+		try
+		{
+			for(; published < replaced.size(); published++)
+			{
+				publish(first + published, GraphEvent.Type.VERTEX_REPLACED, published + 1, replaced.get(published), null);
+			}
+		}
+		finally
+		{
+			for(int i = published; i < count; i++)
+			{
+				cancel(first + i);
+			}
+		}
+	}
+
+	/*
+		Returns the event with the sequence number, or null if it is not published yet
+	 */
+	GraphEvent<V, T> get(long sequence)
+	{
+		int index = (int) sequence & mask;
+		return published.get(index) == sequence ? slots.get(index) : null;
+	}
+
+	private void put(long sequence, GraphEvent<V, T> event)
+	{
+		long wrapped = sequence - slots.length();
+		for(int spins = 0; wrapped >= 0 && wrapped >= minimumCursor(); spins++)
+		{
+			BackOff.pause(spins);
+		}
+		int index = (int) sequence & mask;
+		slots.lazySet(index, event);
+		published.set(index, sequence);
+	}
+
+	private long minimumCursor()
+	{
+		long minimum = Long.MAX_VALUE;
+		for(GraphSubscription<V, T> subscription : subscriptions)
+		{
+			minimum = Math.min(minimum, subscription.cursor());
+		}
+		return minimum;
+	}
+}
@@ -0,0 +1,196 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the objects associated with vertices on the heap in chunks which are never copied or moved.
+ * Each chunk is twice as large as the previous one, so that a vertex is found by its ID in two array reads,
+ * and the list of chunks has a fixed length.
+ *
+ * Adding a vertex takes no lock: the ID is claimed by a compare-and-set of the size below the maximal size,
+ * and the object is written into its slot with release semantics. A chunk is allocated by the first thread
+ * which needs it, before the ID in it is claimed, so that nothing can fail between the claim and the write.
+ * A vertex whose ID is claimed is counted by {@link #size()} at once, and a reader of its slot
+ * waits for the object in the short moment between the claim and the write.
+ *
+ * Applying a function is serialized with other applications, but not with adding and reading: a reader
+ * of a single vertex may see its object before or after the function is applied. A snapshot is atomic with
+ * respect to applications. It is copied without a lock, and copied again while holding the lock
+ * of applications if one ran in the meantime.
+ */
+final class ChunkedVertexStore<V> implements VertexStore<V>
+{
+	// Marks a null object, since an empty slot means the object is not written yet
+	private static final Object NULL = new Object();
+	private static final int MIN_CHUNK_BITS = 6;
+	private static final int MAX_CHUNK_BITS = 20;
+
+	// Chunk k holds 2^(chunkBits + k) vertices, starting from index 2^(chunkBits + k) - 2^chunkBits
+	private final int chunkBits;
+	private final int maxSize;
+	private final AtomicReferenceArray<AtomicReferenceArray<Object>> chunks;
+	private final AtomicInteger size = new AtomicInteger();
+	private final Object applyLock = new Object();
+	// Incremented when an application starts and again when it ends, so that it is odd while one is running
+	private volatile long applications;
+
+	ChunkedVertexStore(int capacity)
+	{
+		this(capacity, Integer.MAX_VALUE);
+	}
+
+	/*
+		Takes the maximal number of vertices, at most the number of slots in the chunks
+	 */
+	ChunkedVertexStore(int capacity, int maxSize)
+	{
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+		this.chunkBits = Math.min(MAX_CHUNK_BITS, Math.max(MIN_CHUNK_BITS, bits));
+		// The last chunk holds 2^30 vertices
+		this.chunks = new AtomicReferenceArray<>(31 - chunkBits);
+		this.maxSize = Math.min(maxSize, Integer.MAX_VALUE - (1 << chunkBits) + 1);
+		chunks.set(0, new AtomicReferenceArray<>(1 << chunkBits));
+	}
+
+	@Override public int add(V vertex)
+	{
+		Object value = vertex == null ? NULL : vertex;
+		while(true)
+		{
+			int claimed = size.get();
+			if(claimed >= maxSize)
+			{
+				throw new IllegalStateException("Unable to add vertex: the number of vertices exceeds " + maxSize);
+			}
+			long position = position(claimed + 1);
+			AtomicReferenceArray<Object> chunk = chunk((int) (position >>> 32));
+			if(size.compareAndSet(claimed, claimed + 1))
+			{
+				chunk.lazySet((int) position, value);
+				return claimed + 1;
+			}
+		}
+	}
+
+	@Override public V get(int id)
+	{
+		long position = position(id);
+		return read(chunk((int) (position >>> 32)), (int) position);
+	}
+
+	@Override public int size()
+	{
+		return size.get();
+	}
+
+	@Override public void apply(UnaryOperator<V> function)
+	{
+		synchronized(applyLock)
+		{
+			applications++;
+			try
+			{
+				int count = size.get();
+				int k = 0;
+				for(int start = 0; start < count; start += chunkLength(k++))
+				{
+					AtomicReferenceArray<Object> chunk = chunk(k);
+					int length = Math.min(chunkLength(k), count - start);
+					for(int i = 0; i < length; i++)
+					{
+						V replaced = function.apply(read(chunk, i));
+						chunk.set(i, replaced == null ? NULL : replaced);
+					}
+				}
+			}
+			finally
+			{
+				applications++;
+			}
+		}
+	}
+
+	@Override public List<V> snapshot()
+	{
+		long before = applications;
+		if((before & 1) == 0)
+		{
+			List<V> snapshot = copy();
+			if(applications == before) return snapshot;
+		}
+		synchronized(applyLock)
+		{
+			return copy();
+		}
+	}
+
+	/*
+		Copies the objects of the vertices whose IDs are claimed
+	 */
+	@SuppressWarnings("unchecked")
+	private List<V> copy()
+	{
+		int count = size.get();
+		Object[] vertices = new Object[count];
+		int k = 0;
+		for(int start = 0; start < count; start += chunkLength(k++))
+		{
+			AtomicReferenceArray<Object> chunk = chunk(k);
+			int length = Math.min(chunkLength(k), count - start);
+			for(int i = 0; i < length; i++)
+			{
+				vertices[start + i] = read(chunk, i);
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList((V[]) vertices));
+	}
+
+	/*
+		Returns the chunk of a vertex ID in the upper half and the offset in the chunk in the lower half
+	 */
+	private long position(int id)
+	{
+		long index = (long) id - 1 + (1L << chunkBits);
+		int k = 63 - Long.numberOfLeadingZeros(index) - chunkBits;
+		return (long) k << 32 | (index - (1L << (chunkBits + k)));
+	}
+
+	private int chunkLength(int k)
+	{
+		return 1 << (chunkBits + k);
+	}
+
+	/*
+		Returns the chunk, allocating it if no thread did so yet
+	 */
+	private AtomicReferenceArray<Object> chunk(int k)
+	{
+		AtomicReferenceArray<Object> chunk = chunks.get(k);
+		if(chunk == null)
+		{
+			chunk = new AtomicReferenceArray<>(chunkLength(k));
+			if(!chunks.compareAndSet(k, null, chunk)) chunk = chunks.get(k);
+		}
+		return chunk;
+	}
+
+	/*
+		Reads a slot of a claimed ID, waiting for the object if the thread adding it has not written it yet
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> V read(AtomicReferenceArray<Object> chunk, int offset)
+	{
+		Object value = chunk.get(offset);
+		for(int spins = 0; value == null; spins++)
+		{
+			BackOff.pause(spins);
+			value = chunk.get(offset);
+		}
+		return value == NULL ? null : (V) value;
+	}
+}
@@ -0,0 +1,549 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implements a read-only graph with compressed adjacency, created by {@link FrozenGraph#compress()}.
+ * Vertex IDs and vertices are the same as in the frozen graph.
+ *
+ * The edges going 'out' from each vertex are sorted by target and written into a single byte array:
+ * the first target as a signed difference from the vertex, the next ones as differences from the previous
+ * target, all encoded as variable-length integers of 7 bits per byte. Renumbered graphs
+ * (see {@link FrozenGraph#reorder(VertexOrdering)}) have small differences and compress best.
+ * The weight of each edge follows its target, either as 4 bytes of a {@code float} or, if a resolution
+ * is specified, as a variable-length integer number of resolution units.
+ *
+ * The graph supports breadth-first and Dijkstra searches, which decode the adjacency on the fly.
+ * Edges of the found paths are created on return; they are {@link WeighedEdge} instances
+ * unless the frozen graph has neither weighed edges nor weights other than 1.
+ * The searches can be run by several threads concurrently.
+ * A filtered view of a frozen graph is compressed with the edges kept by its filters only.
+ *
+ * @param <V> defines the type of the object associated with a vertex
+ */
+public final class CompressedGraph<V>
+{
+	private final List<V> vertices;
+	private final int edgeCount;
+	private final boolean weighed;
+	// The resolution of quantized weights, or 0 if weights are not quantized
+	private final float resolution;
+	// The first edge with a negative weight, which shortest path searches reject, or null
+	private final Edge negativeWeightEdge;
+
+	// Internal ID of each vertex ID and vice versa, or null if they are the same
+	private final int[] toInternal;
+	private final int[] toExternal;
+
+	// The edges 'out' from internal vertex v are encoded in adjacency[offsets[v]] .. adjacency[offsets[v + 1] - 1]
+	private final int[] offsets;
+	private final byte[] adjacency;
+
+	private final ThreadLocal<Search> searches;
+
+	private CompressedGraph(FrozenGraph<V, ?> graph, float resolution)
+	{
+		int vertexCount = graph.getVertexCount();
+		this.vertices = new ArrayList<>(vertexCount);
+		this.resolution = resolution;
+
+		boolean identity = true;
+		int[] internal = new int[vertexCount + 1];
+		int[] external = new int[vertexCount + 1];
+		boolean hasWeights = false;
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			external[v] = graph.external(v);
+			internal[external[v]] = v;
+			identity &= external[v] == v;
+			vertices.add(graph.getVertex(external[v]));
+		}
+		for(int e = 0; e < graph.getEdgeCount() && !hasWeights; e++)
+		{
+			hasWeights = graph.edge(e) instanceof WeighedEdge || graph.weight(e) != 1.0f;
+		}
+		this.weighed = hasWeights;
+		this.toInternal = identity ? null : internal;
+		this.toExternal = identity ? null : external;
+
+		ByteWriter writer = new ByteWriter(Math.max(16, 2 * graph.getEdgeCount()));
+		int written = 0;
+		this.offsets = new int[vertexCount + 2];
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			offsets[v] = writer.size();
+			int previous = 0;
+			for(int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++)
+			{
+				if(!graph.allows(e)) continue;
+
+				int target = graph.target(e);
+				if(previous == 0)
+				{
+					writer.writeVarInt(zigZag(target - v));
+				}
+				else
+				{
+					writer.writeVarInt(target - previous);
+				}
+				previous = target;
+				if(weighed) writeWeight(writer, graph.weight(e));
+				written++;
+			}
+		}
+		offsets[vertexCount + 1] = writer.size();
+		Edge negative = null;
+		for(int e = 0; e < graph.getEdgeCount() && negative == null; e++)
+		{
+			if(graph.allows(e) && !(graph.weight(e) >= 0)) negative = graph.edge(e);
+		}
+		this.negativeWeightEdge = negative;
+		this.edgeCount = written;
+		this.adjacency = writer.toArray();
+		this.searches = ThreadLocal.withInitial(() -> new Search(vertexCount));
+	}
+
+	/*
+		Compresses a frozen graph. Weights are quantized to the resolution if it is positive.
+	 */
+	static <V> CompressedGraph<V> of(FrozenGraph<V, ?> graph, float resolution)
+	{
+		if(resolution < 0 || Float.isNaN(resolution) || Float.isInfinite(resolution))
+		{
+			throw new IllegalArgumentException("Weight resolution must be a finite non-negative number: " + resolution);
+		}
+		return new CompressedGraph<>(graph, resolution);
+	}
+
+	/**
+	 * Returns the number of vertices
+	 * @return the number of vertices
+	 */
+	public int getVertexCount()
+	{
+		return vertices.size();
+	}
+
+	/**
+	 * Returns the number of directed edges.
+	 * For undirected graphs, each edge except loops is counted twice.
+	 * @return the number of edges
+	 */
+	public int getEdgeCount()
+	{
+		return edgeCount;
+	}
+
+	/**
+	 * Returns the object assigned to the vertex with the specified ID
+	 * @param id vertex ID
+	 * @return an object of type {@code V}
+	 */
+	public V getVertex(int id)
+	{
+		if(!containsVertex(id))
+		{
+			throw new IllegalArgumentException("Vertex " + id + " not found.");
+		}
+		return vertices.get(internal(id) - 1);
+	}
+
+	/**
+	 * Returns the vertices of the graph, ordered by vertex ID
+	 * @return an unmodifiable list of vertices
+	 */
+	public List<V> getVertices()
+	{
+		if(toInternal == null) return Collections.unmodifiableList(vertices);
+
+		return new AbstractList<V>()
+		{
+			@Override public V get(int index)
+			{
+				return getVertex(index + 1);
+			}
+
+			@Override public int size()
+			{
+				return vertices.size();
+			}
+		};
+	}
+
+	/**
+	 * Returns the memory taken by the adjacency, including offsets and the vertex ID mapping
+	 * @return the number of bytes
+	 */
+	public long getAdjacencyBytes()
+	{
+		long bytes = adjacency.length + (long) Integer.BYTES * offsets.length;
+		return toInternal == null ? bytes : bytes + (long) Integer.BYTES * (toInternal.length + toExternal.length);
+	}
+
+	/**
+	 * Returns a path with the least number of edges between vertices with IDs {@code from} and {@code to},
+	 * found by breadth-first search.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return a list of edges ordered along the path, or an empty list if no path is found
+	 */
+	public List<Edge> getPath(int from, int to)
+	{
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Collections.emptyList();
+		Search search = searches.get();
+		return search.toPath(search.breadthFirst(internal(from), internal(to)));
+	}
+
+	/**
+	 * Returns the path of the least weight between vertices with IDs {@code from} and {@code to},
+	 * found by the Dijkstra algorithm.
+	 * If the weights are quantized, the path is the shortest one by the quantized weights.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return a list of edges ordered along the path, or an empty list if no path is found
+	 * @throws IllegalArgumentException if an edge has a negative weight
+	 */
+	public List<Edge> getShortestPath(int from, int to)
+	{
+		checkNonNegativeWeights();
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Collections.emptyList();
+		Search search = searches.get();
+		return search.toPath(search.dijkstra(internal(from), internal(to)));
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, returning a compact path
+	 * whose edges are created only when accessed
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return the found path, empty if no path is found
+	 */
+	public Path<Edge> findPath(int from, int to)
+	{
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Path.empty();
+		Search search = searches.get();
+		return search.toCompactPath(search.breadthFirst(internal(from), internal(to)));
+	}
+
+	/**
+	 * Does the same as method {@link #getShortestPath(int from, int to) getShortestPath}, returning a compact path
+	 * whose edges are created only when accessed
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return the found path, empty if no path is found
+	 * @throws IllegalArgumentException if an edge has a negative weight
+	 */
+	public Path<Edge> findShortestPath(int from, int to)
+	{
+		checkNonNegativeWeights();
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Path.empty();
+		Search search = searches.get();
+		return search.toCompactPath(search.dijkstra(internal(from), internal(to)));
+	}
+
+	private void checkNonNegativeWeights()
+	{
+		if(negativeWeightEdge != null)
+		{
+			throw new IllegalArgumentException("Unable to find shortest path: edge " + negativeWeightEdge + " has negative weight.");
+		}
+	}
+
+	private boolean containsVertex(int id)
+	{
+		return id >= 1 && id <= vertices.size();
+	}
+
+	private int internal(int id)
+	{
+		return toInternal == null ? id : toInternal[id];
+	}
+
+	private int external(int vertex)
+	{
+		return toExternal == null ? vertex : toExternal[vertex];
+	}
+
+	private void writeWeight(ByteWriter writer, float weight)
+	{
+		if(resolution > 0)
+		{
+			long units = Math.round((double) weight / resolution);
+			if(units > Integer.MAX_VALUE || units < Integer.MIN_VALUE)
+			{
+				throw new IllegalArgumentException("Unable to quantize weight " + weight + " with resolution " + resolution);
+			}
+			writer.writeVarInt(zigZag((int) units));
+		}
+		else
+		{
+			writer.writeInt(Float.floatToRawIntBits(weight));
+		}
+	}
+
+	private static int zigZag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/*
+		Keeps the arrays of searches between invocations in the same thread.
+		Decodes the adjacency of one vertex at a time: the position in the byte array,
+		the last decoded target and its weight are kept in fields.
+	 */
+	private final class Search
+	{
+		private final int[] visited;
+		private final int[] settled;
+		private final float[] distances;
+		private final int[] parents;
+		private final float[] parentWeights;
+		private final int[] queue;
+		private final IndexedMinHeap heap;
+		private int epoch;
+
+		private int position;
+		private int end;
+		private boolean first;
+		private int target;
+		private float weight;
+
+		private Search(int vertexCount)
+		{
+			this.visited = new int[vertexCount + 1];
+			this.settled = new int[vertexCount + 1];
+			this.distances = new float[vertexCount + 1];
+			this.parents = new int[vertexCount + 1];
+			this.parentWeights = new float[vertexCount + 1];
+			this.queue = new int[vertexCount];
+			this.heap = new IndexedMinHeap(vertexCount);
+		}
+
+		/*
+			Returns the last vertex if it is reached, or 0
+		 */
+		private int breadthFirst(int from, int to)
+		{
+			nextEpoch();
+			visited[from] = epoch;
+			parents[from] = 0;
+			int head = 0;
+			int size = 0;
+			queue[size++] = from;
+			while(head < size)
+			{
+				int u = queue[head++];
+				open(u);
+				while(next())
+				{
+					int x = target;
+					if(visited[x] == epoch) continue;
+					visited[x] = epoch;
+					parents[x] = u;
+					parentWeights[x] = weight;
+					if(x == to) return to;
+					queue[size++] = x;
+				}
+			}
+			return 0;
+		}
+
+		/*
+			Returns the last vertex if it is reached, or 0
+		 */
+		private int dijkstra(int from, int to)
+		{
+			nextEpoch();
+			visited[from] = epoch;
+			distances[from] = 0;
+			parents[from] = 0;
+			heap.push(from, 0);
+			while(!heap.isEmpty())
+			{
+				float distance = heap.peekKey();
+				int u = heap.poll();
+				settled[u] = epoch;
+				if(u == to) return to;
+				open(u);
+				while(next())
+				{
+					int x = target;
+					if(settled[x] == epoch) continue;
+					float candidate = distance + weight;
+					if(visited[x] != epoch || candidate < distances[x])
+					{
+						visited[x] = epoch;
+						distances[x] = candidate;
+						parents[x] = u;
+						parentWeights[x] = weight;
+						heap.push(x, candidate);
+					}
+				}
+			}
+			return 0;
+		}
+
+		private List<Edge> toPath(int to)
+		{
+			if(to == 0) return Collections.emptyList();
+
+			List<Edge> path = new ArrayList<>();
+			for(int v = to; parents[v] != 0; v = parents[v])
+			{
+				int from = external(parents[v]);
+				path.add(weighed ? new WeighedEdge(from, external(v), parentWeights[v]) : new Edge(from, external(v)));
+			}
+			Collections.reverse(path);
+			return Collections.unmodifiableList(path);
+		}
+
+		private Path<Edge> toCompactPath(int to)
+		{
+			if(to == 0) return Path.empty();
+
+			int length = 0;
+			for(int v = to; parents[v] != 0; v = parents[v])
+			{
+				length++;
+			}
+			int[] path = new int[length + 1];
+			float[] pathWeights = weighed ? new float[length] : null;
+			float total = 0;
+			int v = to;
+			for(int i = length; i > 0; i--, v = parents[v])
+			{
+				path[i] = external(v);
+				if(weighed) pathWeights[i - 1] = parentWeights[v];
+				total += parentWeights[v];
+			}
+			path[0] = external(v);
+			return Path.of(path, total, index -> weighed
+					? new WeighedEdge(path[index], path[index + 1], pathWeights[index])
+					: new Edge(path[index], path[index + 1]));
+		}
+
+		/*
+			Positions the decoder before the first edge 'out' from the vertex
+		 */
+		private void open(int vertex)
+		{
+			position = offsets[vertex];
+			end = offsets[vertex + 1];
+			first = true;
+			target = vertex;
+		}
+
+		/*
+			Decodes the next edge into the target and weight fields.
+			Returns false if there are no more edges.
+		 */
+		private boolean next()
+		{
+			if(position == end) return false;
+
+			int difference = readVarInt();
+			target += first ? unZigZag(difference) : difference;
+			first = false;
+			weight = readWeight();
+			return true;
+		}
+
+		private float readWeight()
+		{
+			if(!weighed) return 1.0f;
+			if(resolution > 0) return unZigZag(readVarInt()) * resolution;
+
+			int bits = (adjacency[position] & 0xFF) | (adjacency[position + 1] & 0xFF) << 8
+					| (adjacency[position + 2] & 0xFF) << 16 | (adjacency[position + 3] & 0xFF) << 24;
+			position += 4;
+			return Float.intBitsToFloat(bits);
+		}
+
+		private int readVarInt()
+		{
+			int b = adjacency[position++];
+			if(b >= 0) return b;
+			int value = b & 0x7F;
+			int shift = 7;
+			do
+			{
+				b = adjacency[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while(b < 0);
+			return value;
+		}
+
+		private void nextEpoch()
+		{
+			heap.clear();
+			if(++epoch == Integer.MAX_VALUE)
+			{
+				Arrays.fill(visited, 0);
+				Arrays.fill(settled, 0);
+				epoch = 1;
+			}
+		}
+	}
+
+	/*
+		A growable byte array for encoding the adjacency
+	 */
+	private static final class ByteWriter
+	{
+		private byte[] bytes;
+		private int size;
+
+		private ByteWriter(int capacity)
+		{
+			this.bytes = new byte[capacity];
+		}
+
+		private void writeVarInt(int value)
+		{
+			while((value & ~0x7F) != 0)
+			{
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		private void writeInt(int value)
+		{
+			write(value);
+			write(value >>> 8);
+			write(value >>> 16);
+			write(value >>> 24);
+		}
+
+		private void write(int value)
+		{
+			if(size == bytes.length)
+			{
+				bytes = Arrays.copyOf(bytes, 2 * size);
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		private int size()
+		{
+			return size;
+		}
+
+		private byte[] toArray()
+		{
+			return Arrays.copyOf(bytes, size);
+		}
+	}
+}
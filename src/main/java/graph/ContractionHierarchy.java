@@ -0,0 +1,592 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Implements the preprocessing of Contraction Hierarchies for a {@link FrozenGraph}.
+ *
+ * Vertices are contracted in rounds. Each round selects an independent set of vertices
+ * with locally minimal priority and contracts them in parallel: for each pair of neighbours
+ * connected through a contracted vertex, a shortcut edge is added unless a witness path of
+ * the same or smaller weight avoids the vertex.
+ * Witness searches never pass through vertices contracted in the same round, so that two
+ * contracted vertices can not be used as witnesses for each other.
+ *
+ * The result is an 'upward' graph: for each vertex, the edges to vertices contracted later
+ * (i.e. of higher rank) in both directions. The edges refer either to edges of the frozen graph
+ * or to shortcuts, which are kept in separate arrays and unpacked into the original edges on demand.
+ */
+final class ContractionHierarchy
+{
+	// Witness searches of the real contraction and of the priority estimation are limited by the number of settled vertices
+	private final static int CONTRACTION_SETTLE_LIMIT = 1000;
+	private final static int ESTIMATION_SETTLE_LIMIT = 100;
+
+	// Upward edges; the reference is an edge index of the frozen graph if not negative, or -(shortcut index + 1)
+	private final int[] forwardOffsets;
+	private final int[] forwardTargets;
+	private final float[] forwardWeights;
+	private final int[] forwardRefs;
+	private final int[] backwardOffsets;
+	private final int[] backwardTargets;
+	private final float[] backwardWeights;
+	private final int[] backwardRefs;
+
+	// Each shortcut is unpacked into its first and second references
+	private final int[] shortcutFirst;
+	private final int[] shortcutSecond;
+
+	private ContractionHierarchy(Builder builder)
+	{
+		int vertexCount = builder.graph.getVertexCount();
+
+		this.forwardOffsets = new int[vertexCount + 2];
+		this.backwardOffsets = new int[vertexCount + 2];
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			forwardOffsets[v + 1] = forwardOffsets[v] + builder.upwardOut[v].size();
+			backwardOffsets[v + 1] = backwardOffsets[v] + builder.upwardIn[v].size();
+		}
+		this.forwardTargets = new int[forwardOffsets[vertexCount + 1]];
+		this.forwardWeights = new float[forwardTargets.length];
+		this.forwardRefs = new int[forwardTargets.length];
+		this.backwardTargets = new int[backwardOffsets[vertexCount + 1]];
+		this.backwardWeights = new float[backwardTargets.length];
+		this.backwardRefs = new int[backwardTargets.length];
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			copyArcs(builder.upwardOut[v], forwardOffsets[v], forwardTargets, forwardWeights, forwardRefs);
+			copyArcs(builder.upwardIn[v], backwardOffsets[v], backwardTargets, backwardWeights, backwardRefs);
+		}
+
+		int shortcutCount = builder.shortcutCount;
+		this.shortcutFirst = Arrays.copyOf(builder.shortcutFirst, shortcutCount);
+		this.shortcutSecond = Arrays.copyOf(builder.shortcutSecond, shortcutCount);
+	}
+
+	/**
+	 * Builds the hierarchy for a graph with non-negative weights
+	 * @param graph an instance of frozen graph
+	 * @param parallelism the number of threads contracting vertices
+	 * @return an instance of contraction hierarchy
+	 */
+	static ContractionHierarchy build(FrozenGraph<?, ?> graph, int parallelism)
+	{
+		if(parallelism < 1)
+		{
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		graph.checkNonNegativeWeights("build contraction hierarchy");
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try
+		{
+			Builder builder = new Builder(graph, pool);
+			builder.contract();
+			return new ContractionHierarchy(builder);
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	int shortcutCount()
+	{
+		return shortcutFirst.length;
+	}
+
+	int forwardStart(int vertex)
+	{
+		return forwardOffsets[vertex];
+	}
+
+	int forwardEnd(int vertex)
+	{
+		return forwardOffsets[vertex + 1];
+	}
+
+	int forwardTarget(int arc)
+	{
+		return forwardTargets[arc];
+	}
+
+	float forwardWeight(int arc)
+	{
+		return forwardWeights[arc];
+	}
+
+	int forwardRef(int arc)
+	{
+		return forwardRefs[arc];
+	}
+
+	int backwardStart(int vertex)
+	{
+		return backwardOffsets[vertex];
+	}
+
+	int backwardEnd(int vertex)
+	{
+		return backwardOffsets[vertex + 1];
+	}
+
+	int backwardTarget(int arc)
+	{
+		return backwardTargets[arc];
+	}
+
+	float backwardWeight(int arc)
+	{
+		return backwardWeights[arc];
+	}
+
+	int backwardRef(int arc)
+	{
+		return backwardRefs[arc];
+	}
+
+	/*
+		Appends edge indices of the frozen graph represented by a reference to the list, in the path order.
+		Uses an explicit stack rather than recursion, since shortcuts may be nested deeply.
+	 */
+	void unpack(int ref, IntList edges, IntList stack)
+	{
+		stack.clear();
+		stack.add(ref);
+		while(!stack.isEmpty())
+		{
+			int top = stack.removeLast();
+			if(top >= 0)
+			{
+				edges.add(top);
+			}
+			else
+			{
+				int shortcut = -top - 1;
+				stack.add(shortcutSecond[shortcut]);
+				stack.add(shortcutFirst[shortcut]);
+			}
+		}
+	}
+
+	private static void copyArcs(List<Arc> arcs, int offset, int[] targets, float[] weights, int[] refs)
+	{
+		for(Arc arc : arcs)
+		{
+			targets[offset] = arc.vertex;
+			weights[offset] = arc.weight;
+			refs[offset] = arc.ref;
+			offset++;
+		}
+	}
+
+	/*
+		An edge of the graph being contracted.
+		For an 'out' edge the vertex is the target, for an 'in' edge the vertex is the source.
+	 */
+	private static final class Arc
+	{
+		private final int vertex;
+		private float weight;
+		private int ref;
+
+		private Arc(int vertex, float weight, int ref)
+		{
+			this.vertex = vertex;
+			this.weight = weight;
+			this.ref = ref;
+		}
+	}
+
+	private static final class Shortcut
+	{
+		private final int from;
+		private final int to;
+		private final float weight;
+		private final int first;
+		private final int second;
+
+		private Shortcut(int from, int to, float weight, int first, int second)
+		{
+			this.from = from;
+			this.to = to;
+			this.weight = weight;
+			this.first = first;
+			this.second = second;
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <E> List<E>[] newLists(int length)
+	{
+		return new List[length];
+	}
+
+	/*
+		Keeps the state of the contraction. The adjacency lists contain only vertices not contracted yet.
+		They are modified by a single thread between the parallel phases, which only read them.
+	 */
+	private static final class Builder
+	{
+		private final FrozenGraph<?, ?> graph;
+		private final ForkJoinPool pool;
+		private final int vertexCount;
+		private final List<Arc>[] out;
+		private final List<Arc>[] in;
+		private final List<Arc>[] upwardOut;
+		private final List<Arc>[] upwardIn;
+		private final int[] priorities;
+		private final int[] contractedNeighbours;
+		// An upper bound of the number of hierarchy levels below the vertex
+		private final int[] levels;
+		private final boolean[] contracted;
+		// The round in which the vertex is being contracted, used to exclude it from witness searches
+		private final int[] rounds;
+		// The last round in which the priority of the vertex was marked for update
+		private final int[] updateRounds;
+		private final ThreadLocal<WitnessSearch> witnessSearches;
+
+		private int[] shortcutFirst = new int[16];
+		private int[] shortcutSecond = new int[16];
+		private int shortcutCount;
+
+		private Builder(FrozenGraph<?, ?> graph, ForkJoinPool pool)
+		{
+			this.graph = graph;
+			this.pool = pool;
+			this.vertexCount = graph.getVertexCount();
+			this.out = newLists(vertexCount + 1);
+			this.in = newLists(vertexCount + 1);
+			this.upwardOut = newLists(vertexCount + 1);
+			this.upwardIn = newLists(vertexCount + 1);
+			this.priorities = new int[vertexCount + 1];
+			this.contractedNeighbours = new int[vertexCount + 1];
+			this.levels = new int[vertexCount + 1];
+			this.contracted = new boolean[vertexCount + 1];
+			this.rounds = new int[vertexCount + 1];
+			this.updateRounds = new int[vertexCount + 1];
+			this.witnessSearches = ThreadLocal.withInitial(() -> new WitnessSearch(vertexCount));
+
+			for(int v = 0; v <= vertexCount; v++)
+			{
+				out[v] = new ArrayList<>(0);
+				in[v] = new ArrayList<>(0);
+			}
+			for(int v = 1; v <= vertexCount; v++)
+			{
+				for(int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++)
+				{
+					int to = graph.target(e);
+					if(to != v && graph.allows(e)) addArc(v, to, graph.weight(e), e);
+				}
+			}
+		}
+
+		private void contract()
+		{
+			int[] vertices = IntStream.rangeClosed(1, vertexCount).toArray();
+			parallel(() -> Arrays.stream(vertices).parallel().forEach(v -> priorities[v] = estimatePriority(v)));
+
+			int round = 0;
+			int[] remaining = vertices;
+			while(remaining.length > 0)
+			{
+				round++;
+				int currentRound = round;
+				int[] candidates = remaining;
+				int[] batch = parallel(() -> Arrays.stream(candidates).parallel().filter(this::isLocalMinimum).toArray());
+				for(int v : batch)
+				{
+					rounds[v] = currentRound;
+				}
+
+				List<List<Shortcut>> shortcuts = parallel(() -> Arrays.stream(batch).parallel()
+						.mapToObj(v -> findShortcuts(v, CONTRACTION_SETTLE_LIMIT, false))
+						.collect(Collectors.toList()));
+
+				IntList affected = new IntList(16);
+				for(int i = 0; i < batch.length; i++)
+				{
+					removeVertex(batch[i], currentRound, affected);
+					for(Shortcut shortcut : shortcuts.get(i))
+					{
+						if(isImprovement(shortcut.from, shortcut.to, shortcut.weight))
+						{
+							int ref = -(addShortcut(shortcut.first, shortcut.second) + 1);
+							addArc(shortcut.from, shortcut.to, shortcut.weight, ref);
+						}
+					}
+				}
+
+				int[] neighbours = affected.toArray();
+				parallel(() -> Arrays.stream(neighbours).parallel().forEach(v -> priorities[v] = estimatePriority(v)));
+				remaining = Arrays.stream(remaining).filter(v -> !contracted[v]).toArray();
+			}
+		}
+
+		/*
+			A vertex is contracted in the current round if its priority is less than the priority
+			of each vertex within two hops. Ties are broken by the vertex ID.
+			The two-hop neighbourhood keeps the vertices of a round apart, so that few witness paths
+			are blocked by the vertices excluded from the searches.
+		 */
+		private boolean isLocalMinimum(int v)
+		{
+			return isLocalMinimum(v, out[v]) && isLocalMinimum(v, in[v]);
+		}
+
+		private boolean isLocalMinimum(int v, List<Arc> arcs)
+		{
+			for(Arc arc : arcs)
+			{
+				int u = arc.vertex;
+				if(!isLess(v, u) || !isLess(v, out[u]) || !isLess(v, in[u])) return false;
+			}
+			return true;
+		}
+
+		private boolean isLess(int v, List<Arc> arcs)
+		{
+			for(Arc arc : arcs)
+			{
+				if(!isLess(v, arc.vertex)) return false;
+			}
+			return true;
+		}
+
+		private boolean isLess(int v, int u)
+		{
+			return u == v || priorities[v] < priorities[u] || (priorities[v] == priorities[u] && v < u);
+		}
+
+		private int estimatePriority(int v)
+		{
+			int shortcuts = findShortcuts(v, ESTIMATION_SETTLE_LIMIT, true).size();
+			int edgeDifference = shortcuts - out[v].size() - in[v].size();
+			return 2 * edgeDifference + contractedNeighbours[v] + levels[v];
+		}
+
+		/*
+			Returns the shortcuts required to contract vertex v.
+			When estimating, the vertices of the current round are not excluded from witness searches.
+		 */
+		private List<Shortcut> findShortcuts(int v, int settleLimit, boolean estimate)
+		{
+			List<Shortcut> shortcuts = new ArrayList<>();
+			WitnessSearch search = witnessSearches.get();
+			int excludedRound = estimate ? -1 : rounds[v];
+			for(Arc inArc : in[v])
+			{
+				int u = inArc.vertex;
+				float maxWeight = -1;
+				for(Arc outArc : out[v])
+				{
+					if(outArc.vertex != u) maxWeight = Math.max(maxWeight, inArc.weight + outArc.weight);
+				}
+				if(maxWeight < 0) continue;
+
+				search.run(u, v, maxWeight, settleLimit, excludedRound);
+				for(Arc outArc : out[v])
+				{
+					int x = outArc.vertex;
+					if(x == u) continue;
+					float weight = inArc.weight + outArc.weight;
+					if(search.distance(x) > weight)
+					{
+						shortcuts.add(new Shortcut(u, x, weight, inArc.ref, outArc.ref));
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/*
+			Moves the remaining edges of a vertex to the upward graph and removes them from its neighbours
+		 */
+		private void removeVertex(int v, int round, IntList affected)
+		{
+			contracted[v] = true;
+			upwardOut[v] = out[v];
+			upwardIn[v] = in[v];
+			for(Arc arc : out[v])
+			{
+				in[arc.vertex].removeIf(a -> a.vertex == v);
+				touch(v, arc.vertex, round, affected);
+			}
+			for(Arc arc : in[v])
+			{
+				out[arc.vertex].removeIf(a -> a.vertex == v);
+				touch(v, arc.vertex, round, affected);
+			}
+			out[v] = null;
+			in[v] = null;
+		}
+
+		private void touch(int v, int u, int round, IntList affected)
+		{
+			contractedNeighbours[u]++;
+			levels[u] = Math.max(levels[u], levels[v] + 1);
+			if(updateRounds[u] != round)
+			{
+				updateRounds[u] = round;
+				affected.add(u);
+			}
+		}
+
+		private boolean isImprovement(int from, int to, float weight)
+		{
+			for(Arc arc : out[from])
+			{
+				if(arc.vertex == to) return weight < arc.weight;
+			}
+			return true;
+		}
+
+		/*
+			Adds an edge, or replaces an existing parallel edge if the new one has smaller weight
+		 */
+		private void addArc(int from, int to, float weight, int ref)
+		{
+			for(Arc arc : out[from])
+			{
+				if(arc.vertex == to)
+				{
+					if(weight < arc.weight)
+					{
+						arc.weight = weight;
+						arc.ref = ref;
+						for(Arc inArc : in[to])
+						{
+							if(inArc.vertex == from)
+							{
+								inArc.weight = weight;
+								inArc.ref = ref;
+							}
+						}
+					}
+					return;
+				}
+			}
+			out[from].add(new Arc(to, weight, ref));
+			in[to].add(new Arc(from, weight, ref));
+		}
+
+		private int addShortcut(int first, int second)
+		{
+			if(shortcutCount == shortcutFirst.length)
+			{
+				shortcutFirst = Arrays.copyOf(shortcutFirst, 2 * shortcutCount);
+				shortcutSecond = Arrays.copyOf(shortcutSecond, 2 * shortcutCount);
+			}
+			shortcutFirst[shortcutCount] = first;
+			shortcutSecond[shortcutCount] = second;
+			return shortcutCount++;
+		}
+
+		private <R> R parallel(Callable<R> task)
+		{
+			try
+			{
+				return pool.submit(task).get();
+			}
+			catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Contraction interrupted", ex);
+			}
+			catch(ExecutionException ex)
+			{
+				throw new IllegalStateException("Contraction failed", ex.getCause());
+			}
+		}
+
+		private void parallel(Runnable task)
+		{
+			parallel(() -> {
+				task.run();
+				return null;
+			});
+		}
+
+		/*
+			Bounded Dijkstra search over the vertices not contracted yet, from an 'in' neighbour of
+			the contracted vertex to its 'out' neighbours. Stops as soon as all of them are settled.
+			Keeps its arrays between searches and resets only the visited vertices.
+		 */
+		private final class WitnessSearch
+		{
+			private final float[] distances;
+			private final int[] targets;
+			private final IndexedMinHeap heap;
+			private final IntList visited = new IntList(64);
+			private int stamp;
+
+			private WitnessSearch(int vertexCount)
+			{
+				this.distances = new float[vertexCount + 1];
+				Arrays.fill(distances, Float.POSITIVE_INFINITY);
+				this.targets = new int[vertexCount + 1];
+				this.heap = new IndexedMinHeap(vertexCount);
+			}
+
+			private void run(int source, int ignored, float maxWeight, int settleLimit, int excludedRound)
+			{
+				stamp++;
+				int remainingTargets = 0;
+				for(Arc arc : out[ignored])
+				{
+					if(arc.vertex != source && targets[arc.vertex] != stamp)
+					{
+						targets[arc.vertex] = stamp;
+						remainingTargets++;
+					}
+				}
+
+				for(int i = 0; i < visited.size(); i++)
+				{
+					distances[visited.get(i)] = Float.POSITIVE_INFINITY;
+				}
+				visited.clear();
+				heap.clear();
+
+				distances[source] = 0;
+				visited.add(source);
+				heap.push(source, 0);
+				int settled = 0;
+				while(!heap.isEmpty() && settled < settleLimit)
+				{
+					float weight = heap.peekKey();
+					if(weight > maxWeight) break;
+					int u = heap.poll();
+					settled++;
+					if(targets[u] == stamp && --remainingTargets == 0) break;
+					for(Arc arc : out[u])
+					{
+						int x = arc.vertex;
+						if(x == ignored || (excludedRound > 0 && rounds[x] == excludedRound)) continue;
+						float candidate = weight + arc.weight;
+						if(candidate < distances[x])
+						{
+							if(distances[x] == Float.POSITIVE_INFINITY) visited.add(x);
+							distances[x] = candidate;
+							heap.push(x, candidate);
+						}
+					}
+				}
+			}
+
+			private float distance(int vertex)
+			{
+				return distances[vertex];
+			}
+		}
+	}
+}
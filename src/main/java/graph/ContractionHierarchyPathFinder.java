@@ -0,0 +1,245 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements the shortest path query on Contraction Hierarchies.
+ * The hierarchy is built once from a {@link FrozenGraph} at the finder creation,
+ * see {@link ContractionHierarchy} for the details of the preprocessing.
+ *
+ * A query runs two Dijkstra searches, forward from the first vertex and backward from the last one,
+ * each of them following only the edges to vertices of higher rank. The shortest path goes through
+ * the vertex where the sum of both distances is minimal. The shortcuts of the found path are unpacked
+ * into the edges of the frozen graph.
+ *
+ * The finder can be used by several threads concurrently.
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class ContractionHierarchyPathFinder<T extends Edge> implements GraphPathFinder<T>
+{
+	private final FrozenGraph<?, T> graph;
+	private final ContractionHierarchy hierarchy;
+	private final ThreadLocal<Query> queries;
+
+	/**
+	 * Builds the hierarchy using all available processors
+	 * @param graph an instance of frozen graph with non-negative weights
+	 */
+	public ContractionHierarchyPathFinder(FrozenGraph<?, T> graph)
+	{
+		this(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Builds the hierarchy using the specified number of threads
+	 * @param graph an instance of frozen graph with non-negative weights
+	 * @param parallelism the number of threads contracting vertices
+	 */
+	public ContractionHierarchyPathFinder(FrozenGraph<?, T> graph, int parallelism)
+	{
+		this.graph = graph;
+		this.hierarchy = ContractionHierarchy.build(graph, parallelism);
+		int vertexCount = graph.getVertexCount();
+		this.queries = ThreadLocal.withInitial(() -> new Query(vertexCount));
+	}
+
+	/**
+	 * The hierarchy is built from a frozen graph, so the transition map is not used.
+	 * @param transitionMap an instance of transition map
+	 */
+	@Override public void setTransitionMap(Map<Integer, List<T>> transitionMap)
+	{
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to}
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return a list of edges, or an empty list if no path is found
+	 */
+	@Override public List<T> find(int from, int to)
+	{
+		if(from == to || !graph.containsVertex(from) || !graph.containsVertex(to)) return Collections.emptyList();
+
+		return graph.toPath(queries.get().run(graph.internal(from), graph.internal(to)));
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to} as a compact path
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return the found path, empty if no path is found
+	 */
+	@Override public Path<T> findPath(int from, int to)
+	{
+		if(from == to || !graph.containsVertex(from) || !graph.containsVertex(to)) return Path.empty();
+
+		return graph.toCompactPath(queries.get().run(graph.internal(from), graph.internal(to)));
+	}
+
+	/**
+	 * Returns the number of shortcut edges added by the preprocessing
+	 * @return the number of shortcuts
+	 */
+	public int getShortcutCount()
+	{
+		return hierarchy.shortcutCount();
+	}
+
+	/*
+		Keeps the arrays of a query between invocations in the same thread.
+		Only the vertices visited by the previous query are reset.
+	 */
+	private final class Query
+	{
+		private final float[] forwardDistances;
+		private final float[] backwardDistances;
+		private final int[] forwardParents;
+		private final int[] backwardParents;
+		private final int[] forwardRefs;
+		private final int[] backwardRefs;
+		private final IndexedMinHeap forwardHeap;
+		private final IndexedMinHeap backwardHeap;
+		private final IntList visited = new IntList(64);
+		private final IntList edges = new IntList(64);
+		private final IntList refs = new IntList(64);
+		private final IntList stack = new IntList(16);
+
+		private Query(int vertexCount)
+		{
+			this.forwardDistances = new float[vertexCount + 1];
+			this.backwardDistances = new float[vertexCount + 1];
+			Arrays.fill(forwardDistances, Float.POSITIVE_INFINITY);
+			Arrays.fill(backwardDistances, Float.POSITIVE_INFINITY);
+			this.forwardParents = new int[vertexCount + 1];
+			this.backwardParents = new int[vertexCount + 1];
+			this.forwardRefs = new int[vertexCount + 1];
+			this.backwardRefs = new int[vertexCount + 1];
+			this.forwardHeap = new IndexedMinHeap(vertexCount);
+			this.backwardHeap = new IndexedMinHeap(vertexCount);
+		}
+
+		/*
+			Returns edge indices of the shortest path between internal vertex IDs, or an empty list.
+		 */
+		private IntList run(int from, int to)
+		{
+			reset();
+			visit(forwardDistances, from, 0);
+			forwardParents[from] = 0;
+			forwardHeap.push(from, 0);
+			visit(backwardDistances, to, 0);
+			backwardParents[to] = 0;
+			backwardHeap.push(to, 0);
+
+			float best = Float.POSITIVE_INFINITY;
+			int meeting = 0;
+			boolean forward = true;
+			while(true)
+			{
+				boolean forwardActive = !forwardHeap.isEmpty() && forwardHeap.peekKey() < best;
+				boolean backwardActive = !backwardHeap.isEmpty() && backwardHeap.peekKey() < best;
+				if(!forwardActive && !backwardActive) break;
+				if(!forwardActive) forward = false;
+				if(!backwardActive) forward = true;
+
+				int u;
+				if(forward)
+				{
+					u = forwardHeap.poll();
+					relaxForward(u);
+				}
+				else
+				{
+					u = backwardHeap.poll();
+					relaxBackward(u);
+				}
+				float total = forwardDistances[u] + backwardDistances[u];
+				if(total < best)
+				{
+					best = total;
+					meeting = u;
+				}
+				forward = !forward;
+			}
+
+			edges.clear();
+			if(meeting == 0) return edges;
+
+			// The forward references are collected from the meeting vertex back to the first vertex
+			refs.clear();
+			for(int v = meeting; v != from; v = forwardParents[v])
+			{
+				refs.add(forwardRefs[v]);
+			}
+			for(int i = refs.size() - 1; i >= 0; i--)
+			{
+				hierarchy.unpack(refs.get(i), edges, stack);
+			}
+			for(int v = meeting; v != to; v = backwardParents[v])
+			{
+				hierarchy.unpack(backwardRefs[v], edges, stack);
+			}
+			return edges;
+		}
+
+		private void relaxForward(int u)
+		{
+			float distance = forwardDistances[u];
+			for(int arc = hierarchy.forwardStart(u); arc < hierarchy.forwardEnd(u); arc++)
+			{
+				int x = hierarchy.forwardTarget(arc);
+				float candidate = distance + hierarchy.forwardWeight(arc);
+				if(candidate < forwardDistances[x])
+				{
+					visit(forwardDistances, x, candidate);
+					forwardParents[x] = u;
+					forwardRefs[x] = hierarchy.forwardRef(arc);
+					forwardHeap.push(x, candidate);
+				}
+			}
+		}
+
+		private void relaxBackward(int u)
+		{
+			float distance = backwardDistances[u];
+			for(int arc = hierarchy.backwardStart(u); arc < hierarchy.backwardEnd(u); arc++)
+			{
+				int x = hierarchy.backwardTarget(arc);
+				float candidate = distance + hierarchy.backwardWeight(arc);
+				if(candidate < backwardDistances[x])
+				{
+					visit(backwardDistances, x, candidate);
+					backwardParents[x] = u;
+					backwardRefs[x] = hierarchy.backwardRef(arc);
+					backwardHeap.push(x, candidate);
+				}
+			}
+		}
+
+		private void visit(float[] distances, int vertex, float distance)
+		{
+			if(forwardDistances[vertex] == Float.POSITIVE_INFINITY && backwardDistances[vertex] == Float.POSITIVE_INFINITY)
+			{
+				visited.add(vertex);
+			}
+			distances[vertex] = distance;
+		}
+
+		private void reset()
+		{
+			for(int i = 0; i < visited.size(); i++)
+			{
+				int v = visited.get(i);
+				forwardDistances[v] = Float.POSITIVE_INFINITY;
+				backwardDistances[v] = Float.POSITIVE_INFINITY;
+			}
+			visited.clear();
+			forwardHeap.clear();
+			backwardHeap.clear();
+		}
+	}
+}
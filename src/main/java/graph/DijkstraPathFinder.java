@@ -0,0 +1,58 @@
+package graph;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements the Dijkstra algorithm of finding the shortest path between two vertices of a {@link FrozenGraph}.
+ * The weight of an edge is the weight of {@link WeighedEdge}, or 1 for any other edge.
+ *
+ * The finder can be used by several threads concurrently.
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class DijkstraPathFinder<T extends Edge> implements GraphPathFinder<T>
+{
+	private final FrozenGraph<?, T> graph;
+	private final ShortestPathSearch search;
+
+	/**
+	 * Creates a finder for the frozen graph
+	 * @param graph an instance of frozen graph with non-negative weights
+	 */
+	public DijkstraPathFinder(FrozenGraph<?, T> graph)
+	{
+		graph.checkNonNegativeWeights("find shortest paths");
+		this.graph = graph;
+		this.search = new ShortestPathSearch(graph, null);
+	}
+
+	/**
+	 * The finder works on the frozen graph, so the transition map is not used.
+	 * @param transitionMap an instance of transition map
+	 */
+	@Override public void setTransitionMap(Map<Integer, List<T>> transitionMap)
+	{
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to}
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return a list of edges, or an empty list if no path is found
+	 */
+	@Override public List<T> find(int from, int to)
+	{
+		return graph.toPath(search.find(from, to));
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to} as a compact path
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return the found path, empty if no path is found
+	 */
+	@Override public Path<T> findPath(int from, int to)
+	{
+		return graph.toCompactPath(search.find(from, to));
+	}
+}
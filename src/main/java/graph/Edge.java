@@ -1,14 +1,19 @@
 package graph;
 
+import java.io.Serializable;
+
 /**
  * The root class that implements a general representation of an edge.
  * It contains vertex IDs: 'from' and 'to'.
  * By default, the edge is directed, even if used in undirected graphs.
  * 'From' and 'to' are formal and can be swapped in undirected graphs.
  * In directed graphs, the direction is 'from' -> 'to'.
+ * Edges are serializable, so that they can be sent to partitions of a {@link PartitionedGraph}.
  */
-public class Edge
+public class Edge implements Serializable
 {
+	private static final long serialVersionUID = 1L;
+
 	private final int from;
 	private final int to;
 
@@ -0,0 +1,663 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Implements an immutable snapshot of a graph, returned by {@link Graph#freeze()}.
+ * Vertex IDs are the same as in the source graph, i.e. from 1 to the number of vertices.
+ *
+ * The edges are kept in a compressed adjacency form: the edges going 'out' from a vertex
+ * occupy a contiguous range of edge indices, so that path finders can iterate them without
+ * building a transition map.
+ * For undirected graphs, each undirected edge is represented by a couple of directed edges with opposite
+ * orientation, except the case when the edge closes to the same vertex (from = to).
+ *
+ * The adjacency may be renumbered by {@link #reorder(VertexOrdering)} to improve memory locality.
+ * The renumbering is internal: vertex IDs accepted and returned by the snapshot,
+ * its path finders and the edges of found paths stay the same as in the source graph.
+ *
+ * The weight of an edge is the weight of {@link WeighedEdge}, or 1 for any other edge.
+ * Other weights can be set by {@link #withWeights(WeightFunction)}; the copies with different weights
+ * share the adjacency and the edges with this snapshot.
+ *
+ * A view restricted to some of the vertices and edges is returned by {@link #filter(Predicate, IntPredicate)}.
+ * The view shares everything with this snapshot, and its searches skip the excluded vertices and edges
+ * while expanding the edges.
+ *
+ * @param <V> defines the type of the object associated with a vertex
+ * @param <T> defines the type of the edge. A subclass of {@link Edge}
+ */
+public final class FrozenGraph<V, T extends Edge>
+{
+	// Vertices and edges are ordered by internal vertex IDs; edges keep the source graph IDs
+	private final List<V> vertices;
+	private final List<T> edges;
+	private final boolean directed;
+
+	// Internal ID of each vertex ID and vice versa, or null if they are the same
+	private final int[] toInternal;
+	private final int[] toExternal;
+
+	// Edges 'out' from internal vertex v have indices offsets[v] .. offsets[v + 1] - 1
+	private final int[] offsets;
+	private final int[] sources;
+	private final int[] targets;
+	private final float[] weights;
+
+	// Indices of the edges coming 'in' to vertex v are inEdges[inOffsets[v]] .. inEdges[inOffsets[v + 1] - 1]
+	private final int[] inOffsets;
+	private final int[] inEdges;
+
+	// Vertices and edges kept by a filtered view, or null if the snapshot is not filtered
+	private final SearchFilter<T> filter;
+
+	private volatile Map<Integer, List<T>> transitionMap;
+
+	/*
+		Builds the adjacency of the arcs. The weights are given by arcWeights in the order of the arcs,
+		or by the edges if it is null.
+	 */
+	private FrozenGraph(List<V> vertices, List<T> arcs, float[] arcWeights, boolean directed, int[] toInternal,
+			int[] toExternal)
+	{
+		this.vertices = vertices;
+		this.directed = directed;
+		this.toInternal = toInternal;
+		this.toExternal = toExternal;
+		this.filter = null;
+
+		int vertexCount = vertices.size();
+		int edgeCount = arcs.size();
+		int[] arcSources = new int[edgeCount];
+		int[] arcTargets = new int[edgeCount];
+		for(int e = 0; e < edgeCount; e++)
+		{
+			arcSources[e] = internal(arcs.get(e).getFrom());
+			arcTargets[e] = internal(arcs.get(e).getTo());
+		}
+
+		// Counting sort of the edges by their target, then stable counting sort by their source,
+		// so that the edges 'out' from each vertex are ordered by target
+		this.inOffsets = countOffsets(arcTargets, vertexCount);
+		int[] byTarget = new int[edgeCount];
+		int[] position = inOffsets.clone();
+		for(int e = 0; e < edgeCount; e++)
+		{
+			byTarget[position[arcTargets[e]]++] = e;
+		}
+		this.offsets = countOffsets(arcSources, vertexCount);
+		position = offsets.clone();
+		int[] sorted = new int[edgeCount];
+		for(int arc : byTarget)
+		{
+			sorted[position[arcSources[arc]]++] = arc;
+		}
+
+		List<T> sortedArcs = new ArrayList<>(edgeCount);
+		this.sources = new int[edgeCount];
+		this.targets = new int[edgeCount];
+		this.weights = new float[edgeCount];
+		for(int e = 0; e < edgeCount; e++)
+		{
+			T edge = arcs.get(sorted[e]);
+			sortedArcs.add(edge);
+			sources[e] = internal(edge.getFrom());
+			targets[e] = internal(edge.getTo());
+			if(arcWeights != null)
+			{
+				weights[e] = arcWeights[sorted[e]];
+			}
+			else
+			{
+				weights[e] = edge instanceof WeighedEdge ? ((WeighedEdge) edge).getWeight() : 1.0f;
+			}
+		}
+		this.edges = sortedArcs;
+
+		this.inEdges = new int[edgeCount];
+		position = inOffsets.clone();
+		for(int e = 0; e < edgeCount; e++)
+		{
+			inEdges[position[targets[e]]++] = e;
+		}
+	}
+
+	/*
+		Creates a copy of the snapshot with other weights or filters, sharing everything else
+	 */
+	private FrozenGraph(FrozenGraph<V, T> graph, float[] weights, SearchFilter<T> filter)
+	{
+		this.vertices = graph.vertices;
+		this.edges = graph.edges;
+		this.directed = graph.directed;
+		this.toInternal = graph.toInternal;
+		this.toExternal = graph.toExternal;
+		this.offsets = graph.offsets;
+		this.sources = graph.sources;
+		this.targets = graph.targets;
+		this.weights = weights;
+		this.inOffsets = graph.inOffsets;
+		this.inEdges = graph.inEdges;
+		this.filter = filter;
+		this.transitionMap = filter == graph.filter ? graph.transitionMap : null;
+	}
+
+	/*
+		Creates a snapshot from copies of vertices and edges of a graph.
+		The lists are owned by the snapshot afterwards.
+	 */
+	@SuppressWarnings("unchecked")
+	static <V, T extends Edge> FrozenGraph<V, T> of(List<V> vertices, List<T> edges, boolean directed)
+	{
+		List<T> arcs = new ArrayList<>(directed ? edges.size() : 2 * edges.size());
+		arcs.addAll(edges);
+		if(!directed)
+		{
+			for(T edge : edges)
+			{
+				if(edge.getFrom() != edge.getTo()) arcs.add((T) edge.reverse());
+			}
+		}
+		return new FrozenGraph<>(vertices, arcs, null, directed, null, null);
+	}
+
+	/*
+		Creates a snapshot from directed arcs; for undirected graphs, the arcs already include both directions
+	 */
+	static <V, T extends Edge> FrozenGraph<V, T> ofArcs(List<V> vertices, List<T> arcs, boolean directed)
+	{
+		return new FrozenGraph<>(vertices, arcs, null, directed, null, null);
+	}
+
+	private static int[] countOffsets(int[] vertices, int vertexCount)
+	{
+		int[] offsets = new int[vertexCount + 2];
+		for(int v : vertices)
+		{
+			offsets[v + 1]++;
+		}
+		for(int v = 1; v < offsets.length; v++)
+		{
+			offsets[v] += offsets[v - 1];
+		}
+		return offsets;
+	}
+
+	/**
+	 * Returns a copy of the snapshot with the adjacency renumbered in the specified order,
+	 * so that vertices which are close in the graph are also close in memory.
+	 * Vertex IDs and edges seen through the copy are the same as in this snapshot.
+	 * @param ordering the vertex ordering
+	 * @return a new instance of frozen graph
+	 */
+	public FrozenGraph<V, T> reorder(VertexOrdering ordering)
+	{
+		// order[i] is the current internal ID of the vertex which gets internal ID i
+		int[] order = VertexReorderer.order(this, ordering);
+		int vertexCount = vertices.size();
+		int[] newToExternal = new int[vertexCount + 1];
+		int[] newToInternal = new int[vertexCount + 1];
+		List<V> reordered = new ArrayList<>(vertexCount);
+		for(int i = 1; i <= vertexCount; i++)
+		{
+			int id = external(order[i]);
+			newToExternal[i] = id;
+			newToInternal[id] = i;
+			reordered.add(vertices.get(order[i] - 1));
+		}
+		FrozenGraph<V, T> graph = new FrozenGraph<>(reordered, edges, weights, directed, newToInternal, newToExternal);
+		return filter == null ? graph : new FrozenGraph<>(graph, graph.weights, filter.withMapping(newToExternal));
+	}
+
+	/**
+	 * Returns a copy of the snapshot with the weights computed by the function.
+	 * The copy shares the adjacency and the edges with this snapshot, so that one topology can serve
+	 * several cost metrics, each with an array of weights of its own.
+	 * @param function the weight function
+	 * @return a new instance of frozen graph
+	 */
+	public FrozenGraph<V, T> withWeights(WeightFunction<? super V, ? super T> function)
+	{
+		float[] computed = new float[weights.length];
+		for(int e = 0; e < computed.length; e++)
+		{
+			computed[e] = function.weightOf(edges.get(e), vertices.get(sources[e] - 1), vertices.get(targets[e] - 1));
+		}
+		return new FrozenGraph<>(this, computed, filter);
+	}
+
+	/**
+	 * Returns a copy of the snapshot with the specified weights, sharing the adjacency and the edges with this snapshot
+	 * @param weights the weight of each edge, in the order of {@link #getEdges()}
+	 * @return a new instance of frozen graph
+	 */
+	public FrozenGraph<V, T> withWeights(float[] weights)
+	{
+		if(weights.length != this.weights.length)
+		{
+			throw new IllegalArgumentException("Weight count " + weights.length + " does not match edge count " + this.weights.length + ".");
+		}
+		return new FrozenGraph<>(this, weights.clone(), filter);
+	}
+
+	/**
+	 * Returns a view of the snapshot restricted to the vertices and edges accepted by the filters.
+	 * Nothing is copied: the filters are evaluated by the searches of the view while they expand the edges,
+	 * so that the excluded part of the graph is never visited. The view keeps the vertex IDs, the edges
+	 * and their positions of this snapshot; filtering a view keeps its own filters as well.
+	 * @param edgeFilter accepts the edges to keep, each direction of an undirected edge separately; or {@code null} to keep all edges
+	 * @param vertexFilter accepts the IDs of the vertices to keep, or {@code null} to keep all vertices
+	 * @return a filtered view of the snapshot
+	 */
+	public FrozenGraph<V, T> filter(Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		return filter(null, vertexFilter, edgeFilter);
+	}
+
+	/**
+	 * Does the same as method {@link #filter(Predicate, IntPredicate) filter} for a set of vertices.
+	 * The mask is translated to the internal numbering once, so that a vertex is tested by a single bit lookup.
+	 * @param vertexMask a set of the IDs of the vertices to keep; the set is copied
+	 * @return a filtered view of the snapshot
+	 */
+	public FrozenGraph<V, T> filter(BitSet vertexMask)
+	{
+		return filter((BitSet) vertexMask.clone(), null, null);
+	}
+
+	private FrozenGraph<V, T> filter(BitSet vertexMask, IntPredicate vertexFilter, Predicate<? super T> edgeFilter)
+	{
+		SearchFilter<T> combined = filter == null ? SearchFilter.of(vertexMask, vertexFilter, edgeFilter, toExternal)
+				: filter.and(vertexMask, vertexFilter, edgeFilter);
+		return new FrozenGraph<>(this, weights, combined);
+	}
+
+	/**
+	 * Returns the edges of the snapshot; for undirected graphs, each edge is present in both directions
+	 * @return an immutable list of edges
+	 */
+	public List<T> getEdges()
+	{
+		return Collections.unmodifiableList(edges);
+	}
+
+	/**
+	 * Returns the weight of the edge at the specified position of {@link #getEdges()}
+	 * @param index position of the edge
+	 * @return the weight
+	 */
+	public float getWeight(int index)
+	{
+		return weights[index];
+	}
+
+	/**
+	 * Returns a copy of the snapshot with compressed adjacency and exact weights
+	 * @return an instance of compressed graph
+	 */
+	public CompressedGraph<V> compress()
+	{
+		return CompressedGraph.of(this, 0);
+	}
+
+	/**
+	 * Returns a copy of the snapshot with compressed adjacency and weights quantized
+	 * to the specified resolution, i.e. rounded to the nearest multiple of it.
+	 * @param weightResolution a positive resolution of weights
+	 * @return an instance of compressed graph
+	 */
+	public CompressedGraph<V> compress(float weightResolution)
+	{
+		if(!(weightResolution > 0))
+		{
+			throw new IllegalArgumentException("Weight resolution must be positive: " + weightResolution);
+		}
+		return CompressedGraph.of(this, weightResolution);
+	}
+
+	/**
+	 * Returns the number of vertices
+	 * @return the number of vertices
+	 */
+	public int getVertexCount()
+	{
+		return vertices.size();
+	}
+
+	/**
+	 * Returns the number of directed edges.
+	 * For undirected graphs, each edge except loops is counted twice.
+	 * @return the number of edges
+	 */
+	public int getEdgeCount()
+	{
+		return edges.size();
+	}
+
+	/**
+	 * Returns whether the snapshot was taken from a directed graph
+	 * @return {@code true} for directed graph
+	 */
+	public boolean isDirected()
+	{
+		return directed;
+	}
+
+	/**
+	 * Returns the object assigned to the vertex with the specified ID
+	 * @param id vertex ID
+	 * @return an object of type {@code V}
+	 */
+	public V getVertex(int id)
+	{
+		if(!containsVertex(id))
+		{
+			throw new IllegalArgumentException("Vertex " + id + " not found.");
+		}
+		return vertices.get(internal(id) - 1);
+	}
+
+	/**
+	 * Returns the vertices of the snapshot, ordered by vertex ID
+	 * @return an unmodifiable list of vertices
+	 */
+	public List<V> getVertices()
+	{
+		if(toInternal == null) return Collections.unmodifiableList(vertices);
+
+		return new AbstractList<V>()
+		{
+			@Override public V get(int index)
+			{
+				return getVertex(index + 1);
+			}
+
+			@Override public int size()
+			{
+				return vertices.size();
+			}
+		};
+	}
+
+	/**
+	 * Returns a path with the fewest edges between vertices with IDs {@code from} and {@code to},
+	 * found by breadth-first search. The search reuses the arrays of the current thread,
+	 * so that it allocates only the returned list.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return a list of edges ordered along the path, or an empty list if no path is found
+	 */
+	public List<T> getPath(int from, int to)
+	{
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Collections.emptyList();
+
+		return toPath(breadthFirstSearch(internal(from), internal(to)));
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, returning a compact path
+	 * whose edges are looked up only when accessed
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return the found path, empty if no path is found
+	 */
+	public Path<T> findPath(int from, int to)
+	{
+		if(from == to || !containsVertex(from) || !containsVertex(to)) return Path.empty();
+
+		return toCompactPath(breadthFirstSearch(internal(from), internal(to)));
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, visiting only the vertices and edges
+	 * accepted by the filters; see {@link #filter(Predicate, IntPredicate)}.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param edgeFilter accepts the edges which the path may use, or {@code null} to accept all edges
+	 * @param vertexFilter accepts the IDs of the vertices which the path may visit, or {@code null} to accept all vertices
+	 * @return a list of edges ordered along the path, or an empty list if no path is found
+	 */
+	public List<T> getPath(int from, int to, Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		return filter(edgeFilter, vertexFilter).getPath(from, to);
+	}
+
+	/**
+	 * Returns a list of edges forming a path between vertices with IDs {@code from} and {@code to}
+	 * found by the specified path finder.
+	 * The transition map passed to the finder is built once per snapshot.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param finder an instance of path finder
+	 * @return a list of edges ordered along the path.
+	 */
+	public List<T> getPath(int from, int to, GraphPathFinder<T> finder)
+	{
+		finder.setTransitionMap(getTransitionMap());
+		return finder.find(from, to);
+	}
+
+	/**
+	 * Returns up to {@code k} shortest loopless paths between vertices with IDs {@code from} and {@code to},
+	 * ordered by increasing weight. Parallel edges make distinct paths.
+	 * Uses Yen's algorithm with spur searches guided by the shortest path tree towards {@code to}.
+	 * @param from ID of the first vertex in the paths
+	 * @param to ID of the last vertex in the paths
+	 * @param k the maximal number of paths
+	 * @return a list of paths, each one a list of edges ordered along the path; empty if no path is found
+	 */
+	public List<List<T>> getKShortestPaths(int from, int to, int k)
+	{
+		if(!containsVertex(from) || !containsVertex(to))
+		{
+			throw new IllegalArgumentException("Unable to find paths: vertex " + from + " or " + to + " not found.");
+		}
+		if(k < 1)
+		{
+			throw new IllegalArgumentException("Path count must be positive: " + k);
+		}
+		checkNonNegativeWeights("find k shortest paths");
+
+		List<List<T>> paths = new ArrayList<>();
+		for(IntList path : KShortestPaths.find(this, internal(from), internal(to), k))
+		{
+			paths.add(toPath(path));
+		}
+		return Collections.unmodifiableList(paths);
+	}
+
+	/**
+	 * Returns a string representation of the snapshot
+	 * @return string representation of the snapshot
+	 */
+	public String toString()
+	{
+		return IntStream.range(0, edges.size()).filter(this::allows).mapToObj(e -> edges.get(e).toString())
+				.collect(Collectors.joining(","));
+	}
+
+	boolean containsVertex(int id)
+	{
+		return id >= 1 && id <= vertices.size();
+	}
+
+	/*
+		Returns the internal ID of a vertex, used by the adjacency arrays
+	 */
+	int internal(int id)
+	{
+		return toInternal == null ? id : toInternal[id];
+	}
+
+	/*
+		Returns the vertex ID of an internal ID
+	 */
+	int external(int vertex)
+	{
+		return toExternal == null ? vertex : toExternal[vertex];
+	}
+
+	/*
+		Throws an exception if any edge has a negative weight, since the shortest path algorithms
+		do not support them.
+	 */
+	void checkNonNegativeWeights(String operation)
+	{
+		for(int e = 0; e < weights.length; e++)
+		{
+			if(!(weights[e] >= 0))
+			{
+				throw new IllegalArgumentException("Unable to " + operation + ": edge " + edges.get(e) + " has negative weight.");
+			}
+		}
+	}
+
+	int edgeStart(int vertex)
+	{
+		return offsets[vertex];
+	}
+
+	int edgeEnd(int vertex)
+	{
+		return offsets[vertex + 1];
+	}
+
+	int inEdgeStart(int vertex)
+	{
+		return inOffsets[vertex];
+	}
+
+	int inEdgeEnd(int vertex)
+	{
+		return inOffsets[vertex + 1];
+	}
+
+	/*
+		Returns the index of an edge coming 'in' to a vertex,
+		for position between inEdgeStart(vertex) and inEdgeEnd(vertex).
+	 */
+	int inEdge(int position)
+	{
+		return inEdges[position];
+	}
+
+	int source(int edge)
+	{
+		return sources[edge];
+	}
+
+	int target(int edge)
+	{
+		return targets[edge];
+	}
+
+	float weight(int edge)
+	{
+		return weights[edge];
+	}
+
+	T edge(int edge)
+	{
+		return edges.get(edge);
+	}
+
+	/*
+		Returns false if a filtered view excludes the edge or one of its vertices
+	 */
+	boolean allows(int edge)
+	{
+		return filter == null || filter.allowsVertex(sources[edge]) && filter.allowsVertex(targets[edge])
+				&& filter.allowsEdge(edges, edge);
+	}
+
+	/*
+		Returns edge indices of a path with the fewest edges between different internal vertex IDs,
+		or an empty list. The list belongs to the workspace of the current thread.
+	 */
+	IntList breadthFirstSearch(int from, int to)
+	{
+		SearchWorkspace workspace = SearchWorkspace.borrow(vertices.size());
+		IntList queue = workspace.queue();
+		IntList path = workspace.path();
+		workspace.visit(from);
+		queue.add(from);
+		for(int head = 0; head < queue.size(); head++)
+		{
+			int u = queue.get(head);
+			for(int e = offsets[u]; e < offsets[u + 1]; e++)
+			{
+				int x = targets[e];
+				if(!allows(e) || !workspace.visit(x)) continue;
+
+				workspace.setParentEdge(x, e);
+				if(x == to)
+				{
+					for(int v = to; v != from; v = sources[workspace.parentEdge(v)])
+					{
+						path.add(workspace.parentEdge(v));
+					}
+					path.reverse();
+					return path;
+				}
+				queue.add(x);
+			}
+		}
+		return path;
+	}
+
+	/*
+		Materializes a path given by edge indices
+	 */
+	List<T> toPath(IntList edgeIndices)
+	{
+		if(edgeIndices.isEmpty()) return Collections.emptyList();
+
+		List<T> path = new ArrayList<>(edgeIndices.size());
+		for(int i = 0; i < edgeIndices.size(); i++)
+		{
+			path.add(edges.get(edgeIndices.get(i)));
+		}
+		return Collections.unmodifiableList(path);
+	}
+
+	/*
+		Creates a compact path of edge indices, with the weights of this snapshot
+	 */
+	Path<T> toCompactPath(IntList edgeIndices)
+	{
+		if(edgeIndices.isEmpty()) return Path.empty();
+
+		int[] indices = edgeIndices.toArray();
+		int[] path = new int[indices.length + 1];
+		path[0] = external(sources[indices[0]]);
+		float total = 0;
+		for(int i = 0; i < indices.length; i++)
+		{
+			path[i + 1] = external(targets[indices[i]]);
+			total += weights[indices[i]];
+		}
+		return Path.of(path, total, index -> edges.get(indices[index]));
+	}
+
+	private Map<Integer, List<T>> getTransitionMap()
+	{
+		Map<Integer, List<T>> map = transitionMap;
+		if(map == null)
+		{
+			map = Collections.unmodifiableMap(IntStream.range(0, edges.size()).filter(this::allows).mapToObj(edges::get)
+					.collect(Collectors.groupingBy(Edge::getFrom, Collectors.collectingAndThen(Collectors.toList(),
+							Collections::unmodifiableList))));
+			transitionMap = map;
+		}
+		return map;
+	}
+}
@@ -1,6 +1,8 @@
 package graph;
 
 import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 /** Interface for a Graph
@@ -25,6 +27,43 @@ public interface Graph<V, T extends Edge>
 	 */
 	void addEdge(T edge);
 
+	/**
+	 * Sets the weight of the weighed edges connecting vertices with IDs {@code from} and {@code to},
+	 * in both directions for undirected graphs. The edges are updated in place,
+	 * and the registered shortest path trees are repaired incrementally.
+	 * @param from ID of the start vertex of the edges
+	 * @param to ID of the end vertex of the edges
+	 * @param weight the new weight
+	 * @throws IllegalArgumentException if there is no such edge, or it is not an instance of {@link WeighedEdge}
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default void updateWeight(int from, int to, float weight)
+	{
+		throw new UnsupportedOperationException("Unable to update weight: not supported by " + getClass().getName() + ".");
+	}
+
+	/**
+	 * Registers a shortest path tree from the vertex with ID {@code source}, which is kept up to date
+	 * with the weight updates of the graph
+	 * @param source ID of the source vertex
+	 * @return an instance of shortest path tree
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default ShortestPathTree<T> addShortestPathTree(int source)
+	{
+		throw new UnsupportedOperationException("Unable to add shortest path tree: not supported by " + getClass().getName() + ".");
+	}
+
+	/**
+	 * Stops updating the shortest path tree. The tree keeps its last state.
+	 * @param tree a tree registered with this graph
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default void removeShortestPathTree(ShortestPathTree<T> tree)
+	{
+		throw new UnsupportedOperationException("Unable to remove shortest path tree: not supported by " + getClass().getName() + ".");
+	}
+
 	/**
 	 * Returns a list of edges forming a path between vertices with IDs {@code from} and {@code to}.
 	 * @param from ID of the first vertex in the path
@@ -44,15 +83,79 @@ public interface Graph<V, T extends Edge>
 	 */
 	List<T> getPath(int from, int to, GraphPathFinder<T> finder);
 
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, visiting only the vertices and edges
+	 * accepted by the filters. The filters are evaluated during the search.
+	 * By default, the search runs on a snapshot returned by {@link #freeze()}.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param edgeFilter accepts the edges which the path may use, or {@code null} to accept all edges
+	 * @param vertexFilter accepts the IDs of the vertices which the path may visit, or {@code null} to accept all vertices
+	 * @return the found path or empty list if no path is found.
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default List<T> getPath(int from, int to, Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		return freeze().getPath(from, to, edgeFilter, vertexFilter);
+	}
+
+	/**
+	 * Returns the object assigned to the vertex with the specified ID.
+	 * The default implementation takes a snapshot of all vertices.
+	 * @param id vertex ID
+	 * @return an object of type {@code V}
+	 * @throws IllegalArgumentException if the vertex is not found
+	 */
+	default V getVertex(int id)
+	{
+		List<V> vertices = getVertices();
+		if(id < 1 || id > vertices.size())
+		{
+			throw new IllegalArgumentException("Vertex " + id + " not found.");
+		}
+		return vertices.get(id - 1);
+	}
+
 	/**
 	 * Returns a snapshot of graphs' vertices collection.
 	 * @return a collection of vertices
 	 */
 	List<V> getVertices();
 
+	/**
+	 * Returns a snapshot of graph's edges, each edge once as it was added.
+	 * @return a list of copies of the edges
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default List<T> getEdges()
+	{
+		throw new UnsupportedOperationException("Unable to get edges: not supported by " + getClass().getName() + ".");
+	}
+
 	/**
 	 * Applies a function to each vertex and replaces it with the result
 	 * @param function function that takes an object of type {@code V} and returns an object of the same type.
 	 */
 	void apply(UnaryOperator<V> function);
+
+	/**
+	 * Subscribes to the mutations of the graph made from now on: added vertices and edges,
+	 * weight updates and objects replaced by {@link #apply(UnaryOperator)}
+	 * @return a subscription with its own cursor, to be closed when no longer read
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default GraphSubscription<V, T> subscribe()
+	{
+		throw new UnsupportedOperationException("Unable to subscribe: not supported by " + getClass().getName() + ".");
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph, suitable for path finders that require preprocessing.
+	 * @return a frozen copy of the graph
+	 * @throws UnsupportedOperationException if the graph does not support it
+	 */
+	default FrozenGraph<V, T> freeze()
+	{
+		throw new UnsupportedOperationException("Unable to freeze graph: not supported by " + getClass().getName() + ".");
+	}
 }
@@ -0,0 +1,94 @@
+package graph;
+
+/**
+ * A mutation of a graph published to its subscriptions, see {@link Graph#subscribe()}
+ * @param <V> type of the object associated with a vertex
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class GraphEvent<V, T extends Edge>
+{
+	/**
+	 * Kinds of mutations
+	 */
+	public enum Type
+	{
+		/** A vertex is added; the event has the vertex ID and object */
+		VERTEX_ADDED,
+		/** An edge is added; the event has a copy of the edge */
+		EDGE_ADDED,
+		/** The weight of the edges connecting two vertices is updated; the event has a copy of one of the edges, in the direction it was added, with the new weight */
+		WEIGHT_UPDATED,
+		/** The object of a vertex is replaced by {@link Graph#apply}; the event has the vertex ID and the new object */
+		VERTEX_REPLACED
+	}
+
+	private final Type type;
+	private final long sequence;
+	private final int vertexId;
+	private final V vertex;
+	private final T edge;
+
+	GraphEvent(Type type, long sequence, int vertexId, V vertex, T edge)
+	{
+		this.type = type;
+		this.sequence = sequence;
+		this.vertexId = vertexId;
+		this.vertex = vertex;
+		this.edge = edge;
+	}
+
+	/**
+	 * Returns the kind of the mutation
+	 * @return event type
+	 */
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns the position of the event in the stream of the graph; positions increase from event to event,
+	 * and are skipped only by mutations which failed
+	 * @return sequence number
+	 */
+	public long getSequence()
+	{
+		return sequence;
+	}
+
+	/**
+	 * Returns the ID of the added or replaced vertex
+	 * @return vertex ID, or 0 for edge events
+	 */
+	public int getVertexId()
+	{
+		return vertexId;
+	}
+
+	/**
+	 * Returns the object of the added or replaced vertex
+	 * @return an object of type {@code V}, or null for edge events
+	 */
+	public V getVertex()
+	{
+		return vertex;
+	}
+
+	/**
+	 * Returns the added edge, or an edge with the updated weight
+	 * @return an edge, or null for vertex events
+	 */
+	public T getEdge()
+	{
+		return edge;
+	}
+
+	/**
+	 * Returns a string representation of the event
+	 * @return string representation of the event
+	 */
+	public String toString()
+	{
+		return sequence + ":" + type + (edge == null ? "(" + vertexId + "|" + vertex + ")" : edge.toString());
+	}
+}
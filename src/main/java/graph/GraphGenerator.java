@@ -0,0 +1,269 @@
+package graph;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Generates synthetic graphs for tests and soak runs: random graphs of the Erdos-Renyi model,
+ * power-law graphs of the R-MAT model and grids. A generator keeps only its parameters;
+ * the edges are drawn when a graph is populated, from a seeded random generator, so that
+ * populating several graphs with the same generator yields the same edges.
+ *
+ * Populating a graph adds the vertices first and then the edges between them. The vertices keep
+ * the IDs assigned by the graph, so a generator may also populate a graph which is not empty.
+ */
+public final class GraphGenerator
+{
+	private enum Model
+	{
+		ERDOS_RENYI,
+		RMAT,
+		GRID
+	}
+
+	/**
+	 * Creates the edges added by a generator
+	 * @param <T> type of the edge; a subclass of {@link Edge}
+	 */
+	@FunctionalInterface
+	public interface EdgeFactory<T extends Edge>
+	{
+		/**
+		 * Creates an edge
+		 * @param from ID of the start vertex
+		 * @param to ID of the end vertex
+		 * @param random the random generator of the generator, to draw weights from
+		 * @return an edge
+		 */
+		T create(int from, int to, Random random);
+	}
+
+	private final Model model;
+	private final int vertexCount;
+	private final int edgeCount;
+	private final long seed;
+	// Columns of a grid, or the number of levels of the R-MAT recursion
+	private final int width;
+	// Probabilities of the upper left, upper right and lower left quadrants of R-MAT
+	private final double a;
+	private final double b;
+	private final double c;
+
+	private GraphGenerator(Model model, int vertexCount, int edgeCount, long seed, int width, double a, double b, double c)
+	{
+		this.model = model;
+		this.vertexCount = vertexCount;
+		this.edgeCount = edgeCount;
+		this.seed = seed;
+		this.width = width;
+		this.a = a;
+		this.b = b;
+		this.c = c;
+	}
+
+	/**
+	 * Creates a generator of random graphs with the specified number of edges between distinct vertices
+	 * chosen uniformly (the G(n, m) model of Erdos and Renyi). Parallel edges are possible.
+	 * @param vertexCount the number of vertices, at least 2
+	 * @param edgeCount the number of edges
+	 * @param seed the seed of the random generator
+	 * @return an instance of generator
+	 */
+	public static GraphGenerator erdosRenyi(int vertexCount, int edgeCount, long seed)
+	{
+		if(vertexCount < 2 || edgeCount < 0)
+		{
+			throw new IllegalArgumentException("Unable to generate graph: " + vertexCount + " vertices, " + edgeCount + " edges.");
+		}
+		return new GraphGenerator(Model.ERDOS_RENYI, vertexCount, edgeCount, seed, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Creates a generator of R-MAT graphs with the usual quadrant probabilities 0.57, 0.19, 0.19 and 0.05
+	 * @param scale the binary logarithm of the number of vertices, from 1 to 30
+	 * @param edgeCount the number of edges
+	 * @param seed the seed of the random generator
+	 * @return an instance of generator
+	 */
+	public static GraphGenerator rmat(int scale, int edgeCount, long seed)
+	{
+		return rmat(scale, edgeCount, 0.57, 0.19, 0.19, seed);
+	}
+
+	/**
+	 * Creates a generator of R-MAT graphs, whose degrees follow a power law. The end vertices of each edge
+	 * are chosen by descending into one of the quadrants of the adjacency matrix with the specified probabilities,
+	 * once per bit of the vertex index; the probability of the lower right quadrant is the rest to 1.
+	 * Loops are redrawn, parallel edges are possible.
+	 * @param scale the binary logarithm of the number of vertices, from 1 to 30
+	 * @param edgeCount the number of edges
+	 * @param a the probability of the upper left quadrant
+	 * @param b the probability of the upper right quadrant
+	 * @param c the probability of the lower left quadrant
+	 * @param seed the seed of the random generator
+	 * @return an instance of generator
+	 */
+	public static GraphGenerator rmat(int scale, int edgeCount, double a, double b, double c, long seed)
+	{
+		if(scale < 1 || scale > 30 || edgeCount < 0)
+		{
+			throw new IllegalArgumentException("Unable to generate graph: scale " + scale + ", " + edgeCount + " edges.");
+		}
+		if(!(a >= 0 && b >= 0 && c >= 0 && a + b + c <= 1))
+		{
+			throw new IllegalArgumentException("Invalid quadrant probabilities: " + a + ", " + b + ", " + c);
+		}
+		return new GraphGenerator(Model.RMAT, 1 << scale, edgeCount, seed, scale, a, b, c);
+	}
+
+	/**
+	 * Creates a generator of grids, where each vertex is connected with its right and lower neighbours.
+	 * The edges go from the vertex with the lower ID, so paths of a directed grid lead right and down.
+	 * @param rows the number of rows
+	 * @param columns the number of columns
+	 * @param seed the seed of the random generator passed to the edge factory
+	 * @return an instance of generator
+	 */
+	public static GraphGenerator grid(int rows, int columns, long seed)
+	{
+		long edgeCount = (long) rows * (columns - 1) + (long) (rows - 1) * columns;
+		if(rows < 1 || columns < 1 || edgeCount >= Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Unable to generate graph: grid " + rows + "x" + columns + ".");
+		}
+		return new GraphGenerator(Model.GRID, rows * columns, (int) edgeCount, seed, columns, 0, 0, 0);
+	}
+
+	/**
+	 * Returns an edge factory of plain edges
+	 * @return an instance of edge factory
+	 */
+	public static EdgeFactory<Edge> edges()
+	{
+		return (from, to, random) -> new Edge(from, to);
+	}
+
+	/**
+	 * Returns an edge factory of weighed edges with integer weights drawn uniformly from 1 to the maximal weight
+	 * @param maxWeight the maximal weight, at least 1
+	 * @return an instance of edge factory
+	 */
+	public static EdgeFactory<WeighedEdge> weighedEdges(int maxWeight)
+	{
+		if(maxWeight < 1)
+		{
+			throw new IllegalArgumentException("Maximal weight must be positive: " + maxWeight);
+		}
+		return (from, to, random) -> new WeighedEdge(from, to, 1 + random.nextInt(maxWeight));
+	}
+
+	/**
+	 * Returns the number of vertices added by the generator
+	 * @return the number of vertices
+	 */
+	public int getVertexCount()
+	{
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the number of edges added by the generator
+	 * @return the number of edges
+	 */
+	public int getEdgeCount()
+	{
+		return edgeCount;
+	}
+
+	/**
+	 * Adds the vertices and the edges of the generated graph to a graph
+	 * @param graph the graph to populate
+	 * @param vertexFactory creates the object of a vertex from its index, from 0 to the number of vertices - 1
+	 * @param edgeFactory creates the edges
+	 * @param <V> type of the object associated with a vertex
+	 * @param <T> type of the edge; a subclass of {@link Edge}
+	 * @param <G> type of the graph
+	 * @return the graph
+	 */
+	public <V, T extends Edge, G extends Graph<V, T>> G populate(G graph, IntFunction<? extends V> vertexFactory,
+			EdgeFactory<? extends T> edgeFactory)
+	{
+		int[] ids = new int[vertexCount];
+		for(int i = 0; i < vertexCount; i++)
+		{
+			ids[i] = graph.addVertex(vertexFactory.apply(i));
+		}
+
+		Random random = new Random(seed);
+		if(model == Model.GRID)
+		{
+			for(int i = 0; i < vertexCount; i++)
+			{
+				if((i + 1) % width != 0) graph.addEdge(edgeFactory.create(ids[i], ids[i + 1], random));
+				if(i + width < vertexCount) graph.addEdge(edgeFactory.create(ids[i], ids[i + width], random));
+			}
+			return graph;
+		}
+
+		for(int e = 0; e < edgeCount; e++)
+		{
+			int from;
+			int to;
+			do
+			{
+				if(model == Model.RMAT)
+				{
+					long pair = rmatPair(random);
+					from = (int) (pair >>> 32);
+					to = (int) pair;
+				}
+				else
+				{
+					from = random.nextInt(vertexCount);
+					to = random.nextInt(vertexCount);
+				}
+			}
+			while(from == to);
+			graph.addEdge(edgeFactory.create(ids[from], ids[to], random));
+		}
+		return graph;
+	}
+
+	/*
+		Draws the row and the column of a cell of the adjacency matrix, packed into the upper and lower halves of a long
+	 */
+	private long rmatPair(Random random)
+	{
+		int row = 0;
+		int column = 0;
+		for(int bit = width - 1; bit >= 0; bit--)
+		{
+			double p = random.nextDouble();
+			if(p < a) continue;
+
+			if(p < a + b)
+			{
+				column |= 1 << bit;
+			}
+			else if(p < a + b + c)
+			{
+				row |= 1 << bit;
+			}
+			else
+			{
+				row |= 1 << bit;
+				column |= 1 << bit;
+			}
+		}
+		return (long) row << 32 | column;
+	}
+
+	/**
+	 * Returns a string representation of the generator
+	 * @return string representation of the generator
+	 */
+	public String toString()
+	{
+		return model + "(" + vertexCount + " vertices, " + edgeCount + " edges, seed " + seed + ")";
+	}
+}
@@ -0,0 +1,34 @@
+package graph;
+
+/**
+ * Assigns vertices of a {@link PartitionedGraph} to partitions.
+ * The assignment is made once, when the vertex is added, and does not change afterwards.
+ * @param <V> type of the object associated with a vertex
+ */
+@FunctionalInterface
+public interface GraphPartitioner<V>
+{
+	/**
+	 * Returns the partition of the added vertex
+	 * @param id the vertex ID
+	 * @param vertex the object associated with the vertex
+	 * @return the partition index, from 0 to the number of partitions exclusive
+	 */
+	int partitionOf(int id, V vertex);
+
+	/**
+	 * Returns a partitioner spreading vertices evenly by a hash of their IDs
+	 * @param partitionCount the number of partitions
+	 * @param <V> type of the object associated with a vertex
+	 * @return an instance of partitioner
+	 */
+	static <V> GraphPartitioner<V> byHash(int partitionCount)
+	{
+		if(partitionCount < 1)
+		{
+			throw new IllegalArgumentException("Partition count must be positive: " + partitionCount);
+		}
+		// Fibonacci hashing keeps consecutive IDs apart
+		return (id, vertex) -> Math.floorMod(id * 0x9E3779B9, partitionCount);
+	}
+}
@@ -22,4 +22,17 @@ public interface GraphPathFinder<T extends Edge>
 	 * @return a list of edges
 	 */
 	List<T> find(int from, int to);
+
+	/**
+	 * Does the same as method {@link #find(int, int) find}, returning a compact path.
+	 * By default, the path wraps the list of edges returned by {@link #find(int, int) find};
+	 * finders working on a {@link FrozenGraph} create edge objects only when they are accessed.
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return the found path, empty if no path is found
+	 */
+	default Path<T> findPath(int from, int to)
+	{
+		return Path.of(find(from, to));
+	}
 }
@@ -0,0 +1,84 @@
+package graph;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cursor over the mutation events of a graph, returned by {@link Graph#subscribe()}.
+ *
+ * Events are read in batches in the order of their sequence numbers, starting with the first mutation
+ * after subscribing. The graph keeps a bounded number of unread events: when a subscription falls behind,
+ * mutations of the graph wait until it reads on, so a subscription that is no longer read must be closed.
+ * A subscription is meant to be read by one thread at a time.
+ * @param <V> type of the object associated with a vertex
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class GraphSubscription<V, T extends Edge> implements Closeable
+{
+	private final ChangeStream<V, T> stream;
+	// Sequence number of the next event to read
+	private volatile long cursor;
+
+	GraphSubscription(ChangeStream<V, T> stream, long cursor)
+	{
+		this.stream = stream;
+		this.cursor = cursor;
+	}
+
+	/**
+	 * Returns the published events not read yet, without waiting
+	 * @param maxEvents maximum number of events to return
+	 * @return a list of events ordered by sequence number, possibly empty
+	 */
+	public synchronized List<GraphEvent<V, T>> poll(int maxEvents)
+	{
+		if(maxEvents < 1)
+		{
+			throw new IllegalArgumentException("Event count must be positive: " + maxEvents);
+		}
+		List<GraphEvent<V, T>> batch = new ArrayList<>(Math.min(maxEvents, 64));
+		long next = cursor;
+		for(GraphEvent<V, T> event; batch.size() < maxEvents && (event = stream.get(next)) != null; next++)
+		{
+			// Events of failed mutations have no type
+			if(event.getType() != null) batch.add(event);
+		}
+		// Frees the slots of the read events for writers
+		cursor = next;
+		return batch;
+	}
+
+	/**
+	 * Returns the events not read yet, waiting for at least one event up to the timeout
+	 * @param maxEvents maximum number of events to return
+	 * @param timeout how long to wait
+	 * @param unit unit of the timeout
+	 * @return a list of events ordered by sequence number, empty if the timeout elapsed
+	 */
+	public List<GraphEvent<V, T>> poll(int maxEvents, long timeout, TimeUnit unit)
+	{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		List<GraphEvent<V, T>> batch = poll(maxEvents);
+		for(int spins = 0; batch.isEmpty() && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted(); spins++)
+		{
+			BackOff.pause(spins);
+			batch = poll(maxEvents);
+		}
+		return batch;
+	}
+
+	/**
+	 * Stops receiving events and releases the writers waiting for this subscription
+	 */
+	@Override public void close()
+	{
+		stream.unsubscribe(this);
+	}
+
+	long cursor()
+	{
+		return cursor;
+	}
+}
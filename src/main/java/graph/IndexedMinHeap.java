@@ -0,0 +1,131 @@
+package graph;
+
+/**
+ * Implements a binary min-heap of vertex IDs keyed by {@code float} values.
+ * Keeps the position of each vertex in the heap, so that the key of a vertex
+ * can be decreased without adding a duplicate entry.
+ * Works on primitive arrays only; no objects are allocated after construction.
+ */
+final class IndexedMinHeap
+{
+	private final int[] heap;
+	private final float[] keys;
+	// position + 1 of a vertex in the heap, or 0 if the vertex is not in the heap
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * Creates an empty heap for vertex IDs from 0 to {@code maxVertex}
+	 * @param maxVertex the maximal vertex ID
+	 */
+	IndexedMinHeap(int maxVertex)
+	{
+		this.heap = new int[maxVertex + 1];
+		this.keys = new float[maxVertex + 1];
+		this.positions = new int[maxVertex + 1];
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean contains(int vertex)
+	{
+		return positions[vertex] != 0;
+	}
+
+	/*
+		Adds a vertex with the specified key, or decreases the key of the vertex if it is already in the heap.
+		A greater key of a vertex already in the heap is ignored.
+	 */
+	void push(int vertex, float key)
+	{
+		int position = positions[vertex] - 1;
+		if(position < 0)
+		{
+			position = size++;
+			heap[position] = vertex;
+		}
+		else if(keys[vertex] <= key)
+		{
+			return;
+		}
+		keys[vertex] = key;
+		siftUp(position);
+	}
+
+	float peekKey()
+	{
+		return keys[heap[0]];
+	}
+
+	int poll()
+	{
+		int top = heap[0];
+		positions[top] = 0;
+		size--;
+		if(size > 0)
+		{
+			heap[0] = heap[size];
+			positions[heap[0]] = 1;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/*
+		Removes all vertices. Takes time proportional to the number of vertices in the heap,
+		rather than to the capacity.
+	 */
+	void clear()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			positions[heap[i]] = 0;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int position)
+	{
+		int vertex = heap[position];
+		float key = keys[vertex];
+		while(position > 0)
+		{
+			int parent = (position - 1) >>> 1;
+			int parentVertex = heap[parent];
+			if(keys[parentVertex] <= key) break;
+			heap[position] = parentVertex;
+			positions[parentVertex] = position + 1;
+			position = parent;
+		}
+		heap[position] = vertex;
+		positions[vertex] = position + 1;
+	}
+
+	private void siftDown(int position)
+	{
+		int vertex = heap[position];
+		float key = keys[vertex];
+		int half = size >>> 1;
+		while(position < half)
+		{
+			int child = 2 * position + 1;
+			int right = child + 1;
+			if(right < size && keys[heap[right]] < keys[heap[child]]) child = right;
+			int childVertex = heap[child];
+			if(key <= keys[childVertex]) break;
+			heap[position] = childVertex;
+			positions[childVertex] = position + 1;
+			position = child;
+		}
+		heap[position] = vertex;
+		positions[vertex] = position + 1;
+	}
+}
@@ -0,0 +1,72 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Implements a growable list of primitive {@code int} values.
+ * Used by path finders to avoid boxing of vertex IDs and edge indices.
+ */
+final class IntList
+{
+	private int[] values;
+	private int size;
+
+	IntList(int capacity)
+	{
+		this.values = new int[Math.max(capacity, 1)];
+	}
+
+	void add(int value)
+	{
+		if(size == values.length)
+		{
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		values[size++] = value;
+	}
+
+	int get(int index)
+	{
+		return values[index];
+	}
+
+	void set(int index, int value)
+	{
+		values[index] = value;
+	}
+
+	int removeLast()
+	{
+		return values[--size];
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	void clear()
+	{
+		size = 0;
+	}
+
+	void reverse()
+	{
+		for(int i = 0, j = size - 1; i < j; i++, j--)
+		{
+			int value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+	}
+
+	int[] toArray()
+	{
+		return Arrays.copyOf(values, size);
+	}
+}
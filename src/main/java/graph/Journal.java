@@ -0,0 +1,379 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of graph mutations, written to a file per generation.
+ *
+ * Each record is framed as the length of its body, the body (a type byte followed by the payload) and
+ * the CRC32 checksum of the body. Appended records are buffered in memory and written by a flusher thread,
+ * which syncs the file once for all records buffered since the previous sync (group commit).
+ * With a positive sync interval the flusher syncs at most once per interval, unless a flush is requested,
+ * and appending threads do not wait for their records to be synced.
+ */
+final class Journal implements Closeable
+{
+	/*
+		Writes the payload of a record
+	 */
+	@FunctionalInterface
+	interface RecordWriter
+	{
+		void write(DataOutputStream output) throws IOException;
+	}
+
+	/*
+		Reads the payload of a record
+	 */
+	@FunctionalInterface
+	interface RecordReader
+	{
+		void read(byte type, DataInputStream input) throws IOException;
+	}
+
+	private final Path directory;
+	private final long syncIntervalMillis;
+	private final long syncIntervalNanos;
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+	private final DataOutputStream bodyOutput = new DataOutputStream(body);
+	private final CRC32 checksum = new CRC32();
+	private final Thread flusher;
+	// Guarded by this
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream(1 << 16);
+	private long appended;
+	private long synced;
+	// The highest sequence number a thread waits for, which makes the flusher sync without waiting for the interval
+	private long requested;
+	private long size;
+	private IOException failure;
+	private boolean closed;
+	// Guarded by the channel lock; replaced only when nothing is pending
+	private final Object io = new Object();
+	private FileChannel channel;
+	private long generation;
+
+	/*
+		Opens the journal file of the generation for appending
+	 */
+	Journal(Path directory, long generation, long syncIntervalMillis) throws IOException
+	{
+		this.directory = directory;
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+		this.generation = generation;
+		this.channel = open(directory, generation);
+		this.size = channel.size();
+		this.flusher = new Thread(this::flushLoop, "graph-journal");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	static Path file(Path directory, long generation)
+	{
+		return directory.resolve("journal." + generation);
+	}
+
+	/*
+		Reads the records of a journal file in order, through a buffer of fixed size. A torn or corrupt record
+		ends the journal: if truncate is set, the file is truncated before it, otherwise an exception is thrown.
+	 */
+	static void replay(Path file, RecordReader reader, boolean truncate) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			long fileSize = channel.size();
+			DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+			CRC32 checksum = new CRC32();
+			byte[] body = new byte[256];
+			// End of the last record read completely
+			long valid = 0;
+			while(valid < fileSize)
+			{
+				int length;
+				try
+				{
+					length = input.readInt();
+					if(length < 1 || length > fileSize - valid - 8) break;
+
+					if(body.length < length) body = new byte[Math.max(length, 2 * body.length)];
+					input.readFully(body, 0, length);
+					checksum.reset();
+					checksum.update(body, 0, length);
+					if(input.readInt() != (int) checksum.getValue()) break;
+				}
+				catch(EOFException ex)
+				{
+					break;
+				}
+
+				reader.read(body[0], new DataInputStream(new ByteArrayInputStream(body, 1, length - 1)));
+				valid += length + 8;
+			}
+			if(valid < fileSize)
+			{
+				if(!truncate)
+				{
+					throw new IOException("Journal " + file + " is corrupt at offset " + valid + " of " + fileSize
+							+ ", and later journals cannot be replayed after it");
+				}
+				channel.truncate(valid);
+				channel.force(true);
+			}
+		}
+	}
+
+	/*
+		Buffers a record and returns its sequence number, to be passed to commit()
+	 */
+	synchronized long append(byte type, RecordWriter writer)
+	{
+		checkWritable();
+		boolean idle = pending.size() == 0;
+		try
+		{
+			body.reset();
+			bodyOutput.writeByte(type);
+			writer.write(bodyOutput);
+			byte[] bytes = body.toByteArray();
+			checksum.reset();
+			checksum.update(bytes, 0, bytes.length);
+			writeInt(pending, bytes.length);
+			pending.write(bytes);
+			writeInt(pending, (int) checksum.getValue());
+			size += bytes.length + 8;
+		}
+		catch(IOException ex)
+		{
+			// Writing to memory does not fail
+			throw new UncheckedIOException(ex);
+		}
+		appended++;
+		// The flusher waits for the first record of a batch; further records do not wake it up
+		if(idle) notifyAll();
+		return appended;
+	}
+
+	/*
+		Throws an exception if records cannot be appended, because the journal is closed or failed
+	 */
+	synchronized void checkWritable()
+	{
+		if(closed)
+		{
+			throw new IllegalStateException("Journal is closed");
+		}
+		checkFailure();
+	}
+
+	/*
+		Waits until the record with the sequence number is synced, unless a sync interval is set
+	 */
+	void commit(long sequence)
+	{
+		if(syncIntervalMillis == 0) await(sequence);
+	}
+
+	/*
+		Waits until all appended records are synced
+	 */
+	void flush()
+	{
+		long sequence;
+		synchronized(this)
+		{
+			sequence = appended;
+		}
+		await(sequence);
+	}
+
+	/*
+		Returns the number of bytes in the current journal file, including buffered records
+	 */
+	synchronized long size()
+	{
+		return size;
+	}
+
+	synchronized long generation()
+	{
+		return generation;
+	}
+
+	/*
+		Syncs the buffered records and continues in the file of the next generation.
+		The caller makes sure that no records are appended meanwhile.
+	 */
+	void rotate() throws IOException
+	{
+		flush();
+		synchronized(io)
+		{
+			channel.close();
+			FileChannel next = open(directory, generation + 1);
+			synchronized(this)
+			{
+				channel = next;
+				generation++;
+				size = 0;
+			}
+		}
+	}
+
+	@Override public void close() throws IOException
+	{
+		synchronized(this)
+		{
+			if(closed) return;
+			closed = true;
+			notifyAll();
+		}
+		try
+		{
+			flusher.join();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		synchronized(io)
+		{
+			channel.close();
+		}
+		synchronized(this)
+		{
+			if(failure != null) throw failure;
+		}
+	}
+
+	private synchronized void await(long sequence)
+	{
+		if(synced < sequence && requested < sequence)
+		{
+			requested = sequence;
+			notifyAll();
+		}
+		while(synced < sequence && failure == null)
+		{
+			try
+			{
+				wait();
+			}
+			catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the journal", ex);
+			}
+		}
+		checkFailure();
+	}
+
+	private void checkFailure()
+	{
+		if(failure != null)
+		{
+			throw new UncheckedIOException("Journal failed", failure);
+		}
+	}
+
+	/*
+		Writes and syncs the buffered records in batches until the journal is closed. With a positive interval,
+		a batch is written when the interval since the previous sync has passed, or earlier if a thread waits for it.
+	 */
+	private void flushLoop()
+	{
+		long lastSync = System.nanoTime() - syncIntervalNanos;
+		while(true)
+		{
+			ByteArrayOutputStream batch;
+			long sequence;
+			synchronized(this)
+			{
+				try
+				{
+					while(!closed && requested <= synced)
+					{
+						if(pending.size() == 0)
+						{
+							wait();
+							continue;
+						}
+						long remaining = lastSync + syncIntervalNanos - System.nanoTime();
+						if(remaining <= 0) break;
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					}
+				}
+				catch(InterruptedException ex)
+				{
+					return;
+				}
+				if(pending.size() == 0)
+				{
+					if(closed) return;
+					continue;
+				}
+
+				batch = pending;
+				sequence = appended;
+				pending = new ByteArrayOutputStream(Math.max(1 << 16, batch.size()));
+			}
+
+			try
+			{
+				synchronized(io)
+				{
+					ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+					while(buffer.hasRemaining())
+					{
+						channel.write(buffer);
+					}
+					channel.force(false);
+				}
+			}
+			catch(IOException ex)
+			{
+				synchronized(this)
+				{
+					failure = ex;
+					notifyAll();
+				}
+				return;
+			}
+
+			lastSync = System.nanoTime();
+			synchronized(this)
+			{
+				synced = sequence;
+				notifyAll();
+			}
+		}
+	}
+
+	private static void writeInt(ByteArrayOutputStream output, int value)
+	{
+		output.write(value >>> 24);
+		output.write(value >>> 16);
+		output.write(value >>> 8);
+		output.write(value);
+	}
+
+	private static FileChannel open(Path directory, long generation) throws IOException
+	{
+		return FileChannel.open(file(directory, generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+	}
+}
@@ -0,0 +1,589 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Implements interface {@link Graph} by keeping a write-ahead journal of the mutations of another graph,
+ * so that the graph can be recovered after a restart.
+ *
+ * Added vertices and edges and weight updates are appended to a checksummed journal in a directory.
+ * The journal is synced in batches: with a sync interval of zero each mutation returns once its record
+ * is synced, sharing the sync with concurrent mutations; with a positive interval mutations return at once
+ * and the records of up to that interval may be lost on a crash. When the journal grows over a threshold,
+ * a compact snapshot of the graph is written in the background and the journal before it is deleted.
+ * A failure of a background snapshot is thrown by the next mutation or by {@link #close()}.
+ * Mutations after the graph is closed throw {@link IllegalStateException}.
+ *
+ * Opening a directory loads the latest snapshot into the given empty graph and replays only the journal
+ * written after it. A record torn by a crash ends the last journal and is discarded; a corrupt record in an earlier
+ * journal fails the opening, and the files are left as they are.
+ * Only edges of classes {@link Edge} and {@link WeighedEdge} can be journaled.
+ *
+ * @param <V> defines the type of the object associated with a vertex
+ * @param <T> defines the type of the edge. A subclass of {@link Edge}
+ */
+public final class JournaledGraph<V, T extends Edge> implements Graph<V, T>, Closeable
+{
+	private static final byte ADD_VERTEX = 1;
+	private static final byte ADD_EDGE = 2;
+	private static final byte UPDATE_WEIGHT = 3;
+	private static final int SNAPSHOT_MAGIC = 0x47534E50;
+	private static final String SNAPSHOT = "snapshot";
+	private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+	private static final long DEFAULT_SNAPSHOT_THRESHOLD = 64L << 20;
+
+	private final Graph<V, T> graph;
+	private final Path directory;
+	private final PayloadCodec<V> codec;
+	private final long snapshotThreshold;
+	private final Journal journal;
+	// Serializes the mutations with their records, so that the journal replays them in the same order
+	private final Object mutations = new Object();
+	private final Object snapshots = new Object();
+	private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+	private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "graph-snapshot");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicReference<UncheckedIOException> snapshotFailure = new AtomicReference<>();
+	// Set while an applied function is in memory only, guarded by mutations
+	private boolean applyPending;
+
+	private JournaledGraph(Path directory, Graph<V, T> graph, PayloadCodec<V> codec, long syncIntervalMillis,
+			long snapshotThreshold) throws IOException
+	{
+		this.graph = graph;
+		this.directory = directory;
+		this.codec = codec;
+		this.snapshotThreshold = snapshotThreshold;
+
+		Files.createDirectories(directory);
+		Path snapshot = directory.resolve(SNAPSHOT);
+		long generation = Files.exists(snapshot) ? readSnapshot(snapshot) : 1;
+		long last = generation;
+		List<Long> journaled = generations(directory);
+		for(int i = 0; i < journaled.size(); i++)
+		{
+			if(journaled.get(i) >= generation)
+			{
+				// Only the last journal may end with a record torn by a crash; the earlier ones were synced in full
+				Journal.replay(Journal.file(directory, journaled.get(i)), this::replay, i == journaled.size() - 1);
+				last = journaled.get(i);
+			}
+		}
+		this.journal = new Journal(directory, last, syncIntervalMillis);
+		deleteJournals(generation);
+	}
+
+	/**
+	 * Opens the journal in the directory and recovers the graph from it.
+	 * Mutations are synced every 10 milliseconds, and a snapshot is taken for every 64 MB of journal.
+	 * @param directory directory of the journal, created if it does not exist
+	 * @param graph an empty graph to recover into and to keep in memory
+	 * @param codec codec of the objects associated with vertices
+	 * @return an instance of journaled graph
+	 * @throws UncheckedIOException if the journal cannot be read or written
+	 */
+	public static <V, T extends Edge> JournaledGraph<V, T> open(Path directory, Graph<V, T> graph, PayloadCodec<V> codec)
+	{
+		return open(directory, graph, codec, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_THRESHOLD);
+	}
+
+	/**
+	 * Opens the journal in the directory and recovers the graph from it
+	 * @param directory directory of the journal, created if it does not exist
+	 * @param graph an empty graph to recover into and to keep in memory
+	 * @param codec codec of the objects associated with vertices
+	 * @param syncIntervalMillis interval between syncs of the journal, or 0 to make each mutation wait for its sync
+	 * @param snapshotThreshold size of the journal in bytes that triggers a snapshot
+	 * @return an instance of journaled graph
+	 * @throws UncheckedIOException if the journal cannot be read or written
+	 */
+	public static <V, T extends Edge> JournaledGraph<V, T> open(Path directory, Graph<V, T> graph, PayloadCodec<V> codec,
+			long syncIntervalMillis, long snapshotThreshold)
+	{
+		if(!graph.getVertices().isEmpty() || !graph.getEdges().isEmpty())
+		{
+			throw new IllegalArgumentException("Unable to open journal: the graph is not empty.");
+		}
+		if(syncIntervalMillis < 0 || snapshotThreshold <= 0)
+		{
+			throw new IllegalArgumentException("Unable to open journal: invalid sync interval " + syncIntervalMillis
+					+ " or snapshot threshold " + snapshotThreshold + ".");
+		}
+		try
+		{
+			return new JournaledGraph<>(directory, graph, codec, syncIntervalMillis, snapshotThreshold);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Unable to open journal in " + directory, ex);
+		}
+	}
+
+	@Override public int addVertex(V o)
+	{
+		byte[] bytes = o == null ? null : codec.encode(o);
+		int id;
+		long sequence;
+		synchronized(mutations)
+		{
+			checkWritable();
+			id = graph.addVertex(o);
+			sequence = journal.append(ADD_VERTEX, output -> writeBytes(output, bytes));
+		}
+		committed(sequence);
+		return id;
+	}
+
+	/**
+	 * Adds an edge and journals it
+	 * @param edge an instance of {@link Edge} or {@link WeighedEdge}
+	 * @throws IllegalArgumentException if the edge is of another class
+	 */
+	@Override public void addEdge(T edge)
+	{
+		if(edge.getClass() != Edge.class && edge.getClass() != WeighedEdge.class)
+		{
+			throw new IllegalArgumentException("Unable to add edge: " + edge.getClass().getName() + " cannot be journaled.");
+		}
+		long sequence;
+		synchronized(mutations)
+		{
+			checkWritable();
+			graph.addEdge(edge);
+			sequence = journal.append(ADD_EDGE, output -> writeEdge(output, edge));
+		}
+		committed(sequence);
+	}
+
+	@Override public void updateWeight(int from, int to, float weight)
+	{
+		long sequence;
+		synchronized(mutations)
+		{
+			checkWritable();
+			graph.updateWeight(from, to, weight);
+			sequence = journal.append(UPDATE_WEIGHT, output -> {
+				output.writeInt(from);
+				output.writeInt(to);
+				output.writeFloat(weight);
+			});
+		}
+		committed(sequence);
+	}
+
+	@Override public ShortestPathTree<T> addShortestPathTree(int source)
+	{
+		return graph.addShortestPathTree(source);
+	}
+
+	@Override public void removeShortestPathTree(ShortestPathTree<T> tree)
+	{
+		graph.removeShortestPathTree(tree);
+	}
+
+	@Override public List<T> getPath(int from, int to)
+	{
+		return graph.getPath(from, to);
+	}
+
+	@Override public List<T> getPath(int from, int to, GraphPathFinder<T> finder)
+	{
+		return graph.getPath(from, to, finder);
+	}
+
+	@Override public List<T> getPath(int from, int to, Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		return graph.getPath(from, to, edgeFilter, vertexFilter);
+	}
+
+	@Override public V getVertex(int id)
+	{
+		return graph.getVertex(id);
+	}
+
+	@Override public List<V> getVertices()
+	{
+		return graph.getVertices();
+	}
+
+	@Override public List<T> getEdges()
+	{
+		return graph.getEdges();
+	}
+
+	/**
+	 * Applies a function to each vertex and takes a snapshot of the graph,
+	 * since functions cannot be journaled. Mutations are blocked until the snapshot is written,
+	 * so the function is durable once this method returns, and a crash before that recovers the graph
+	 * as it was before the function, without any later mutation.
+	 * If the snapshot cannot be written, mutations throw {@link IllegalStateException}
+	 * until {@link #snapshot()} succeeds.
+	 * @param function function that takes an object of type {@code V} and returns an object of the same type.
+	 * @throws UncheckedIOException if the snapshot cannot be written
+	 */
+	@Override public void apply(UnaryOperator<V> function)
+	{
+		synchronized(snapshots)
+		{
+			synchronized(mutations)
+			{
+				checkWritable();
+				applyPending = true;
+				graph.apply(function);
+				snapshotLocked();
+			}
+		}
+	}
+
+	@Override public GraphSubscription<V, T> subscribe()
+	{
+		return graph.subscribe();
+	}
+
+	@Override public FrozenGraph<V, T> freeze()
+	{
+		return graph.freeze();
+	}
+
+	/**
+	 * Waits until all mutations are synced to the journal
+	 * @throws UncheckedIOException if the journal cannot be written
+	 */
+	public void flush()
+	{
+		journal.flush();
+	}
+
+	/**
+	 * Writes a snapshot of the graph and deletes the journal written before it.
+	 * Mutations are blocked only while the graph is copied.
+	 * @throws UncheckedIOException if the snapshot cannot be written
+	 */
+	public void snapshot()
+	{
+		synchronized(snapshots)
+		{
+			try
+			{
+				List<V> vertices;
+				List<T> edges;
+				long generation;
+				synchronized(mutations)
+				{
+					journal.rotate();
+					generation = journal.generation();
+					vertices = graph.getVertices();
+					edges = graph.getEdges();
+				}
+				writeSnapshot(generation, vertices, edges);
+				synchronized(mutations)
+				{
+					applyPending = false;
+				}
+				deleteJournals(generation);
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException("Unable to write snapshot in " + directory, ex);
+			}
+		}
+	}
+
+	/*
+		Writes a snapshot of the graph without releasing the mutations, so that no mutation is journaled
+		after a change that is not; the caller holds both snapshots and mutations
+	 */
+	private void snapshotLocked()
+	{
+		try
+		{
+			journal.rotate();
+			long generation = journal.generation();
+			writeSnapshot(generation, graph.getVertices(), graph.getEdges());
+			applyPending = false;
+			deleteJournals(generation);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Unable to write snapshot in " + directory, ex);
+		}
+	}
+
+	/**
+	 * Syncs the journal and closes it. The graph stays in memory, but cannot be mutated any more.
+	 * @throws UncheckedIOException if the journal or a background snapshot cannot be written
+	 */
+	@Override public void close()
+	{
+		snapshotWriter.shutdown();
+		try
+		{
+			snapshotWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		try
+		{
+			journal.close();
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Unable to close journal in " + directory, ex);
+		}
+		UncheckedIOException failure = snapshotFailure.getAndSet(null);
+		if(failure != null) throw failure;
+	}
+
+	/**
+	 * Returns a string representation of the graph
+	 * @return string representation of the graph
+	 */
+	public String toString()
+	{
+		return graph.toString();
+	}
+
+	/*
+		Throws an exception before a mutation if the journal is closed or failed, if a background snapshot failed,
+		or if an applied function is not in a snapshot yet.
+		A snapshot failure is reported once; the journal is kept, and the next snapshot is scheduled as usual.
+	 */
+	private void checkWritable()
+	{
+		journal.checkWritable();
+		if(applyPending)
+		{
+			throw new IllegalStateException("Unable to mutate graph: an applied function is not in a snapshot yet.");
+		}
+		UncheckedIOException failure = snapshotFailure.getAndSet(null);
+		if(failure != null) throw failure;
+	}
+
+	/*
+		Waits for the record to be synced and schedules a snapshot if the journal has grown over the threshold
+	 */
+	private void committed(long sequence)
+	{
+		journal.commit(sequence);
+		if(journal.size() >= snapshotThreshold && snapshotScheduled.compareAndSet(false, true))
+		{
+			snapshotWriter.execute(() -> {
+				try
+				{
+					snapshot();
+				}
+				catch(UncheckedIOException ex)
+				{
+					// The journal is kept until a snapshot succeeds, so nothing is lost
+					snapshotFailure.set(ex);
+				}
+				finally
+				{
+					snapshotScheduled.set(false);
+				}
+			});
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void replay(byte type, DataInputStream input) throws IOException
+	{
+		try
+		{
+			switch(type)
+			{
+				case ADD_VERTEX:
+					graph.addVertex(readVertex(input));
+					break;
+				case ADD_EDGE:
+					graph.addEdge((T) readEdge(input));
+					break;
+				case UPDATE_WEIGHT:
+					graph.updateWeight(input.readInt(), input.readInt(), input.readFloat());
+					break;
+				default:
+					throw new IOException("Unknown journal record type " + type);
+			}
+		}
+		catch(IllegalArgumentException ex)
+		{
+			throw new IOException("Journal record cannot be replayed", ex);
+		}
+	}
+
+	/*
+		Writes the graph with the generation of the journal following it to a temporary file,
+		and replaces the previous snapshot with it
+	 */
+	private void writeSnapshot(long generation, List<V> vertices, List<T> edges) throws IOException
+	{
+		Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+		try(FileOutputStream file = new FileOutputStream(temporary.toFile()))
+		{
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+			DataOutputStream output = new DataOutputStream(checked);
+			output.writeInt(SNAPSHOT_MAGIC);
+			output.writeLong(generation);
+			output.writeInt(vertices.size());
+			for(V vertex : vertices)
+			{
+				writeBytes(output, vertex == null ? null : codec.encode(vertex));
+			}
+			output.writeInt(edges.size());
+			for(T edge : edges)
+			{
+				writeEdge(output, edge);
+			}
+			output.writeInt((int) checked.getChecksum().getValue());
+			output.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory();
+	}
+
+	/*
+		Loads the snapshot into the graph and returns the generation of the journal following it
+	 */
+	@SuppressWarnings("unchecked")
+	private long readSnapshot(Path snapshot) throws IOException
+	{
+		try(CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16), new CRC32()))
+		{
+			DataInputStream input = new DataInputStream(checked);
+			if(input.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a graph snapshot: " + snapshot);
+
+			long generation = input.readLong();
+			int vertexCount = input.readInt();
+			for(int i = 0; i < vertexCount; i++)
+			{
+				graph.addVertex(readVertex(input));
+			}
+			int edgeCount = input.readInt();
+			for(int i = 0; i < edgeCount; i++)
+			{
+				graph.addEdge((T) readEdge(input));
+			}
+			int checksum = (int) checked.getChecksum().getValue();
+			if(input.readInt() != checksum) throw new IOException("Snapshot checksum mismatch: " + snapshot);
+			return generation;
+		}
+	}
+
+	private V readVertex(DataInputStream input) throws IOException
+	{
+		int length = input.readInt();
+		if(length < 0) return null;
+
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return codec.decode(bytes);
+	}
+
+	private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException
+	{
+		if(bytes == null)
+		{
+			output.writeInt(-1);
+			return;
+		}
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static void writeEdge(DataOutputStream output, Edge edge) throws IOException
+	{
+		output.writeInt(edge.getFrom());
+		output.writeInt(edge.getTo());
+		boolean weighed = edge instanceof WeighedEdge;
+		output.writeBoolean(weighed);
+		if(weighed) output.writeFloat(((WeighedEdge) edge).getWeight());
+	}
+
+	private static Edge readEdge(DataInputStream input) throws IOException
+	{
+		int from = input.readInt();
+		int to = input.readInt();
+		return input.readBoolean() ? new WeighedEdge(from, to, input.readFloat()) : new Edge(from, to);
+	}
+
+	/*
+		Returns the generations of the journal files in the directory in ascending order
+	 */
+	private static List<Long> generations(Path directory) throws IOException
+	{
+		List<Long> generations = new ArrayList<>();
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal.*"))
+		{
+			for(Path file : files)
+			{
+				String name = file.getFileName().toString();
+				try
+				{
+					generations.add(Long.parseLong(name.substring(name.indexOf('.') + 1)));
+				}
+				catch(NumberFormatException ignored)
+				{
+					// Not a journal file
+				}
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	private void deleteJournals(long before) throws IOException
+	{
+		for(long generation : generations(directory))
+		{
+			if(generation < before) Files.deleteIfExists(Journal.file(directory, generation));
+		}
+	}
+
+	/*
+		Makes the renamed snapshot durable; not supported on every platform
+	 */
+	private void syncDirectory()
+	{
+		try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch(IOException ignored)
+		{
+			// The rename is durable with the next sync of the file system
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Implements Yen's algorithm of finding the k shortest loopless paths on internal IDs of a {@link FrozenGraph}.
+ *
+ * Each path after the first one is the cheapest of candidates made of a root, which is a prefix of an already
+ * found path, and a spur path from the end of the root that avoids the root vertices and the edges by which
+ * the found paths with the same root continue. With Lawler's improvement, spur paths are searched only from
+ * the vertices where the last found path deviated from its predecessor onwards.
+ *
+ * The shortest path tree towards the target is computed once per query. Since removing vertices and edges
+ * cannot make distances shorter, its distances are an exact lower bound for the A* spur searches,
+ * and its tree path is taken as the spur path without a search whenever it avoids the removed vertices and edges.
+ */
+final class KShortestPaths
+{
+	private final FrozenGraph<?, ?> graph;
+	private final int target;
+	// Distances to the target and the next edge of a shortest path to it, in the whole graph
+	private final float[] toTarget;
+	private final int[] nextEdges;
+	// Arrays of the spur search; an element is valid if its stamp equals the current one
+	private final float[] distances;
+	private final int[] parentEdges;
+	private final int[] reached;
+	private final int[] blocked;
+	private final IndexedMinHeap heap;
+	private final IntList blockedEdges = new IntList(8);
+	// Differs from the initial zeros of the stamped arrays
+	private int stamp = 1;
+
+	private KShortestPaths(FrozenGraph<?, ?> graph, int target)
+	{
+		int vertexCount = graph.getVertexCount();
+		this.graph = graph;
+		this.target = target;
+		this.nextEdges = new int[vertexCount + 1];
+		this.toTarget = Landmarks.distances(graph, target, true, nextEdges, null);
+		this.distances = new float[vertexCount + 1];
+		this.parentEdges = new int[vertexCount + 1];
+		this.reached = new int[vertexCount + 1];
+		this.blocked = new int[vertexCount + 1];
+		this.heap = new IndexedMinHeap(vertexCount);
+	}
+
+	/*
+		Returns up to k paths as edge indices, ordered by weight. Vertices are given by internal IDs.
+	 */
+	static List<IntList> find(FrozenGraph<?, ?> graph, int from, int to, int k)
+	{
+		List<IntList> result = new ArrayList<>();
+		if(from == to) return result;
+
+		KShortestPaths search = new KShortestPaths(graph, to);
+		if(search.toTarget[from] == Float.POSITIVE_INFINITY) return result;
+
+		List<Candidate> found = new ArrayList<>();
+		PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.<Candidate>comparingDouble(path -> path.weight)
+				.thenComparingInt(path -> path.edges.length));
+		Set<Candidate> known = new HashSet<>();
+		Candidate first = search.toCandidate(new int[0], search.treePath(from), 0);
+		known.add(first);
+		found.add(first);
+		while(found.size() < k)
+		{
+			search.addCandidates(found, candidates, known);
+			if(candidates.isEmpty()) break;
+			found.add(candidates.poll());
+		}
+
+		for(Candidate path : found)
+		{
+			IntList edges = new IntList(path.edges.length);
+			for(int edge : path.edges)
+			{
+				edges.add(edge);
+			}
+			result.add(edges);
+		}
+		return result;
+	}
+
+	/*
+		Adds the candidates deviating from the last found path at each of its vertices from its own deviation on
+	 */
+	private void addCandidates(List<Candidate> found, PriorityQueue<Candidate> candidates, Set<Candidate> known)
+	{
+		Candidate last = found.get(found.size() - 1);
+		for(int i = last.deviation; i < last.edges.length; i++)
+		{
+			int spur = graph.source(last.edges[i]);
+			stamp++;
+			for(int j = 0; j < i; j++)
+			{
+				blocked[graph.source(last.edges[j])] = stamp;
+			}
+			blockedEdges.clear();
+			for(Candidate path : found)
+			{
+				if(path.edges.length > i && sharesRoot(path, last, i)) blockedEdges.add(path.edges[i]);
+			}
+
+			IntList spurPath = spurPath(spur);
+			if(spurPath == null) continue;
+
+			Candidate candidate = toCandidate(Arrays.copyOf(last.edges, i), spurPath, i);
+			if(known.add(candidate)) candidates.add(candidate);
+		}
+	}
+
+	private static boolean sharesRoot(Candidate path, Candidate other, int length)
+	{
+		for(int j = length - 1; j >= 0; j--)
+		{
+			if(path.edges[j] != other.edges[j]) return false;
+		}
+		return true;
+	}
+
+	/*
+		Returns the shortest path from the spur vertex to the target avoiding blocked vertices and edges, or null
+	 */
+	private IntList spurPath(int spur)
+	{
+		if(!isBlockedEdge(nextEdges[spur]))
+		{
+			IntList path = treePath(spur);
+			if(path != null) return path;
+		}
+
+		heap.clear();
+		reached[spur] = stamp;
+		distances[spur] = 0;
+		heap.push(spur, toTarget[spur]);
+		while(!heap.isEmpty())
+		{
+			int u = heap.poll();
+			if(u == target) return searchPath(spur);
+
+			for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+			{
+				int x = graph.target(e);
+				if(blocked[x] == stamp || toTarget[x] == Float.POSITIVE_INFINITY || !graph.allows(e)) continue;
+				if(u == spur && isBlockedEdge(e)) continue;
+
+				float distance = distances[u] + graph.weight(e);
+				if(reached[x] != stamp || distance < distances[x])
+				{
+					reached[x] = stamp;
+					distances[x] = distance;
+					parentEdges[x] = e;
+					heap.push(x, distance + toTarget[x]);
+				}
+			}
+		}
+		return null;
+	}
+
+	/*
+		Returns the path along the shortest path tree to the target, or null if it passes a blocked vertex
+	 */
+	private IntList treePath(int vertex)
+	{
+		IntList path = new IntList(16);
+		for(int u = vertex; u != target; u = graph.target(nextEdges[u]))
+		{
+			if(blocked[u] == stamp) return null;
+			path.add(nextEdges[u]);
+		}
+		return path;
+	}
+
+	private IntList searchPath(int spur)
+	{
+		IntList path = new IntList(16);
+		for(int u = target; u != spur; u = graph.source(parentEdges[u]))
+		{
+			path.add(parentEdges[u]);
+		}
+		path.reverse();
+		return path;
+	}
+
+	private boolean isBlockedEdge(int edge)
+	{
+		for(int i = 0; i < blockedEdges.size(); i++)
+		{
+			if(blockedEdges.get(i) == edge) return true;
+		}
+		return false;
+	}
+
+	private Candidate toCandidate(int[] root, IntList spurPath, int deviation)
+	{
+		int[] edges = Arrays.copyOf(root, root.length + spurPath.size());
+		for(int i = 0; i < spurPath.size(); i++)
+		{
+			edges[root.length + i] = spurPath.get(i);
+		}
+		float weight = 0;
+		for(int edge : edges)
+		{
+			weight += graph.weight(edge);
+		}
+		return new Candidate(edges, weight, deviation);
+	}
+
+	/*
+		A found or candidate path: edge indices, the total weight, and the index of the edge where it deviates
+		from the path it was derived from
+	 */
+	private static final class Candidate
+	{
+		private final int[] edges;
+		private final float weight;
+		private final int deviation;
+
+		private Candidate(int[] edges, float weight, int deviation)
+		{
+			this.edges = edges;
+			this.weight = weight;
+			this.deviation = deviation;
+		}
+
+		@Override public boolean equals(Object o)
+		{
+			return o instanceof Candidate && Arrays.equals(edges, ((Candidate) o).edges);
+		}
+
+		@Override public int hashCode()
+		{
+			return Arrays.hashCode(edges);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package graph;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements the ALT algorithm (A*, landmarks and triangle inequality) of finding the shortest path
+ * between two vertices of a {@link FrozenGraph}. Does not require coordinates of vertices.
+ *
+ * At creation, the finder selects a number of landmarks and computes distances from and to each of them.
+ * The search is the Dijkstra algorithm guided by lower bounds of the distance to the target derived
+ * from the landmark distances, so that it settles fewer vertices.
+ *
+ * The preprocessing takes one or two shortest path tree computations per landmark, which run on
+ * the specified number of threads where possible. The landmark distances take
+ * {@code 4 * (vertices + 1) * landmarks} bytes for undirected graphs, and twice as much for directed ones;
+ * see {@link #landmarkCountFor(FrozenGraph, long)} to fit them into a memory budget.
+ *
+ * The finder can be used by several threads concurrently.
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class LandmarkPathFinder<T extends Edge> implements GraphPathFinder<T>
+{
+	private final FrozenGraph<?, T> graph;
+	private final Landmarks landmarks;
+	private final ShortestPathSearch search;
+
+	/**
+	 * Creates a finder using all available processors for the preprocessing
+	 * @param graph an instance of frozen graph with non-negative weights
+	 * @param landmarkCount the number of landmarks
+	 * @param selection the landmark selection strategy
+	 */
+	public LandmarkPathFinder(FrozenGraph<?, T> graph, int landmarkCount, LandmarkSelection selection)
+	{
+		this(graph, landmarkCount, selection, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a finder using the specified number of threads for the preprocessing
+	 * @param graph an instance of frozen graph with non-negative weights
+	 * @param landmarkCount the number of landmarks
+	 * @param selection the landmark selection strategy
+	 * @param parallelism the number of threads computing landmark distances
+	 */
+	public LandmarkPathFinder(FrozenGraph<?, T> graph, int landmarkCount, LandmarkSelection selection, int parallelism)
+	{
+		this.graph = graph;
+		this.landmarks = Landmarks.build(graph, landmarkCount, selection, parallelism);
+		this.search = new ShortestPathSearch(graph, landmarks);
+	}
+
+	/**
+	 * Returns the greatest number of landmarks whose distances fit into the specified memory
+	 * @param graph an instance of frozen graph
+	 * @param memoryBytes the memory available for landmark distances, in bytes
+	 * @return the number of landmarks
+	 */
+	public static int landmarkCountFor(FrozenGraph<?, ?> graph, long memoryBytes)
+	{
+		return Landmarks.countFor(graph, memoryBytes);
+	}
+
+	/**
+	 * The finder works on the frozen graph, so the transition map is not used.
+	 * @param transitionMap an instance of transition map
+	 */
+	@Override public void setTransitionMap(Map<Integer, List<T>> transitionMap)
+	{
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to}
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return a list of edges, or an empty list if no path is found
+	 */
+	@Override public List<T> find(int from, int to)
+	{
+		return graph.toPath(search.find(from, to));
+	}
+
+	/**
+	 * Returns the shortest path connecting vertices with IDs {@code from} and {@code to} as a compact path
+	 * @param from first vertex ID
+	 * @param to last vertex ID
+	 * @return the found path, empty if no path is found
+	 */
+	@Override public Path<T> findPath(int from, int to)
+	{
+		return graph.toCompactPath(search.find(from, to));
+	}
+
+	/**
+	 * Returns IDs of the selected landmarks
+	 * @return an array of vertex IDs
+	 */
+	public int[] getLandmarks()
+	{
+		return landmarks.vertices(graph);
+	}
+
+	/**
+	 * Returns the memory taken by the landmark distances
+	 * @return the number of bytes
+	 */
+	public long getLandmarkMemory()
+	{
+		return landmarks.memoryBytes();
+	}
+
+	/*
+		Returns the number of vertices settled by the last search in the current thread
+	 */
+	int lastSettledCount()
+	{
+		return search.lastSettledCount();
+	}
+}
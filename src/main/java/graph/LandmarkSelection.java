@@ -0,0 +1,21 @@
+package graph;
+
+/**
+ * Defines how landmarks are selected by {@link LandmarkPathFinder}.
+ */
+public enum LandmarkSelection
+{
+	/**
+	 * Each next landmark is the vertex farthest from the landmarks selected before.
+	 * Requires one shortest path tree computation per landmark.
+	 */
+	FARTHEST,
+
+	/**
+	 * Each next landmark is a leaf of the shortest path tree of a random root, in the subtree
+	 * where the current landmarks give the worst lower bounds.
+	 * Usually gives better bounds than {@link #FARTHEST} at the cost of a few more
+	 * shortest path tree computations.
+	 */
+	AVOID
+}
@@ -0,0 +1,354 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the distances between landmarks and all vertices of a {@link FrozenGraph}
+ * and computes lower bounds of distances by the triangle inequality:
+ * d(v, t) &gt;= d(L, t) - d(L, v) and d(v, t) &gt;= d(v, L) - d(t, L) for each landmark L.
+ *
+ * The distances are kept in {@code float} arrays ordered by vertex, so that the distances
+ * of a vertex to all landmarks are adjacent in memory. For undirected graphs, the distances
+ * from and to a landmark are the same and are kept once.
+ */
+final class Landmarks
+{
+	private final int count;
+	// Internal IDs of the landmarks
+	private final int[] vertices;
+	// d(L_i, v) at index v * count + i
+	private final float[] fromLandmarks;
+	// d(v, L_i) at index v * count + i; the same array as fromLandmarks for undirected graphs
+	private final float[] toLandmarks;
+
+	private Landmarks(int[] vertices, float[] fromLandmarks, float[] toLandmarks)
+	{
+		this.count = vertices.length;
+		this.vertices = vertices;
+		this.fromLandmarks = fromLandmarks;
+		this.toLandmarks = toLandmarks;
+	}
+
+	/**
+	 * Selects landmarks and computes their distances
+	 * @param graph an instance of frozen graph with non-negative weights
+	 * @param count the number of landmarks
+	 * @param selection the landmark selection strategy
+	 * @param parallelism the number of threads computing the distances
+	 * @return an instance of landmarks
+	 */
+	static Landmarks build(FrozenGraph<?, ?> graph, int count, LandmarkSelection selection, int parallelism)
+	{
+		int vertexCount = graph.getVertexCount();
+		if(count < 0)
+		{
+			throw new IllegalArgumentException("Landmark count must not be negative: " + count);
+		}
+		if(parallelism < 1)
+		{
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		graph.checkNonNegativeWeights("compute landmarks");
+		int landmarkCount = Math.min(count, vertexCount);
+
+		float[] fromLandmarks = new float[(vertexCount + 1) * landmarkCount];
+		float[] toLandmarks = graph.isDirected() ? new float[fromLandmarks.length] : fromLandmarks;
+		Selector selector = new Selector(graph, landmarkCount, fromLandmarks, toLandmarks, selection == LandmarkSelection.AVOID);
+		int[] vertices = selection == LandmarkSelection.AVOID ? selector.selectAvoid() : selector.selectFarthest();
+
+		if(graph.isDirected())
+		{
+			// The selection computes the distances from landmarks; the distances to landmarks are independent of each other
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try
+			{
+				pool.submit(() -> IntStream.range(0, landmarkCount).parallel().filter(i -> !selector.hasDistancesTo(i))
+						.forEach(i -> store(distances(graph, vertices[i], true, null, null), toLandmarks, landmarkCount, i))).get();
+			}
+			catch(InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Landmark computation interrupted", ex);
+			}
+			catch(ExecutionException ex)
+			{
+				throw new IllegalStateException("Landmark computation failed", ex.getCause());
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+		return new Landmarks(vertices, fromLandmarks, toLandmarks);
+	}
+
+	/**
+	 * Returns the number of landmarks that fit into the specified memory
+	 * @param graph an instance of frozen graph
+	 * @param memoryBytes the memory available for landmark distances
+	 * @return the number of landmarks
+	 */
+	static int countFor(FrozenGraph<?, ?> graph, long memoryBytes)
+	{
+		long perLandmark = (long) Float.BYTES * (graph.getVertexCount() + 1) * (graph.isDirected() ? 2 : 1);
+		return (int) Math.min(graph.getVertexCount(), memoryBytes / perLandmark);
+	}
+
+	int count()
+	{
+		return count;
+	}
+
+	/*
+		Returns IDs of the landmarks in the source graph
+	 */
+	int[] vertices(FrozenGraph<?, ?> graph)
+	{
+		int[] ids = new int[count];
+		for(int i = 0; i < count; i++)
+		{
+			ids[i] = graph.external(vertices[i]);
+		}
+		return ids;
+	}
+
+	long memoryBytes()
+	{
+		long bytes = (long) Float.BYTES * fromLandmarks.length;
+		return toLandmarks == fromLandmarks ? bytes : 2 * bytes;
+	}
+
+	/*
+		Copies the distances of the target, given by internal ID, to the landmarks into the arrays of length count()
+	 */
+	void prepare(int target, float[] targetFrom, float[] targetTo)
+	{
+		System.arraycopy(fromLandmarks, target * count, targetFrom, 0, count);
+		System.arraycopy(toLandmarks, target * count, targetTo, 0, count);
+	}
+
+	/*
+		Returns a lower bound of the distance from the vertex to the target prepared by prepare().
+		Returns infinity if the landmarks prove that the target is not reachable from the vertex.
+		Terms with both distances infinite are NaN and are ignored by the comparison.
+	 */
+	float lowerBound(int vertex, float[] targetFrom, float[] targetTo)
+	{
+		float bound = 0;
+		int offset = vertex * count;
+		for(int i = 0; i < count; i++)
+		{
+			float forward = targetFrom[i] - fromLandmarks[offset + i];
+			if(forward > bound) bound = forward;
+			float backward = toLandmarks[offset + i] - targetTo[i];
+			if(backward > bound) bound = backward;
+		}
+		return bound;
+	}
+
+	private static void store(float[] distances, float[] landmarkDistances, int count, int landmark)
+	{
+		for(int v = 0; v < distances.length; v++)
+		{
+			landmarkDistances[v * count + landmark] = distances[v];
+		}
+	}
+
+	/*
+		Computes distances from the source to all vertices, or from all vertices to the source if backward.
+		Vertices are given by internal IDs.
+		Optionally records the edge to the parent in the shortest path tree and the order of settled vertices.
+	 */
+	static float[] distances(FrozenGraph<?, ?> graph, int source, boolean backward, int[] parentEdges, IntList order)
+	{
+		int vertexCount = graph.getVertexCount();
+		float[] distances = new float[vertexCount + 1];
+		Arrays.fill(distances, Float.POSITIVE_INFINITY);
+		IndexedMinHeap heap = new IndexedMinHeap(vertexCount);
+		distances[source] = 0;
+		heap.push(source, 0);
+		if(parentEdges != null) parentEdges[source] = -1;
+		while(!heap.isEmpty())
+		{
+			float distance = heap.peekKey();
+			int u = heap.poll();
+			if(order != null) order.add(u);
+			int start = backward ? graph.inEdgeStart(u) : graph.edgeStart(u);
+			int end = backward ? graph.inEdgeEnd(u) : graph.edgeEnd(u);
+			for(int i = start; i < end; i++)
+			{
+				int edge = backward ? graph.inEdge(i) : i;
+				if(!graph.allows(edge)) continue;
+
+				int x = backward ? graph.source(edge) : graph.target(edge);
+				float candidate = distance + graph.weight(edge);
+				if(candidate < distances[x])
+				{
+					distances[x] = candidate;
+					if(parentEdges != null) parentEdges[x] = edge;
+					heap.push(x, candidate);
+				}
+			}
+		}
+		return distances;
+	}
+
+	/*
+		Selects landmarks one by one, storing the distances from each selected landmark.
+	 */
+	private static final class Selector
+	{
+		private final FrozenGraph<?, ?> graph;
+		private final int count;
+		private final int vertexCount;
+		private final float[] fromLandmarks;
+		private final float[] toLandmarks;
+		private final int[] selected;
+		private final boolean[] landmarks;
+		// Whether the distances to each landmark are computed during the selection
+		private final boolean eagerDistancesTo;
+		private final boolean[] distancesTo;
+		private final Random random = new Random(0);
+		// The minimal distance from the selected landmarks to each vertex
+		private final float[] nearest;
+		private int size;
+
+		private Selector(FrozenGraph<?, ?> graph, int count, float[] fromLandmarks, float[] toLandmarks, boolean eagerDistancesTo)
+		{
+			this.eagerDistancesTo = eagerDistancesTo && graph.isDirected();
+			this.graph = graph;
+			this.count = count;
+			this.vertexCount = graph.getVertexCount();
+			this.fromLandmarks = fromLandmarks;
+			this.toLandmarks = toLandmarks;
+			this.selected = new int[count];
+			this.landmarks = new boolean[vertexCount + 1];
+			this.distancesTo = new boolean[count];
+			this.nearest = new float[vertexCount + 1];
+			Arrays.fill(nearest, Float.POSITIVE_INFINITY);
+		}
+
+		private boolean hasDistancesTo(int landmark)
+		{
+			return distancesTo[landmark];
+		}
+
+		private int[] selectFarthest()
+		{
+			if(count == 0) return selected;
+
+			// The first landmark is the vertex farthest from a random vertex
+			float[] distances = distances(graph, 1 + random.nextInt(vertexCount), false, null, null);
+			add(farthest(distances));
+			while(size < count)
+			{
+				add(farthest(nearest));
+			}
+			return selected;
+		}
+
+		private int[] selectAvoid()
+		{
+			int[] parentEdges = new int[vertexCount + 1];
+			float[] weights = new float[vertexCount + 1];
+			boolean[] covered = new boolean[vertexCount + 1];
+			IntList order = new IntList(vertexCount);
+			while(size < count)
+			{
+				int root = 1 + random.nextInt(vertexCount);
+				order.clear();
+				float[] distances = distances(graph, root, false, parentEdges, order);
+
+				// The weight of a vertex is the difference between its distance and the current lower bound
+				float[] rootFrom = new float[size];
+				float[] rootTo = new float[size];
+				System.arraycopy(fromLandmarks, root * count, rootFrom, 0, size);
+				System.arraycopy(toLandmarks, root * count, rootTo, 0, size);
+				Arrays.fill(weights, 0);
+				System.arraycopy(landmarks, 0, covered, 0, landmarks.length);
+
+				// Subtree sizes are accumulated in the reverse order of settling; subtrees with a landmark get size 0
+				for(int i = order.size() - 1; i >= 0; i--)
+				{
+					int v = order.get(i);
+					weights[v] += distances[v] - reverseLowerBound(v, rootFrom, rootTo);
+					if(covered[v]) weights[v] = 0;
+					if(v != root)
+					{
+						int parent = graph.source(parentEdges[v]);
+						weights[parent] += weights[v];
+						covered[parent] |= covered[v];
+					}
+				}
+
+				int leaf = root;
+				while(true)
+				{
+					int next = 0;
+					for(int e = graph.edgeStart(leaf); e < graph.edgeEnd(leaf); e++)
+					{
+						int x = graph.target(e);
+						if(parentEdges[x] == e && x != root && weights[x] > 0 && (next == 0 || weights[x] > weights[next])) next = x;
+					}
+					if(next == 0) break;
+					leaf = next;
+				}
+				add(landmarks[leaf] ? farthest(nearest) : leaf);
+			}
+			return selected;
+		}
+
+		/*
+			Lower bound of d(root, v) by the landmarks selected so far, with the root distances given
+		 */
+		private float reverseLowerBound(int v, float[] rootFrom, float[] rootTo)
+		{
+			float bound = 0;
+			for(int i = 0; i < size; i++)
+			{
+				float forward = fromLandmarks[v * count + i] - rootFrom[i];
+				if(forward > bound) bound = forward;
+				float backward = rootTo[i] - toLandmarks[v * count + i];
+				if(backward > bound) bound = backward;
+			}
+			return bound;
+		}
+
+		private void add(int landmark)
+		{
+			int index = size++;
+			selected[index] = landmark;
+			landmarks[landmark] = true;
+			float[] distances = distances(graph, landmark, false, null, null);
+			store(distances, fromLandmarks, count, index);
+			for(int v = 1; v <= vertexCount; v++)
+			{
+				nearest[v] = Math.min(nearest[v], distances[v]);
+			}
+			if(eagerDistancesTo && size < count)
+			{
+				// The next selection uses the bounds of this landmark, so its distances are needed now
+				store(distances(graph, landmark, true, null, null), toLandmarks, count, index);
+				distancesTo[index] = true;
+			}
+		}
+
+		/*
+			Returns the vertex with the greatest distance, preferring vertices not reached at all
+		 */
+		private int farthest(float[] distances)
+		{
+			int farthest = 0;
+			for(int v = 1; v <= vertexCount; v++)
+			{
+				if(landmarks[v]) continue;
+				if(farthest == 0 || distances[v] > distances[farthest]) farthest = v;
+			}
+			return farthest;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the objects associated with vertices encoded in direct byte buffers outside of the Java heap,
+ * and a bounded number of recently used decoded objects in a LRU cache.
+ *
+ * Encoded objects are appended to segments of 16 MB; a larger object gets a segment of its own.
+ * The index holds the location and the length of the encoded object of each vertex, also off the heap.
+ * An entry of the index and the bytes it refers to are never overwritten, so that a snapshot only keeps
+ * the current index and segments, without copying them.
+ *
+ * {@link #apply(UnaryOperator)} writes the replaced objects compactly into a new index and new segments.
+ * The old ones are released as soon as no snapshot refers to them, so repeated applications do not grow
+ * the memory outside of the heap.
+ */
+final class OffHeapVertexStore<V> implements VertexStore<V>
+{
+	private static final int SEGMENT_SIZE = 1 << 24;
+	// Location as segment and offset, and length of the encoded object
+	private static final int ENTRY_SIZE = 12;
+	private static final int NULL_LENGTH = -1;
+	// The index is a single buffer, whose capacity is an int
+	private static final int MAX_SIZE = Integer.MAX_VALUE / ENTRY_SIZE;
+
+	private final PayloadCodec<V> codec;
+	private final int maxSize;
+	private final LinkedHashMap<Long, V> cache;
+	private Segments segments = new Segments(0);
+	private ByteBuffer index;
+	private volatile int size;
+
+	OffHeapVertexStore(PayloadCodec<V> codec, int cacheSize)
+	{
+		this(codec, cacheSize, MAX_SIZE);
+	}
+
+	/*
+		Takes the maximal number of vertices, at most the number of entries which fit into the index
+	 */
+	OffHeapVertexStore(PayloadCodec<V> codec, int cacheSize, int maxSize)
+	{
+		if(cacheSize < 0)
+		{
+			throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+		}
+		this.codec = codec;
+		this.maxSize = Math.min(maxSize, MAX_SIZE);
+		// Decoded objects by location, so that snapshots share the cache with the store
+		this.cache = new LinkedHashMap<Long, V>(16, 0.75f, true)
+		{
+			@Override protected boolean removeEldestEntry(Map.Entry<Long, V> eldest)
+			{
+				return size() > cacheSize;
+			}
+		};
+		this.index = ByteBuffer.allocateDirect(Math.min(1024, this.maxSize) * ENTRY_SIZE);
+	}
+
+	@Override public int add(V vertex)
+	{
+		byte[] bytes = vertex == null ? null : codec.encode(vertex);
+		synchronized(this)
+		{
+			if(size >= maxSize)
+			{
+				throw new IllegalStateException("Unable to add vertex: the number of vertices exceeds " + maxSize);
+			}
+			int id = size + 1;
+			// Positions in the index fit into an int, since the number of vertices is limited
+			if(id * ENTRY_SIZE > index.capacity())
+			{
+				ByteBuffer larger = ByteBuffer.allocateDirect((int) Math.min(2L * index.capacity(), (long) maxSize * ENTRY_SIZE));
+				larger.put((ByteBuffer) index.duplicate().clear());
+				index = (ByteBuffer) larger.clear();
+			}
+			put(index, segments, id, vertex, bytes);
+			size = id;
+			return id;
+		}
+	}
+
+	@Override public V get(int id)
+	{
+		ByteBuffer currentIndex;
+		Segments currentSegments;
+		synchronized(this)
+		{
+			currentIndex = index;
+			currentSegments = segments;
+		}
+		return load(currentIndex, currentSegments, id);
+	}
+
+	@Override public int size()
+	{
+		return size;
+	}
+
+	@Override public synchronized void apply(UnaryOperator<V> function)
+	{
+		ByteBuffer replacedIndex = ByteBuffer.allocateDirect(index.capacity());
+		// The numbers of the new segments follow the old ones, so that the locations in the cache stay unique
+		Segments replacedSegments = new Segments(segments.base + segments.buffers.size());
+		for(int id = 1; id <= size; id++)
+		{
+			V vertex = function.apply(load(index, segments, id));
+			put(replacedIndex, replacedSegments, id, vertex, vertex == null ? null : codec.encode(vertex));
+		}
+		index = replacedIndex;
+		segments = replacedSegments;
+	}
+
+	/*
+		Returns a view of the objects through the current index and segments, whose first entries are never overwritten
+	 */
+	@Override public synchronized List<V> snapshot()
+	{
+		int count = size;
+		ByteBuffer snapshotIndex = index;
+		Segments snapshotSegments = segments;
+		return new AbstractList<V>()
+		{
+			@Override public V get(int index)
+			{
+				if(index < 0 || index >= count)
+				{
+					throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+				}
+				return load(snapshotIndex, snapshotSegments, index + 1);
+			}
+
+			@Override public int size()
+			{
+				return count;
+			}
+		};
+	}
+
+	/*
+		Returns the number of decoded objects in the cache
+	 */
+	synchronized int cachedCount()
+	{
+		return cache.size();
+	}
+
+	/*
+		Returns the number of segments referenced by the store
+	 */
+	synchronized int segmentCount()
+	{
+		return segments.buffers.size();
+	}
+
+	/*
+		Reads the entry of the index under the lock, and decodes the object outside of it
+	 */
+	private V load(ByteBuffer index, Segments segments, int id)
+	{
+		long location;
+		byte[] bytes;
+		synchronized(this)
+		{
+			location = index.getLong((id - 1) * ENTRY_SIZE);
+			int length = index.getInt((id - 1) * ENTRY_SIZE + 8);
+			if(length == NULL_LENGTH) return null;
+
+			V cached = cache.get(location);
+			if(cached != null) return cached;
+
+			bytes = new byte[length];
+			ByteBuffer segment = segments.buffers.get((int) (location >>> 32) - segments.base).duplicate();
+			segment.position((int) location);
+			segment.get(bytes);
+		}
+		V vertex = codec.decode(bytes);
+		synchronized(this)
+		{
+			cache.put(location, vertex);
+		}
+		return vertex;
+	}
+
+	/*
+		Appends the encoded object to the last segment and writes its entry to the index
+	 */
+	private void put(ByteBuffer index, Segments segments, int id, V vertex, byte[] bytes)
+	{
+		int position = (id - 1) * ENTRY_SIZE;
+		if(bytes == null)
+		{
+			index.putLong(position, 0L);
+			index.putInt(position + 8, NULL_LENGTH);
+			return;
+		}
+
+		// Each object takes at least one byte, so that locations are unique
+		int space = Math.max(1, bytes.length);
+		List<ByteBuffer> buffers = segments.buffers;
+		ByteBuffer segment = buffers.isEmpty() ? null : buffers.get(buffers.size() - 1);
+		if(segment == null || segment.remaining() < space)
+		{
+			segment = ByteBuffer.allocateDirect(Math.max(SEGMENT_SIZE, space));
+			buffers.add(segment);
+		}
+		long location = (long) (segments.base + buffers.size() - 1) << 32 | segment.position();
+		segment.put(bytes);
+		segment.position(segment.position() + space - bytes.length);
+
+		index.putLong(position, location);
+		index.putInt(position + 8, bytes.length);
+		cache.put(location, vertex);
+	}
+
+	/*
+		Segments written between two applications of a function, numbered from base
+	 */
+	private static final class Segments
+	{
+		private final int base;
+		private final List<ByteBuffer> buffers = new ArrayList<>();
+
+		private Segments(int base)
+		{
+			this.base = base;
+		}
+	}
+}
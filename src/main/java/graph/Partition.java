@@ -0,0 +1,302 @@
+package graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage of one partition of a {@link PartitionedGraph}: the vertices assigned to the partition
+ * and the edges leaving them. Each partition has its own lock, so that partitions are updated
+ * and searched independently.
+ *
+ * A partition also keeps the state of the searches passing through it, that is, the edge by which
+ * each of its vertices was reached, until the search is released. A search which is neither expanded
+ * nor traced for a minute is dropped, so that a coordinator failing before the release leaks nothing.
+ */
+final class Partition
+{
+	private final Map<Integer, Object> vertices = new HashMap<>();
+	private final Map<Integer, List<Edge>> edges = new HashMap<>();
+	// Reverse arcs of undirected edges starting in other partitions
+	private final Map<Integer, List<Edge>> reverseArcs = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private static final long SEARCH_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private final Map<Long, SearchTree> searches = new ConcurrentHashMap<>();
+	private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+	void addVertex(int id, Object vertex)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			vertices.put(id, vertex);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	void addEdge(Edge edge, boolean reverseArc)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			(reverseArc ? reverseArcs : edges).computeIfAbsent(edge.getFrom(), from -> new ArrayList<>(4)).add(edge);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+		Sets the weight of the edges and reverse arcs from one vertex to another, and returns a copy of one of them
+		in the direction it was added, or null if there are none
+	 */
+	Edge updateWeight(int from, int to, float weight)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			List<Edge> found = new ArrayList<>();
+			for(Map<Integer, List<Edge>> arcs : Arrays.asList(edges, reverseArcs))
+			{
+				for(Edge edge : arcs.getOrDefault(from, Collections.emptyList()))
+				{
+					if(edge.getTo() != to) continue;
+					if(!(edge instanceof WeighedEdge))
+					{
+						throw new IllegalArgumentException("Unable to update weight: edge " + edge + " is not weighed.");
+					}
+					found.add(edge);
+				}
+			}
+			found.forEach(edge -> ((WeighedEdge) edge).setWeight(weight));
+			if(found.isEmpty()) return null;
+			// Edges precede reverse arcs, which are reversed back
+			Edge edge = found.get(0);
+			return reverseArcs.getOrDefault(from, Collections.emptyList()).contains(edge) ? edge.reverse() : edge.copy();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	void apply(UnaryOperator<Object> function)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			vertices.replaceAll((id, vertex) -> function.apply(vertex));
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	Object vertex(int id)
+	{
+		lock.readLock().lock();
+		try
+		{
+			return vertices.get(id);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	HashMap<Integer, Object> vertices()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return new HashMap<>(vertices);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	ArrayList<Edge> edges(boolean withReverseArcs)
+	{
+		lock.readLock().lock();
+		try
+		{
+			// Copies, so that the in-process transport returns edges not changed by later weight updates, as sockets do
+			ArrayList<Edge> copy = new ArrayList<>();
+			edges.values().forEach(arcs -> arcs.forEach(edge -> copy.add(edge.copy())));
+			if(withReverseArcs) reverseArcs.values().forEach(arcs -> arcs.forEach(edge -> copy.add(edge.copy())));
+			return copy;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+		Breadth-first expansion of a search inside the partition. Starts from the source vertex (if not 0)
+		and the vertices reached by the arrival edges, and follows the edges as long as they stay inside
+		the partition. Edges leading to other partitions form the boundary frontier of the result.
+	 */
+	Expansion expand(long search, int source, List<Edge> arrivals, int target)
+	{
+		Map<Integer, Edge> parents = use(searches.computeIfAbsent(search, key -> new SearchTree()));
+		ArrayList<Edge> boundary = new ArrayList<>();
+		Set<Integer> boundaryVertices = new HashSet<>();
+		IntList queue = new IntList(16);
+
+		// A search is expanded by one thread at a time, but not always by the same one
+		synchronized(parents)
+		{
+			lock.readLock().lock();
+			try
+			{
+				if(source != 0 && !parents.containsKey(source))
+				{
+					parents.put(source, null);
+					queue.add(source);
+				}
+				for(Edge edge : arrivals)
+				{
+					if(!parents.containsKey(edge.getTo()))
+					{
+						parents.put(edge.getTo(), edge);
+						queue.add(edge.getTo());
+					}
+				}
+
+				for(int head = 0; head < queue.size(); head++)
+				{
+					int u = queue.get(head);
+					if(u == target) return new Expansion(true, new ArrayList<>());
+
+					visit(edges.getOrDefault(u, Collections.emptyList()), parents, queue, boundary, boundaryVertices);
+					visit(reverseArcs.getOrDefault(u, Collections.emptyList()), parents, queue, boundary, boundaryVertices);
+				}
+				return new Expansion(false, boundary);
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+	private void visit(List<Edge> arcs, Map<Integer, Edge> parents, IntList queue, List<Edge> boundary, Set<Integer> boundaryVertices)
+	{
+		for(Edge edge : arcs)
+		{
+			int x = edge.getTo();
+			if(!vertices.containsKey(x))
+			{
+				if(boundaryVertices.add(x)) boundary.add(edge);
+			}
+			else if(!parents.containsKey(x))
+			{
+				parents.put(x, edge);
+				queue.add(x);
+			}
+		}
+	}
+
+	/*
+		Returns copies of the edges of the search tree leading to the vertex, in reverse order, up to the source
+		or up to the edge arriving from another partition
+	 */
+	ArrayList<Edge> trace(long search, int vertex)
+	{
+		ArrayList<Edge> path = new ArrayList<>();
+		SearchTree tree = searches.get(search);
+		Map<Integer, Edge> parents = tree == null ? Collections.emptyMap() : use(tree);
+		synchronized(parents)
+		{
+			lock.readLock().lock();
+			try
+			{
+				Edge edge = parents.get(vertex);
+				while(edge != null)
+				{
+					path.add(edge.copy());
+					if(!vertices.containsKey(edge.getFrom())) break;
+					edge = parents.get(edge.getFrom());
+				}
+				return path;
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+	void release(long search)
+	{
+		searches.remove(search);
+	}
+
+	int searchCount()
+	{
+		return searches.size();
+	}
+
+	/*
+		Marks the search used now and drops the searches unused for too long, at most once per timeout
+	 */
+	private Map<Integer, Edge> use(SearchTree tree)
+	{
+		long now = System.nanoTime();
+		tree.lastUsed = now;
+		long last = lastSweep.get();
+		if(now - last > SEARCH_TIMEOUT_NANOS && lastSweep.compareAndSet(last, now))
+		{
+			searches.values().removeIf(other -> now - other.lastUsed > SEARCH_TIMEOUT_NANOS);
+		}
+		return tree.parents;
+	}
+
+	/*
+		The edge by which each vertex of the partition was reached by a search
+	 */
+	private static final class SearchTree
+	{
+		final Map<Integer, Edge> parents = new HashMap<>();
+		volatile long lastUsed;
+	}
+
+	/*
+		The result of an expansion: whether the target was reached, and the edges leaving the partition
+	 */
+	static final class Expansion implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		final boolean found;
+		final ArrayList<Edge> boundary;
+
+		Expansion(boolean found, ArrayList<Edge> boundary)
+		{
+			this.found = found;
+			this.boundary = boundary;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A request to a {@link Partition}, sent by a {@link PartitionTransport}.
+ * Commands and their results are serializable, so that a partition can run in another process.
+ */
+abstract class PartitionCommand implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/*
+		Executes the command on the partition and returns a serializable result, or null
+	 */
+	abstract Object applyTo(Partition partition);
+
+	static final class AddVertex extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int id;
+		private final Object vertex;
+
+		AddVertex(int id, Object vertex)
+		{
+			this.id = id;
+			this.vertex = vertex;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			partition.addVertex(id, vertex);
+			return null;
+		}
+	}
+
+	static final class AddEdge extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Edge edge;
+		private final boolean reverseArc;
+
+		AddEdge(Edge edge, boolean reverseArc)
+		{
+			this.edge = edge;
+			this.reverseArc = reverseArc;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			partition.addEdge(edge, reverseArc);
+			return null;
+		}
+	}
+
+	static final class UpdateWeight extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final float weight;
+
+		UpdateWeight(int from, int to, float weight)
+		{
+			this.from = from;
+			this.to = to;
+			this.weight = weight;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.updateWeight(from, to, weight);
+		}
+	}
+
+	static final class Apply extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final UnaryOperator<Object> function;
+
+		Apply(UnaryOperator<Object> function)
+		{
+			this.function = function;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			partition.apply(function);
+			return null;
+		}
+	}
+
+	static final class GetVertex extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int id;
+
+		GetVertex(int id)
+		{
+			this.id = id;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.vertex(id);
+		}
+	}
+
+	static final class Vertices extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.vertices();
+		}
+	}
+
+	static final class Edges extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final boolean withReverseArcs;
+
+		Edges(boolean withReverseArcs)
+		{
+			this.withReverseArcs = withReverseArcs;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.edges(withReverseArcs);
+		}
+	}
+
+	static final class Expand extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long search;
+		private final int source;
+		private final ArrayList<Edge> arrivals;
+		private final int target;
+
+		Expand(long search, int source, List<Edge> arrivals, int target)
+		{
+			this.search = search;
+			this.source = source;
+			this.arrivals = new ArrayList<>(arrivals);
+			this.target = target;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.expand(search, source, arrivals, target);
+		}
+	}
+
+	static final class Trace extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long search;
+		private final int vertex;
+
+		Trace(long search, int vertex)
+		{
+			this.search = search;
+			this.vertex = vertex;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			return partition.trace(search, vertex);
+		}
+	}
+
+	static final class Release extends PartitionCommand
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final long search;
+
+		Release(long search)
+		{
+			this.search = search;
+		}
+
+		@Override Object applyTo(Partition partition)
+		{
+			partition.release(search);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.lang.invoke.SerializedLambda;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hosts one partition of a {@link PartitionedGraph} and serves requests of
+ * {@link PartitionTransport#connect(java.util.List) socket transports} on the loopback interface.
+ * Each connection is served by its own thread.
+ *
+ * A server can run in a separate JVM: {@code java graph.PartitionServer <port> [<class>...]}.
+ * The classes of vertex objects and edges must be on its class path.
+ *
+ * Requests are deserialized only into the classes of the commands, edges, boxed primitives, strings, lists,
+ * serializable lambdas and arrays of them, and into the classes allowed when the server is started,
+ * with their subclasses. A request containing any other class is rejected and its connection is closed,
+ * so that a local process cannot make the server instantiate arbitrary serializable classes.
+ */
+public final class PartitionServer implements Closeable
+{
+	private static final List<Class<?>> ALLOWED_CLASSES = Arrays.asList(PartitionCommand.class, Partition.Expansion.class,
+			Edge.class, String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+			Float.class, Double.class, Enum.class, ArrayList.class, SerializedLambda.class);
+
+	private final Partition partition = new Partition();
+	private final ServerSocket serverSocket;
+	private final List<Class<?>> allowedClasses;
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+	private final Thread acceptor;
+
+	private PartitionServer(ServerSocket serverSocket, List<Class<?>> allowedClasses)
+	{
+		this.serverSocket = serverSocket;
+		this.allowedClasses = allowedClasses;
+		this.acceptor = newThread(this::accept, "partition-server-" + serverSocket.getLocalPort());
+	}
+
+	/**
+	 * Starts a server listening on the loopback interface
+	 * @param port the port, or 0 for any free port
+	 * @param allowedClasses classes of vertex objects, classes declaring the functions passed to {@link Graph#apply}
+	 *                       and classes of the values captured by the functions, which requests may contain together
+	 *                       with their subclasses, in addition to the classes of the library, strings and boxed primitives
+	 * @return an instance of running server
+	 * @throws IllegalArgumentException if the port is out of range
+	 * @throws UncheckedIOException if the port cannot be bound
+	 */
+	public static PartitionServer start(int port, Class<?>... allowedClasses)
+	{
+		if(port < 0 || port > 0xFFFF)
+		{
+			throw new IllegalArgumentException("Unable to start partition server: port " + port + " is out of range.");
+		}
+		List<Class<?>> allowed = new ArrayList<>(ALLOWED_CLASSES);
+		allowed.addAll(Arrays.asList(allowedClasses));
+		ServerSocket serverSocket;
+		try
+		{
+			serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException("Unable to listen on port " + port, ex);
+		}
+		PartitionServer server = new PartitionServer(serverSocket, Collections.unmodifiableList(allowed));
+		server.acceptor.start();
+		return server;
+	}
+
+	/**
+	 * Runs a server in the current JVM until it is killed
+	 * @param args the port, followed by the names of the allowed classes
+	 * @throws InterruptedException if the main thread is interrupted
+	 * @throws IllegalArgumentException if the port is missing or invalid, or an allowed class is not on the class path
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		if(args.length < 1)
+		{
+			throw new IllegalArgumentException("Unable to start partition server: usage is PartitionServer <port> [<class>...]");
+		}
+		int port;
+		try
+		{
+			port = Integer.parseInt(args[0]);
+		}
+		catch(NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Unable to start partition server: port " + args[0] + " is not a number.");
+		}
+		Class<?>[] allowed = new Class<?>[args.length - 1];
+		for(int i = 1; i < args.length; i++)
+		{
+			try
+			{
+				allowed[i - 1] = Class.forName(args[i]);
+			}
+			catch(ClassNotFoundException ex)
+			{
+				throw new IllegalArgumentException("Unable to start partition server: class " + args[i] + " not found.");
+			}
+		}
+		PartitionServer server = start(port, allowed);
+		System.out.println("Partition server listening on " + server.getAddress());
+		server.acceptor.join();
+	}
+
+	/**
+	 * Returns the address the server listens on
+	 * @return the socket address
+	 */
+	public InetSocketAddress getAddress()
+	{
+		return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+	}
+
+	/**
+	 * Stops the server and closes its connections
+	 */
+	@Override public void close()
+	{
+		try
+		{
+			serverSocket.close();
+			for(Socket socket : sockets)
+			{
+				socket.close();
+			}
+		}
+		catch(IOException ignored)
+		{
+			// The threads stop as soon as their sockets are closed
+		}
+	}
+
+	private void accept()
+	{
+		while(!serverSocket.isClosed())
+		{
+			try
+			{
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				newThread(() -> serve(socket), "partition-connection-" + socket.getPort()).start();
+			}
+			catch(IOException ex)
+			{
+				// The server socket is closed
+			}
+		}
+	}
+
+	/*
+		Reads commands until the client disconnects. A failure of a command is sent back as the result,
+		while a request with a class which is not allowed closes the connection.
+	 */
+	private void serve(Socket socket)
+	{
+		try(ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream())))
+		{
+			output.flush();
+			ObjectInputStream input = new FilteringInputStream(new BufferedInputStream(socket.getInputStream()), allowedClasses);
+			while(true)
+			{
+				Object result;
+				try
+				{
+					result = ((PartitionCommand) input.readObject()).applyTo(partition);
+				}
+				catch(ClassNotFoundException | RuntimeException ex)
+				{
+					result = ex;
+				}
+				output.writeObject(result);
+				output.reset();
+				output.flush();
+			}
+		}
+		catch(EOFException ex)
+		{
+			// The client disconnected
+		}
+		catch(IOException ex)
+		{
+			// The connection is broken or the server is closed
+		}
+		finally
+		{
+			sockets.remove(socket);
+			close(socket);
+		}
+	}
+
+	private static void close(Socket socket)
+	{
+		try
+		{
+			socket.close();
+		}
+		catch(IOException ignored)
+		{
+			// The connection is closed anyway
+		}
+	}
+
+	private static Thread newThread(Runnable task, String name)
+	{
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/*
+		Resolves only the allowed classes, their subclasses and arrays of them, before any object of the class is created
+	 */
+	private static final class FilteringInputStream extends ObjectInputStream
+	{
+		private final List<Class<?>> allowedClasses;
+
+		private FilteringInputStream(InputStream input, List<Class<?>> allowedClasses) throws IOException
+		{
+			super(input);
+			this.allowedClasses = allowedClasses;
+		}
+
+		@Override protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException
+		{
+			Class<?> type = super.resolveClass(descriptor);
+			if(!isAllowed(type))
+			{
+				throw new InvalidClassException(descriptor.getName(), "Class is not allowed in partition requests");
+			}
+			return type;
+		}
+
+		@Override protected Class<?> resolveProxyClass(String[] interfaces) throws IOException
+		{
+			throw new InvalidClassException("Proxy classes are not allowed in partition requests");
+		}
+
+		private boolean isAllowed(Class<?> type)
+		{
+			while(type.isArray())
+			{
+				type = type.getComponentType();
+			}
+			// Number is resolved as the superclass of boxed primitives
+			if(type.isPrimitive() || type == Object.class || type == Number.class) return true;
+			for(Class<?> allowed : allowedClasses)
+			{
+				if(allowed.isAssignableFrom(type)) return true;
+			}
+			return false;
+		}
+	}
+}
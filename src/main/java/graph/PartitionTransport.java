@@ -0,0 +1,201 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers requests of a {@link PartitionedGraph} to its partitions.
+ *
+ * The in-process transport keeps all partitions in the current JVM. The socket transport connects
+ * to partitions hosted by {@link PartitionServer} instances, one partition per server, which may run
+ * in separate JVMs. Vertex objects, edges and functions passed to {@link Graph#apply} must then be
+ * serializable, and their classes allowed by the servers.
+ */
+public abstract class PartitionTransport implements Closeable
+{
+	PartitionTransport()
+	{
+	}
+
+	/**
+	 * Returns a transport keeping the partitions in the current JVM
+	 * @param partitionCount the number of partitions
+	 * @return an instance of transport
+	 */
+	public static PartitionTransport inProcess(int partitionCount)
+	{
+		if(partitionCount < 1)
+		{
+			throw new IllegalArgumentException("Partition count must be positive: " + partitionCount);
+		}
+		return new InProcess(partitionCount);
+	}
+
+	/**
+	 * Returns a transport connected to partition servers; the partition index is the index of the address
+	 * @param addresses addresses of the partition servers
+	 * @return an instance of transport
+	 * @throws UncheckedIOException if a server is not reachable
+	 */
+	public static PartitionTransport connect(List<InetSocketAddress> addresses)
+	{
+		if(addresses.isEmpty())
+		{
+			throw new IllegalArgumentException("At least one partition server is required.");
+		}
+		return new Sockets(addresses);
+	}
+
+	/**
+	 * Returns the number of partitions
+	 * @return the number of partitions
+	 */
+	public abstract int getPartitionCount();
+
+	/**
+	 * Releases the connections to the partitions
+	 */
+	@Override public void close()
+	{
+	}
+
+	/*
+		Executes the command on the partition and returns its result.
+		Can be called by several threads concurrently.
+	 */
+	abstract Object call(int partition, PartitionCommand command);
+
+	private static final class InProcess extends PartitionTransport
+	{
+		private final Partition[] partitions;
+
+		private InProcess(int partitionCount)
+		{
+			this.partitions = new Partition[partitionCount];
+			for(int i = 0; i < partitionCount; i++)
+			{
+				partitions[i] = new Partition();
+			}
+		}
+
+		@Override public int getPartitionCount()
+		{
+			return partitions.length;
+		}
+
+		@Override Object call(int partition, PartitionCommand command)
+		{
+			return command.applyTo(partitions[partition]);
+		}
+	}
+
+	/*
+		One connection per partition; calls to the same partition are serialized on the connection
+	 */
+	private static final class Sockets extends PartitionTransport
+	{
+		private final Connection[] connections;
+
+		private Sockets(List<InetSocketAddress> addresses)
+		{
+			List<Connection> opened = new ArrayList<>();
+			try
+			{
+				for(InetSocketAddress address : addresses)
+				{
+					opened.add(new Connection(address));
+				}
+			}
+			catch(IOException ex)
+			{
+				opened.forEach(Connection::close);
+				throw new UncheckedIOException("Unable to connect to partition server", ex);
+			}
+			this.connections = opened.toArray(new Connection[0]);
+		}
+
+		@Override public int getPartitionCount()
+		{
+			return connections.length;
+		}
+
+		@Override public void close()
+		{
+			for(Connection connection : connections)
+			{
+				connection.close();
+			}
+		}
+
+		@Override Object call(int partition, PartitionCommand command)
+		{
+			Object result = connections[partition].call(command);
+			if(result instanceof RuntimeException)
+			{
+				throw (RuntimeException) result;
+			}
+			if(result instanceof Throwable)
+			{
+				throw new IllegalStateException("Partition " + partition + " failed", (Throwable) result);
+			}
+			return result;
+		}
+	}
+
+	private static final class Connection
+	{
+		private final Socket socket;
+		private final ObjectOutputStream output;
+		private final ObjectInputStream input;
+
+		private Connection(InetSocketAddress address) throws IOException
+		{
+			this.socket = new Socket(address.getAddress(), address.getPort());
+			socket.setTcpNoDelay(true);
+			this.output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			output.flush();
+			this.input = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+		}
+
+		private synchronized Object call(PartitionCommand command)
+		{
+			try
+			{
+				output.writeObject(command);
+				// Objects are not shared between requests
+				output.reset();
+				output.flush();
+				return input.readObject();
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException("Unable to call partition server " + socket.getRemoteSocketAddress(), ex);
+			}
+			catch(ClassNotFoundException ex)
+			{
+				throw new IllegalStateException("Unknown class in the response of partition server", ex);
+			}
+		}
+
+		private void close()
+		{
+			try
+			{
+				socket.close();
+			}
+			catch(IOException ignored)
+			{
+				// Nothing to do with a connection that failed to close
+			}
+		}
+	}
+}
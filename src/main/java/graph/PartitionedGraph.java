@@ -0,0 +1,640 @@
+package graph;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Implements interface {@link Graph} over vertices split into partitions.
+ * Each partition stores its vertices and the edges leaving them, and has its own lock,
+ * so that updates and searches in different partitions do not contend.
+ *
+ * Vertices are assigned to partitions by a {@link GraphPartitioner}, by a hash of their IDs by default.
+ * Partitions are reached through a {@link PartitionTransport}: either all of them live in the current JVM,
+ * or each of them is hosted by a {@link PartitionServer}, possibly in a separate JVM.
+ *
+ * The path search is breadth-first and runs in rounds. In each round, the partitions of the frontier
+ * expand it in parallel as far as their own edges lead, and return the edges crossing to other partitions,
+ * which form the frontier of the next round. The found path has the fewest partition crossings,
+ * but is not necessarily the shortest one.
+ *
+ * The graph should be closed when no longer used, to release its threads and the transport.
+ * @param <V> defines the type of the object associated with a vertex
+ * @param <T> defines the type of the edge. A subclass of {@link Edge}
+ */
+public final class PartitionedGraph<V, T extends Edge> implements Graph<V, T>, Closeable
+{
+	private final PartitionTransport transport;
+	private final GraphPartitioner<V> partitioner;
+	private final boolean directed;
+	// Partition of a vertex which its partition failed to store; its ID is not reused
+	private static final int FAILED = -1;
+
+	// Partition of each vertex by ID, or FAILED; element 0 is unused
+	private final IntList partitions = new IntList(1024);
+	private final ExecutorService executor;
+	private final AtomicLong searchCounter = new AtomicLong(System.nanoTime());
+	private final ShortestPathTrees<T> trees = new ShortestPathTrees<>(this::freeze);
+	private final ChangeStream<V, T> changes = new ChangeStream<>();
+
+	private PartitionedGraph(PartitionTransport transport, GraphPartitioner<V> partitioner, boolean directed)
+	{
+		this.transport = transport;
+		this.partitioner = partitioner;
+		this.directed = directed;
+		this.partitions.add(0);
+		this.executor = Executors.newFixedThreadPool(transport.getPartitionCount(), task -> {
+			Thread thread = new Thread(task, "partitioned-graph");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns an instance of empty directed graph with partitions in the current JVM
+	 * @param partitionCount the number of partitions
+	 * @return an instance of directed graph
+	 */
+	public static <V, T extends Edge> PartitionedGraph<V, T> newDirected(int partitionCount)
+	{
+		return new PartitionedGraph<>(PartitionTransport.inProcess(partitionCount), GraphPartitioner.byHash(partitionCount), true);
+	}
+
+	/**
+	 * Returns an instance of empty undirected graph with partitions in the current JVM
+	 * @param partitionCount the number of partitions
+	 * @return an instance of undirected graph
+	 */
+	public static <V, T extends Edge> PartitionedGraph<V, T> newUndirected(int partitionCount)
+	{
+		return new PartitionedGraph<>(PartitionTransport.inProcess(partitionCount), GraphPartitioner.byHash(partitionCount), false);
+	}
+
+	/**
+	 * Returns an instance of empty directed graph with the specified partitions.
+	 * The partitions must be empty.
+	 * @param transport the transport to the partitions, owned by the graph afterwards
+	 * @param partitioner assigns vertices to partitions
+	 * @return an instance of directed graph
+	 */
+	public static <V, T extends Edge> PartitionedGraph<V, T> newDirected(PartitionTransport transport, GraphPartitioner<V> partitioner)
+	{
+		return new PartitionedGraph<>(transport, partitioner, true);
+	}
+
+	/**
+	 * Returns an instance of empty undirected graph with the specified partitions.
+	 * The partitions must be empty.
+	 * @param transport the transport to the partitions, owned by the graph afterwards
+	 * @param partitioner assigns vertices to partitions
+	 * @return an instance of undirected graph
+	 */
+	public static <V, T extends Edge> PartitionedGraph<V, T> newUndirected(PartitionTransport transport, GraphPartitioner<V> partitioner)
+	{
+		return new PartitionedGraph<>(transport, partitioner, false);
+	}
+
+	/**
+	 * Adds a vertex to the partition chosen by the partitioner.
+	 * Returns a unique ID of the vertex.
+	 * If the partition fails to store the vertex, its ID is not reused: the vertex is not found afterwards,
+	 * and the list returned by {@link #getVertices()} has {@code null} in its place.
+	 * @param o an instance of object of type {@code V} assigned to the added vertex
+	 * @return vertex ID
+	 */
+	@Override public int addVertex(V o)
+	{
+		int vertexID;
+		int partition;
+		long sequence;
+		synchronized(partitions)
+		{
+			vertexID = partitions.size();
+			partition = partitioner.partitionOf(vertexID, o);
+			if(partition < 0 || partition >= transport.getPartitionCount())
+			{
+				throw new IllegalArgumentException("Unable to add vertex: partition " + partition + " not found.");
+			}
+			partitions.add(partition);
+			// Claimed with the ID, in the order of the other mutations
+			sequence = changes.claim();
+		}
+		boolean added = false;
+		try
+		{
+			transport.call(partition, new PartitionCommand.AddVertex(vertexID, o));
+			added = true;
+			trees.invalidate();
+		}
+		finally
+		{
+			if(added)
+			{
+				changes.publish(sequence, GraphEvent.Type.VERTEX_ADDED, vertexID, o, null);
+			}
+			else
+			{
+				synchronized(partitions)
+				{
+					partitions.set(vertexID, FAILED);
+				}
+				changes.cancel(sequence);
+			}
+		}
+		return vertexID;
+	}
+
+	/**
+	 * Adds an edge to the partition of its start vertex.
+	 * For undirected graphs, the reverse arc is also added to the partition of the end vertex.
+	 * @param edge an instance of edge.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public void addEdge(T edge)
+	{
+		int fromPartition;
+		int toPartition;
+		long sequence;
+		// The event is copied only for subscriptions, before the edge is added
+		T copy = changes.hasSubscriptions() ? (T) edge.copy() : null;
+		synchronized(partitions)
+		{
+			fromPartition = partitionOf(edge.getFrom());
+			toPartition = partitionOf(edge.getTo());
+			if(fromPartition == FAILED || toPartition == FAILED)
+			{
+				throw new IllegalArgumentException("Unable to add edge: vertex " + edge.getFrom() + " or " + edge.getTo() + " not found." );
+			}
+			sequence = copy == null ? -1 : changes.claim();
+		}
+		boolean added = false;
+		try
+		{
+			transport.call(fromPartition, new PartitionCommand.AddEdge(edge, false));
+			if(!directed && edge.getFrom() != edge.getTo())
+			{
+				transport.call(toPartition, new PartitionCommand.AddEdge(edge.reverse(), true));
+			}
+			added = true;
+			trees.invalidate();
+		}
+		finally
+		{
+			if(added) changes.publish(sequence, GraphEvent.Type.EDGE_ADDED, 0, null, copy);
+			else changes.cancel(sequence);
+		}
+	}
+
+	/**
+	 * Sets the weight of the weighed edges connecting two vertices in their partitions,
+	 * in both directions for undirected graphs, and repairs the registered shortest path trees.
+	 * @param from ID of the start vertex of the edges
+	 * @param to ID of the end vertex of the edges
+	 * @param weight the new weight
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public void updateWeight(int from, int to, float weight)
+	{
+		long[] sequence = {-1};
+		Edge[] event = new Edge[1];
+		try
+		{
+			trees.updateWeight(from, to, weight, () -> {
+				int fromPartition;
+				int toPartition;
+				synchronized(partitions)
+				{
+					fromPartition = partitionOf(from);
+					toPartition = partitionOf(to);
+					if(fromPartition == FAILED || toPartition == FAILED)
+					{
+						throw new IllegalArgumentException("Unable to update weight: edge (" + from + "," + to + ") not found.");
+					}
+				}
+				// The partition of the start vertex holds the edge or the reverse arc of an undirected edge
+				Edge updated = (Edge) transport.call(fromPartition, new PartitionCommand.UpdateWeight(from, to, weight));
+				if(!directed && from != to)
+				{
+					Edge reverse = (Edge) transport.call(toPartition, new PartitionCommand.UpdateWeight(to, from, weight));
+					if(updated == null) updated = reverse == null ? null : reverse.reverse();
+				}
+				if(updated == null)
+				{
+					throw new IllegalArgumentException("Unable to update weight: edge (" + from + "," + to + ") not found.");
+				}
+				event[0] = updated;
+				sequence[0] = changes.claim();
+			});
+		}
+		finally
+		{
+			changes.publish(sequence[0], GraphEvent.Type.WEIGHT_UPDATED, 0, null, (T) event[0]);
+		}
+	}
+
+	/**
+	 * Registers a shortest path tree kept up to date with weight updates.
+	 * The tree is computed on a snapshot collected from all partitions.
+	 * @param source ID of the source vertex
+	 * @return an instance of shortest path tree
+	 */
+	@Override public ShortestPathTree<T> addShortestPathTree(int source)
+	{
+		return trees.add(source);
+	}
+
+	/**
+	 * Stops updating the shortest path tree
+	 * @param tree a tree registered with this graph
+	 */
+	@Override public void removeShortestPathTree(ShortestPathTree<T> tree)
+	{
+		trees.remove(tree);
+	}
+
+	/**
+	 * Returns an oriented path between two vertices with IDs {@code from} and {@code to},
+	 * found by the parallel breadth-first search across partitions.
+	 * The first edge starts at vertex with ID {@code from} and the last edge ends with the vertex with ID {@code to}.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @return a list of edges ordered along the path, or an empty list if no path is found.
+	 */
+	@Override public List<T> getPath(int from, int to)
+	{
+		int sourcePartition;
+		synchronized(partitions)
+		{
+			sourcePartition = partitionOf(from);
+			if(from == to || sourcePartition == FAILED || partitionOf(to) == FAILED) return Collections.emptyList();
+		}
+
+		long search = searchCounter.incrementAndGet();
+		Set<Integer> visitedPartitions = new HashSet<>();
+		RuntimeException failure = null;
+		try
+		{
+			Map<Integer, PartitionCommand> round = Collections.singletonMap(sourcePartition,
+					new PartitionCommand.Expand(search, from, Collections.emptyList(), to));
+			while(!round.isEmpty())
+			{
+				visitedPartitions.addAll(round.keySet());
+				Map<Integer, Partition.Expansion> expansions = callAll(round);
+				if(expansions.values().stream().anyMatch(expansion -> expansion.found))
+				{
+					return trace(search, from, to);
+				}
+				round = nextRound(search, expansions, to);
+			}
+			return Collections.emptyList();
+		}
+		catch(RuntimeException ex)
+		{
+			failure = ex;
+			throw ex;
+		}
+		finally
+		{
+			release(search, visitedPartitions, failure);
+		}
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}.
+	 * Allows to specify a user-defined path finder, which gets a transition map collected from all partitions.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param finder an instance of path finder
+	 * @return a list of edges ordered along the path.
+	 */
+	@Override public List<T> getPath(int from, int to, GraphPathFinder<T> finder)
+	{
+		finder.setTransitionMap(Collections.unmodifiableMap(collectArcs(true).stream().collect(Collectors.groupingBy(Edge::getFrom))));
+		return finder.find(from, to);
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, visiting only the vertices and edges
+	 * accepted by the filters. Since the filters cannot be sent to the partitions, the search runs
+	 * on a snapshot collected from all partitions.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param edgeFilter accepts the edges which the path may use, or {@code null} to accept all edges
+	 * @param vertexFilter accepts the IDs of the vertices which the path may visit, or {@code null} to accept all vertices
+	 * @return a list of edges ordered along the path, or an empty list if no path is found.
+	 */
+	@Override public List<T> getPath(int from, int to, Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		return freeze().getPath(from, to, edgeFilter, vertexFilter);
+	}
+
+	/**
+	 * Returns the object assigned to the vertex with the specified ID, requested from its partition only
+	 * @param id vertex ID
+	 * @return an object of type {@code V}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public V getVertex(int id)
+	{
+		int partition;
+		synchronized(partitions)
+		{
+			partition = partitionOf(id);
+			if(partition == FAILED)
+			{
+				throw new IllegalArgumentException("Vertex " + id + " not found.");
+			}
+		}
+		return (V) transport.call(partition, new PartitionCommand.GetVertex(id));
+	}
+
+	/**
+	 * Returns a snapshot of the graph's vertices collected from all partitions
+	 * @return a list of vertices
+	 */
+	@Override public List<V> getVertices()
+	{
+		return Collections.unmodifiableList(collectVertices());
+	}
+
+	/**
+	 * Returns a snapshot of the graph's edges collected from all partitions
+	 * @return a list of copies of the edges
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public List<T> getEdges()
+	{
+		return Collections.unmodifiableList(collectArcs(false).stream().map(Edge::copy).map(edge -> (T) edge)
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Applies the function to the vertices of all partitions in parallel.
+	 * With partitions in other processes, the function must be serializable.
+	 * The events of the replaced objects are published after all partitions have applied the function.
+	 * @param function function that takes an object of type {@code V} and returns an object of the same type.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public void apply(UnaryOperator<V> function)
+	{
+		PartitionCommand command = new PartitionCommand.Apply((UnaryOperator<Object>) function);
+		callAll(allPartitions(command));
+		if(changes.hasSubscriptions())
+		{
+			// Only the vertices whose IDs are claimed before the replaced objects get their events
+			int count;
+			long first;
+			synchronized(partitions)
+			{
+				count = partitions.size() - 1;
+				first = changes.claim(count);
+			}
+			List<V> replaced = collectVertices();
+			changes.publishReplaced(first, count, replaced.subList(0, Math.min(count, replaced.size())));
+		}
+	}
+
+	/**
+	 * Subscribes to the mutations of the graph made through this instance
+	 * @return a subscription with its own cursor
+	 */
+	@Override public GraphSubscription<V, T> subscribe()
+	{
+		return changes.subscribe();
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph.
+	 * The edges are collected before the vertices, so that every edge of the snapshot refers to a copied vertex.
+	 * @return an instance of {@link FrozenGraph}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public FrozenGraph<V, T> freeze()
+	{
+		List<T> arcs = collectArcs(true);
+		List<V> vertices = collectVertices();
+		List<T> copyOfArcs = arcs.stream()
+				.filter(edge -> edge.getFrom() <= vertices.size() && edge.getTo() <= vertices.size())
+				.map(Edge::copy).map(edge -> (T) edge)
+				.collect(Collectors.toList());
+		return FrozenGraph.ofArcs(vertices, copyOfArcs, directed);
+	}
+
+	/**
+	 * Returns the number of partitions
+	 * @return the number of partitions
+	 */
+	public int getPartitionCount()
+	{
+		return transport.getPartitionCount();
+	}
+
+	/**
+	 * Stops the search threads and closes the transport
+	 */
+	@Override public void close()
+	{
+		executor.shutdown();
+		transport.close();
+	}
+
+	/**
+	 * Returns a string representation of the graph
+	 * @return string representation of the graph
+	 */
+	public String toString()
+	{
+		return collectArcs(false).stream().map(Edge::toString).collect(Collectors.joining(","));
+	}
+
+	/*
+		Groups the edges crossing partitions by the partition of their end vertex
+	 */
+	private Map<Integer, PartitionCommand> nextRound(long search, Map<Integer, Partition.Expansion> expansions, int to)
+	{
+		Map<Integer, List<Edge>> arrivals = new HashMap<>();
+		synchronized(partitions)
+		{
+			for(Partition.Expansion expansion : expansions.values())
+			{
+				for(Edge edge : expansion.boundary)
+				{
+					arrivals.computeIfAbsent(partitions.get(edge.getTo()), p -> new ArrayList<>()).add(edge);
+				}
+			}
+		}
+		return arrivals.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+				entry -> new PartitionCommand.Expand(search, 0, entry.getValue(), to)));
+	}
+
+	/*
+		Releases the search in each partition it visited, even if releasing it in another one fails.
+		Failures are added to the failure of the search, if any, and thrown otherwise.
+	 */
+	private void release(long search, Set<Integer> visitedPartitions, RuntimeException failure)
+	{
+		PartitionCommand command = new PartitionCommand.Release(search);
+		RuntimeException releaseFailure = null;
+		for(int partition : visitedPartitions)
+		{
+			try
+			{
+				transport.call(partition, command);
+			}
+			catch(RuntimeException ex)
+			{
+				if(failure != null) failure.addSuppressed(ex);
+				else if(releaseFailure == null) releaseFailure = ex;
+				else releaseFailure.addSuppressed(ex);
+			}
+		}
+		if(releaseFailure != null) throw releaseFailure;
+	}
+
+	/*
+		Follows the search tree back from the target, one partition at a time
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> trace(long search, int from, int to)
+	{
+		List<T> path = new ArrayList<>();
+		int vertex = to;
+		while(vertex != from)
+		{
+			int partition;
+			synchronized(partitions)
+			{
+				partition = partitions.get(vertex);
+			}
+			List<Edge> segment = (List<Edge>) transport.call(partition, new PartitionCommand.Trace(search, vertex));
+			if(segment.isEmpty())
+			{
+				throw new IllegalStateException("Search tree is broken at vertex " + vertex);
+			}
+			segment.forEach(edge -> path.add((T) edge));
+			vertex = segment.get(segment.size() - 1).getFrom();
+		}
+		Collections.reverse(path);
+		return Collections.unmodifiableList(path);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<T> collectArcs(boolean withReverseArcs)
+	{
+		List<T> arcs = new ArrayList<>();
+		for(Object edges : callAll(allPartitions(new PartitionCommand.Edges(withReverseArcs))).values())
+		{
+			arcs.addAll((List<T>) edges);
+		}
+		return arcs;
+	}
+
+	/*
+		Returns the partition of the vertex, or FAILED if there is no such vertex; called holding the lock of the partitions
+	 */
+	private int partitionOf(int id)
+	{
+		return id < 1 || id >= partitions.size() ? FAILED : partitions.get(id);
+	}
+
+	/*
+		Collects vertices ordered by ID, with null in place of the vertices which their partitions failed to store.
+		Stops at the first vertex not stored yet by its partition, which is possible while vertices are being added.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<V> collectVertices()
+	{
+		Object[] vertices;
+		boolean[] present;
+		synchronized(partitions)
+		{
+			vertices = new Object[partitions.size() - 1];
+			present = new boolean[vertices.length];
+			for(int i = 0; i < vertices.length; i++)
+			{
+				present[i] = partitions.get(i + 1) == FAILED;
+			}
+		}
+		for(Object stored : callAll(allPartitions(new PartitionCommand.Vertices())).values())
+		{
+			for(Map.Entry<Integer, Object> entry : ((Map<Integer, Object>) stored).entrySet())
+			{
+				int index = entry.getKey() - 1;
+				if(index < vertices.length)
+				{
+					vertices[index] = entry.getValue();
+					present[index] = true;
+				}
+			}
+		}
+		int size = 0;
+		while(size < vertices.length && present[size])
+		{
+			size++;
+		}
+		List<V> list = new ArrayList<>(size);
+		Arrays.stream(vertices, 0, size).forEach(vertex -> list.add((V) vertex));
+		return list;
+	}
+
+	private Map<Integer, PartitionCommand> allPartitions(PartitionCommand command)
+	{
+		Map<Integer, PartitionCommand> commands = new HashMap<>();
+		for(int p = 0; p < transport.getPartitionCount(); p++)
+		{
+			commands.put(p, command);
+		}
+		return commands;
+	}
+
+	/*
+		Calls the partitions in parallel and returns their results by partition
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> Map<Integer, R> callAll(Map<Integer, PartitionCommand> commands)
+	{
+		Map<Integer, R> results = new HashMap<>();
+		if(commands.size() == 1)
+		{
+			Map.Entry<Integer, PartitionCommand> entry = commands.entrySet().iterator().next();
+			results.put(entry.getKey(), (R) transport.call(entry.getKey(), entry.getValue()));
+			return results;
+		}
+
+		Map<Integer, Future<Object>> futures = new HashMap<>();
+		commands.forEach((partition, command) -> futures.put(partition, executor.submit(() -> transport.call(partition, command))));
+		try
+		{
+			for(Map.Entry<Integer, Future<Object>> entry : futures.entrySet())
+			{
+				results.put(entry.getKey(), (R) entry.getValue().get());
+			}
+			return results;
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Partition call interrupted", ex);
+		}
+		catch(ExecutionException ex)
+		{
+			if(ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+			throw new IllegalStateException("Partition call failed", ex.getCause());
+		}
+	}
+}
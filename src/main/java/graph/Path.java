@@ -0,0 +1,142 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A path found in a graph, kept as the sequence of its vertex IDs with the total weight computed once.
+ * The edges of the path are looked up or created only when {@link #getEdges()} is accessed,
+ * so that callers needing only the vertices or the weight of a long path do not pay for edge objects.
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class Path<T extends Edge>
+{
+	private static final Path<?> EMPTY = new Path<>(new int[0], 0, index -> null);
+
+	private final int[] vertices;
+	private final float weight;
+	// Returns the edge at the position along the path
+	private final IntFunction<T> edges;
+
+	private Path(int[] vertices, float weight, IntFunction<T> edges)
+	{
+		this.vertices = vertices;
+		this.weight = weight;
+		this.edges = edges;
+	}
+
+	/*
+		Creates a path of the vertex IDs, which are owned by the path afterwards
+	 */
+	static <T extends Edge> Path<T> of(int[] vertices, float weight, IntFunction<T> edges)
+	{
+		return vertices.length < 2 ? empty() : new Path<>(vertices, weight, edges);
+	}
+
+	/*
+		Creates a path of the edges. The weight of an edge is the weight of WeighedEdge, or 1 for any other edge.
+	 */
+	static <T extends Edge> Path<T> of(List<T> edges)
+	{
+		if(edges.isEmpty()) return empty();
+
+		int[] vertices = new int[edges.size() + 1];
+		vertices[0] = edges.get(0).getFrom();
+		float weight = 0;
+		for(int i = 0; i < edges.size(); i++)
+		{
+			T edge = edges.get(i);
+			vertices[i + 1] = edge.getTo();
+			weight += edge instanceof WeighedEdge ? ((WeighedEdge) edge).getWeight() : 1.0f;
+		}
+		return new Path<>(vertices, weight, edges::get);
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T extends Edge> Path<T> empty()
+	{
+		return (Path<T>) EMPTY;
+	}
+
+	/**
+	 * Returns the number of edges of the path
+	 * @return the number of edges, 0 if no path is found
+	 */
+	public int length()
+	{
+		return Math.max(0, vertices.length - 1);
+	}
+
+	/**
+	 * Returns true if no path is found
+	 * @return true if the path has no edges
+	 */
+	public boolean isEmpty()
+	{
+		return vertices.length == 0;
+	}
+
+	/**
+	 * Returns the sum of the weights of the edges of the path
+	 * @return the total weight, 0 if no path is found
+	 */
+	public float getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * Returns the ID of a vertex of the path
+	 * @param index position along the path, from 0 for the first vertex to {@link #length()} for the last one
+	 * @return vertex ID
+	 */
+	public int getVertex(int index)
+	{
+		return vertices[index];
+	}
+
+	/**
+	 * Returns the IDs of the vertices of the path in order
+	 * @return an array of vertex IDs, empty if no path is found
+	 */
+	public int[] getVertices()
+	{
+		return vertices.clone();
+	}
+
+	/**
+	 * Returns the edges of the path in order. The list is a view: each access looks up the edge,
+	 * or creates it for graphs that do not keep edge objects.
+	 * @return an immutable list of edges
+	 */
+	public List<T> getEdges()
+	{
+		return new AbstractList<T>()
+		{
+			@Override public T get(int index)
+			{
+				if(index < 0 || index >= length())
+				{
+					throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length());
+				}
+				return edges.apply(index);
+			}
+
+			@Override public int size()
+			{
+				return length();
+			}
+		};
+	}
+
+	/**
+	 * Returns a string representation of the path
+	 * @return string representation of the path
+	 */
+	public String toString()
+	{
+		return Arrays.toString(vertices) + "|" + weight;
+	}
+}
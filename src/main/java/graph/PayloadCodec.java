@@ -0,0 +1,46 @@
+package graph;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts objects associated with vertices to bytes and back,
+ * so that a graph can keep them outside of the Java heap.
+ * Decoding the encoded bytes must give an object equal to the encoded one.
+ * @param <V> type of the object associated with a vertex
+ */
+public interface PayloadCodec<V>
+{
+	/**
+	 * Returns the bytes representing the object
+	 * @param vertex an object associated with a vertex
+	 * @return an array of bytes
+	 */
+	byte[] encode(V vertex);
+
+	/**
+	 * Returns the object represented by the bytes
+	 * @param bytes an array of bytes returned by {@link #encode(Object)}
+	 * @return an object associated with a vertex
+	 */
+	V decode(byte[] bytes);
+
+	/**
+	 * Returns a codec of strings in UTF-8
+	 * @return an instance of codec
+	 */
+	static PayloadCodec<String> utf8()
+	{
+		return new PayloadCodec<String>()
+		{
+			@Override public byte[] encode(String vertex)
+			{
+				return vertex.getBytes(StandardCharsets.UTF_8);
+			}
+
+			@Override public String decode(byte[] bytes)
+			{
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		};
+	}
+}
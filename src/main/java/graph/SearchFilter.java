@@ -0,0 +1,113 @@
+package graph;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Holds the filters of a view of a {@link FrozenGraph}, see {@link FrozenGraph#filter(Predicate, IntPredicate)}.
+ * The filters are evaluated by the searches of the view while they expand the edges, so that excluded
+ * vertices and edges are never visited and nothing is copied in advance.
+ *
+ * A vertex mask is translated to internal vertex IDs once, so that testing a vertex against it is a single bit test.
+ */
+final class SearchFilter<T extends Edge>
+{
+	// Vertices to keep by vertex ID, as given, and by internal ID; or null
+	private final BitSet vertexMask;
+	private final BitSet internalMask;
+	private final IntPredicate vertexFilter;
+	private final Predicate<? super T> edgeFilter;
+	// Vertex ID of each internal ID, or null if they are the same
+	private final int[] toExternal;
+
+	private SearchFilter(BitSet vertexMask, IntPredicate vertexFilter, Predicate<? super T> edgeFilter, int[] toExternal)
+	{
+		this.vertexMask = vertexMask;
+		this.vertexFilter = vertexFilter;
+		this.edgeFilter = edgeFilter;
+		this.toExternal = toExternal;
+		if(vertexMask == null || toExternal == null)
+		{
+			this.internalMask = vertexMask;
+		}
+		else
+		{
+			this.internalMask = new BitSet(toExternal.length);
+			for(int v = 1; v < toExternal.length; v++)
+			{
+				if(vertexMask.get(toExternal[v])) internalMask.set(v);
+			}
+		}
+	}
+
+	/*
+		Creates the filters of a snapshot with the mapping of internal IDs; any of the filters may be null.
+		The mask is owned by the filter afterwards.
+	 */
+	static <T extends Edge> SearchFilter<T> of(BitSet vertexMask, IntPredicate vertexFilter, Predicate<? super T> edgeFilter,
+			int[] toExternal)
+	{
+		return new SearchFilter<>(vertexMask, vertexFilter, edgeFilter, toExternal);
+	}
+
+	/*
+		Returns the filters which keep only what is kept by both this filter and the specified ones
+	 */
+	SearchFilter<T> and(BitSet mask, IntPredicate vertices, Predicate<? super T> edges)
+	{
+		BitSet combinedMask = mask;
+		if(vertexMask != null && mask != null)
+		{
+			combinedMask = (BitSet) vertexMask.clone();
+			combinedMask.and(mask);
+		}
+		else if(mask == null)
+		{
+			combinedMask = vertexMask;
+		}
+		return new SearchFilter<>(combinedMask, andVertices(vertexFilter, vertices), andEdges(edgeFilter, edges), toExternal);
+	}
+
+	/*
+		Returns the same filters for a snapshot with another mapping of internal IDs
+	 */
+	SearchFilter<T> withMapping(int[] toExternal)
+	{
+		return new SearchFilter<>(vertexMask, vertexFilter, edgeFilter, toExternal);
+	}
+
+	/*
+		Returns true if the vertex with the internal ID is kept
+	 */
+	boolean allowsVertex(int vertex)
+	{
+		if(internalMask != null && !internalMask.get(vertex)) return false;
+
+		return vertexFilter == null || vertexFilter.test(toExternal == null ? vertex : toExternal[vertex]);
+	}
+
+	/*
+		Returns true if the edge at the position of the list is kept. The edge is not read
+		if there is no edge filter, since reading the objects of the edges would slow down the searches of masks.
+	 */
+	boolean allowsEdge(List<T> edges, int edge)
+	{
+		return edgeFilter == null || edgeFilter.test(edges.get(edge));
+	}
+
+	private static IntPredicate andVertices(IntPredicate first, IntPredicate second)
+	{
+		if(first == null) return second;
+		if(second == null) return first;
+		return first.and(second);
+	}
+
+	private static <T> Predicate<T> andEdges(Predicate<? super T> first, Predicate<? super T> second)
+	{
+		if(first == null) return second == null ? null : second::test;
+		if(second == null) return first::test;
+		return edge -> first.test(edge) && second.test(edge);
+	}
+}
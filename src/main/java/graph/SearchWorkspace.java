@@ -0,0 +1,101 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Arrays of a graph search kept by each thread between searches, so that a search in a steady state
+ * allocates nothing but its result. The arrays grow to the largest vertex count seen by the thread,
+ * and vertices are marked with the epoch of the current search instead of clearing the marks.
+ *
+ * A workspace is borrowed for one search at a time; searches must not be nested in the same thread.
+ */
+final class SearchWorkspace
+{
+	private static final ThreadLocal<SearchWorkspace> WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+
+	private int[] visited = new int[1];
+	// Parent edge indices, or parent vertex IDs for searches on adjacency lists
+	private int[] parents = new int[1];
+	private int epoch;
+	private final IntList queue = new IntList(64);
+	private final IntList path = new IntList(64);
+
+	/*
+		Returns the workspace of the current thread prepared for a search of internal vertex IDs up to the count
+	 */
+	static SearchWorkspace borrow(int vertexCount)
+	{
+		SearchWorkspace workspace = WORKSPACES.get();
+		workspace.prepare(vertexCount);
+		return workspace;
+	}
+
+	boolean isVisited(int vertex)
+	{
+		return visited[vertex] == epoch;
+	}
+
+	/*
+		Marks the vertex visited; returns false if it is already visited by the current search
+	 */
+	boolean visit(int vertex)
+	{
+		if(visited[vertex] == epoch) return false;
+		visited[vertex] = epoch;
+		return true;
+	}
+
+	void setParentEdge(int vertex, int edge)
+	{
+		parents[vertex] = edge;
+	}
+
+	int parentEdge(int vertex)
+	{
+		return parents[vertex];
+	}
+
+	void setParentVertex(int vertex, int parent)
+	{
+		parents[vertex] = parent;
+	}
+
+	int parentVertex(int vertex)
+	{
+		return parents[vertex];
+	}
+
+	/*
+		Returns the cleared queue of vertices
+	 */
+	IntList queue()
+	{
+		return queue;
+	}
+
+	/*
+		Returns the cleared list for the edge indices or the vertex IDs of the found path
+	 */
+	IntList path()
+	{
+		return path;
+	}
+
+	private void prepare(int vertexCount)
+	{
+		if(visited.length <= vertexCount)
+		{
+			int length = Math.max(vertexCount + 1, 2 * visited.length);
+			visited = new int[length];
+			parents = new int[length];
+			epoch = 0;
+		}
+		if(++epoch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(visited, 0);
+			epoch = 1;
+		}
+		queue.clear();
+		path.clear();
+	}
+}
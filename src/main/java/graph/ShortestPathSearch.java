@@ -0,0 +1,161 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Implements the shortest path search between two vertices of a {@link FrozenGraph}.
+ * Without landmarks, the search is the Dijkstra algorithm. With landmarks, the search is A*
+ * guided by the lower bounds of {@link Landmarks}, so that vertices leading away from the target
+ * are settled later or not at all.
+ *
+ * Each thread keeps its own arrays between searches. The arrays are reset by incrementing
+ * an epoch counter rather than by filling them.
+ */
+final class ShortestPathSearch
+{
+	private final FrozenGraph<?, ?> graph;
+	private final Landmarks landmarks;
+	private final ThreadLocal<State> states;
+
+	/**
+	 * Creates a search
+	 * @param graph an instance of frozen graph with non-negative weights
+	 * @param landmarks an instance of landmarks, or {@code null} for the Dijkstra algorithm
+	 */
+	ShortestPathSearch(FrozenGraph<?, ?> graph, Landmarks landmarks)
+	{
+		this.graph = graph;
+		this.landmarks = landmarks;
+		int vertexCount = graph.getVertexCount();
+		int landmarkCount = landmarks == null ? 0 : landmarks.count();
+		this.states = ThreadLocal.withInitial(() -> new State(vertexCount, landmarkCount));
+	}
+
+	/*
+		Returns edge indices of the shortest path, or an empty list if there is no path.
+		The returned list is reused by the next search in the same thread.
+	 */
+	IntList find(int from, int to)
+	{
+		State state = states.get();
+		if(from == to || !graph.containsVertex(from) || !graph.containsVertex(to))
+		{
+			state.clear();
+		}
+		else
+		{
+			state.run(graph.internal(from), graph.internal(to));
+		}
+		return state.edges;
+	}
+
+	/*
+		Returns the number of vertices settled by the last search in the current thread
+	 */
+	int lastSettledCount()
+	{
+		return states.get().settledCount;
+	}
+
+	private final class State
+	{
+		private final float[] distances;
+		private final float[] potentials;
+		private final int[] parentEdges;
+		private final int[] visited;
+		private final int[] settled;
+		private final float[] targetFrom;
+		private final float[] targetTo;
+		private final IndexedMinHeap heap;
+		private final IntList edges = new IntList(64);
+		private int epoch;
+		private int settledCount;
+
+		private State(int vertexCount, int landmarkCount)
+		{
+			this.distances = new float[vertexCount + 1];
+			this.potentials = new float[vertexCount + 1];
+			this.parentEdges = new int[vertexCount + 1];
+			this.visited = new int[vertexCount + 1];
+			this.settled = new int[vertexCount + 1];
+			this.targetFrom = new float[landmarkCount];
+			this.targetTo = new float[landmarkCount];
+			this.heap = new IndexedMinHeap(vertexCount);
+		}
+
+		private void clear()
+		{
+			edges.clear();
+			settledCount = 0;
+		}
+
+		/*
+			Runs the search between internal vertex IDs
+		 */
+		private void run(int from, int to)
+		{
+			nextEpoch();
+			clear();
+
+			if(landmarks != null) landmarks.prepare(to, targetFrom, targetTo);
+			visit(from);
+			if(potentials[from] == Float.POSITIVE_INFINITY) return;
+			distances[from] = 0;
+			heap.push(from, potentials[from]);
+
+			while(!heap.isEmpty())
+			{
+				int u = heap.poll();
+				settled[u] = epoch;
+				settledCount++;
+				if(u == to) break;
+
+				float distance = distances[u];
+				for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+				{
+					int x = graph.target(e);
+					if(settled[x] == epoch || !graph.allows(e)) continue;
+					if(visited[x] != epoch) visit(x);
+					if(potentials[x] == Float.POSITIVE_INFINITY) continue;
+
+					float candidate = distance + graph.weight(e);
+					if(candidate < distances[x])
+					{
+						distances[x] = candidate;
+						parentEdges[x] = e;
+						heap.push(x, candidate + potentials[x]);
+					}
+				}
+			}
+
+			if(settled[to] != epoch) return;
+			for(int v = to; v != from; v = graph.source(parentEdges[v]))
+			{
+				edges.add(parentEdges[v]);
+			}
+			edges.reverse();
+		}
+
+		/*
+			Marks the vertex visited in the current search and computes its potential.
+			The potential is infinite if the target is not reachable from the vertex.
+		 */
+		private void visit(int vertex)
+		{
+			visited[vertex] = epoch;
+			distances[vertex] = Float.POSITIVE_INFINITY;
+			potentials[vertex] = landmarks == null ? 0 : landmarks.lowerBound(vertex, targetFrom, targetTo);
+		}
+
+		private void nextEpoch()
+		{
+			heap.clear();
+			if(++epoch == Integer.MAX_VALUE)
+			{
+				Arrays.fill(visited, 0);
+				Arrays.fill(settled, 0);
+				epoch = 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A single-source shortest path tree registered with a graph by {@link Graph#addShortestPathTree(int)}.
+ *
+ * Weight updates of the graph are applied to the tree incrementally. A decreased weight is propagated from
+ * the end of the edge only as far as distances improve. An increased weight of a tree edge invalidates
+ * the subtree below it; the subtree is reattached through its best edges from the rest of the tree and
+ * the distances are settled again inside it. Weight changes of edges not in the tree cost nothing.
+ *
+ * Adding vertices or edges to the graph makes the tree rebuilt from a new snapshot on the next query.
+ * The trees of a graph share the snapshot, and each of them keeps its own weights and lock,
+ * so that queries of a tree run concurrently with each other and with queries of other trees.
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class ShortestPathTree<T extends Edge>
+{
+	private final ShortestPathTrees<T> registry;
+	private final int source;
+	// Guards the state of the tree: queries read it concurrently, updates and rebuilds write it
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile boolean stale = true;
+	// Snapshot shared with the other trees of the graph; the weights of its arcs are kept by the tree
+	private FrozenGraph<?, T> graph;
+	private float[] weights;
+	private float[] distances;
+	private int[] parentEdges;
+	private IndexedMinHeap heap;
+	// Vertices of the invalidated subtree are marked with the current stamp
+	private int[] affected;
+	private int stamp;
+	private int lastRepairCount;
+
+	ShortestPathTree(ShortestPathTrees<T> registry, int source)
+	{
+		this.registry = registry;
+		this.source = source;
+	}
+
+	/**
+	 * Returns the ID of the source vertex
+	 * @return vertex ID
+	 */
+	public int getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * Returns the weight of the shortest path from the source to the vertex with ID {@code to}
+	 * @param to vertex ID
+	 * @return the distance, or {@link Float#POSITIVE_INFINITY} if the vertex is not reachable
+	 */
+	public float getDistance(int to)
+	{
+		registry.refresh(this);
+		lock.readLock().lock();
+		try
+		{
+			return distances[internal(to)];
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the shortest path from the source to the vertex with ID {@code to}.
+	 * The weights of the returned edges are the weights of the tree.
+	 * @param to vertex ID
+	 * @return a list of edges ordered along the path, or an empty list if the vertex is not reachable
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getPath(int to)
+	{
+		registry.refresh(this);
+		lock.readLock().lock();
+		try
+		{
+			int v = internal(to);
+			if(distances[v] == Float.POSITIVE_INFINITY) return Collections.emptyList();
+
+			List<T> path = new ArrayList<>();
+			for(; parentEdges[v] >= 0; v = graph.source(parentEdges[v]))
+			{
+				int e = parentEdges[v];
+				T edge = graph.edge(e);
+				if(graph.weight(e) != weights[e])
+				{
+					// The edges of the snapshot keep the weights it was taken with
+					edge = (T) edge.copy();
+					((WeighedEdge) edge).setWeight(weights[e]);
+				}
+				path.add(edge);
+			}
+			Collections.reverse(path);
+			return Collections.unmodifiableList(path);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	boolean isStale()
+	{
+		return stale;
+	}
+
+	void invalidate()
+	{
+		stale = true;
+	}
+
+	void markUpToDate()
+	{
+		stale = false;
+	}
+
+	/*
+		Computes the tree from scratch on the shared snapshot, with the weights owned by the tree
+	 */
+	void rebuild(FrozenGraph<?, T> snapshot, float[] weights)
+	{
+		if(!snapshot.containsVertex(source))
+		{
+			throw new IllegalArgumentException("Vertex " + source + " not found.");
+		}
+		lock.writeLock().lock();
+		try
+		{
+			int vertexCount = snapshot.getVertexCount();
+			this.graph = snapshot;
+			this.weights = weights;
+			this.distances = new float[vertexCount + 1];
+			Arrays.fill(distances, Float.POSITIVE_INFINITY);
+			this.parentEdges = new int[vertexCount + 1];
+			Arrays.fill(parentEdges, -1);
+			this.heap = new IndexedMinHeap(vertexCount);
+			this.affected = new int[vertexCount + 1];
+
+			int root = snapshot.internal(source);
+			distances[root] = 0;
+			heap.push(root, 0);
+			settle();
+			this.lastRepairCount = vertexCount;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+		Applies a weight update of the graph to the arcs connecting the vertices, given by external IDs
+	 */
+	void updateWeight(int from, int to, float weight)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			if(stale || !graph.containsVertex(from) || !graph.containsVertex(to)) return;
+
+			lastRepairCount = 0;
+			int u = graph.internal(from);
+			int v = graph.internal(to);
+			updateArcs(u, v, weight);
+			if(!graph.isDirected() && u != v) updateArcs(v, u, weight);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+		Returns the number of vertices whose distances were recomputed by the last update
+	 */
+	int lastRepairCount()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return lastRepairCount;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	private void updateArcs(int u, int v, float weight)
+	{
+		for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+		{
+			if(graph.target(e) == v) updateArc(e, weight);
+		}
+	}
+
+	private void updateArc(int e, float weight)
+	{
+		float previous = weights[e];
+		if(previous == weight) return;
+
+		weights[e] = weight;
+		int u = graph.source(e);
+		int v = graph.target(e);
+		if(weight < previous)
+		{
+			if(distances[u] + weight < distances[v])
+			{
+				distances[v] = distances[u] + weight;
+				parentEdges[v] = e;
+				heap.push(v, distances[v]);
+				settle();
+			}
+		}
+		else if(parentEdges[v] == e)
+		{
+			repairSubtree(v);
+		}
+	}
+
+	/*
+		Detaches the subtree rooted at the vertex, reattaches each of its vertices through its best edge
+		from outside of the subtree and settles the distances inside the subtree
+	 */
+	private void repairSubtree(int root)
+	{
+		stamp++;
+		IntList subtree = new IntList(16);
+		subtree.add(root);
+		affected[root] = stamp;
+		for(int i = 0; i < subtree.size(); i++)
+		{
+			int u = subtree.get(i);
+			for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+			{
+				int x = graph.target(e);
+				if(parentEdges[x] == e && affected[x] != stamp)
+				{
+					affected[x] = stamp;
+					subtree.add(x);
+				}
+			}
+		}
+
+		for(int i = 0; i < subtree.size(); i++)
+		{
+			int x = subtree.get(i);
+			distances[x] = Float.POSITIVE_INFINITY;
+			parentEdges[x] = -1;
+			for(int j = graph.inEdgeStart(x); j < graph.inEdgeEnd(x); j++)
+			{
+				int e = graph.inEdge(j);
+				int y = graph.source(e);
+				if(affected[y] != stamp && distances[y] + weights[e] < distances[x])
+				{
+					distances[x] = distances[y] + weights[e];
+					parentEdges[x] = e;
+				}
+			}
+			if(distances[x] < Float.POSITIVE_INFINITY) heap.push(x, distances[x]);
+		}
+		settle();
+	}
+
+	/*
+		Dijkstra search from the vertices in the heap; only improved distances are propagated
+	 */
+	private void settle()
+	{
+		while(!heap.isEmpty())
+		{
+			int u = heap.poll();
+			lastRepairCount++;
+			for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+			{
+				int x = graph.target(e);
+				float distance = distances[u] + weights[e];
+				if(distance < distances[x])
+				{
+					distances[x] = distance;
+					parentEdges[x] = e;
+					heap.push(x, distance);
+				}
+			}
+		}
+	}
+
+	private int internal(int id)
+	{
+		if(!graph.containsVertex(id))
+		{
+			throw new IllegalArgumentException("Vertex " + id + " not found.");
+		}
+		return graph.internal(id);
+	}
+}
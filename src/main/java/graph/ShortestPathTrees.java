@@ -0,0 +1,129 @@
+package graph;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the shortest path trees registered with a graph up to date.
+ * Weight updates and tree rebuilds are serialized by the registry, so that every tree sees
+ * the updates in the order they are applied to the graph. Queries of the trees do not take the lock
+ * of the registry unless the tree has to be rebuilt.
+ *
+ * The trees share one snapshot of the graph, taken again after vertices or edges are added;
+ * each tree keeps the weights of the arcs in an array of its own.
+ */
+final class ShortestPathTrees<T extends Edge>
+{
+	private final Supplier<FrozenGraph<?, T>> snapshots;
+	private final List<ShortestPathTree<T>> trees = new CopyOnWriteArrayList<>();
+	// Snapshot shared by the trees and the current weights of its arcs, or null if there are no trees
+	private FrozenGraph<?, T> snapshot;
+	private float[] weights;
+	private volatile boolean stale = true;
+
+	ShortestPathTrees(Supplier<FrozenGraph<?, T>> snapshots)
+	{
+		this.snapshots = snapshots;
+	}
+
+	synchronized ShortestPathTree<T> add(int source)
+	{
+		ShortestPathTree<T> tree = new ShortestPathTree<>(this, source);
+		rebuild(tree);
+		trees.add(tree);
+		return tree;
+	}
+
+	synchronized void remove(ShortestPathTree<T> tree)
+	{
+		trees.remove(tree);
+		if(trees.isEmpty()) release();
+	}
+
+	/*
+		Runs the update of the graph and applies it to the shared weights and the trees
+	 */
+	synchronized void updateWeight(int from, int to, float weight, Runnable update)
+	{
+		if(!(weight >= 0) && !trees.isEmpty())
+		{
+			throw new IllegalArgumentException("Unable to update weight: shortest path trees require non-negative weights.");
+		}
+		update.run();
+		if(trees.isEmpty())
+		{
+			release();
+			return;
+		}
+		if(snapshot != null && snapshot.containsVertex(from) && snapshot.containsVertex(to))
+		{
+			int u = snapshot.internal(from);
+			int v = snapshot.internal(to);
+			updateArcs(u, v, weight);
+			if(!snapshot.isDirected() && u != v) updateArcs(v, u, weight);
+		}
+		for(ShortestPathTree<T> tree : trees)
+		{
+			tree.updateWeight(from, to, weight);
+		}
+	}
+
+	/*
+		Makes the shared snapshot taken again and the trees rebuilt on the next query, after vertices or edges are added
+	 */
+	void invalidate()
+	{
+		stale = true;
+		for(ShortestPathTree<T> tree : trees)
+		{
+			tree.invalidate();
+		}
+	}
+
+	void refresh(ShortestPathTree<T> tree)
+	{
+		if(!tree.isStale()) return;
+
+		synchronized(this)
+		{
+			if(tree.isStale()) rebuild(tree);
+		}
+	}
+
+	/*
+		The tree is marked up to date before the snapshot is checked, so that no added edge is missed
+	 */
+	private void rebuild(ShortestPathTree<T> tree)
+	{
+		tree.markUpToDate();
+		if(snapshot == null || stale)
+		{
+			stale = false;
+			FrozenGraph<?, T> taken = snapshots.get();
+			taken.checkNonNegativeWeights("build shortest path tree");
+			float[] takenWeights = new float[taken.getEdgeCount()];
+			for(int e = 0; e < takenWeights.length; e++)
+			{
+				takenWeights[e] = taken.weight(e);
+			}
+			snapshot = taken;
+			weights = takenWeights;
+		}
+		tree.rebuild(snapshot, weights.clone());
+	}
+
+	private void updateArcs(int u, int v, float weight)
+	{
+		for(int e = snapshot.edgeStart(u); e < snapshot.edgeEnd(u); e++)
+		{
+			if(snapshot.target(e) == v) weights[e] = weight;
+		}
+	}
+
+	private void release()
+	{
+		snapshot = null;
+		weights = null;
+	}
+}
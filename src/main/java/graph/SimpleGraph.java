@@ -2,10 +2,14 @@ package graph;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -19,23 +23,38 @@ import java.util.stream.Collectors;
  *
  * Allows to find a path between two vertices and return a list vertices.
  *
+ * The objects associated with vertices are kept on the heap, or, for graphs created with
+ * a {@link PayloadCodec}, encoded outside of the heap with a bounded cache of decoded objects.
+ * On the heap, vertices are added and read without a lock, in chunks which are never copied as the graph grows.
+ * The edges are guarded by a read/write lock, so that path queries run concurrently with each other
+ * and wait only for the mutations of the edges.
+ *
  * @param <V> defines the type of the object associated with a vertex
  * @param <T> defines the type of the edge. A subclass of {@link Edge}
  */
 
 public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 {
-	private final AtomicInteger verticesCounter = new AtomicInteger();
-	private final ArrayList<V> vertices;
+	private final VertexStore<V> vertices;
 	private final HashSet<T> edges;
+	// Guards the edges, their indexes and the order of the sequence numbers of the changes
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// Edges by their start and end vertices, for weight updates; guarded by the lock
+	private final HashMap<Long, List<T>> edgesByEnds = new HashMap<>();
 	private final boolean directed;
+	private final ShortestPathTrees<T> trees = new ShortestPathTrees<>(this::freeze);
+	private final ChangeStream<V, T> changes = new ChangeStream<>();
+	// Edges leaving each vertex, and for undirected graphs also the edges entering it, by vertex ID;
+	// guarded by the lock
+	private final ArrayList<List<T>> adjacency = new ArrayList<>();
+	// Transition map for path finders, built on demand and dropped by changes of the edges under the write lock
+	private volatile Map<Integer, List<T>> transitions;
 
 
-	private SimpleGraph(int vertexCapacity, int edgeCapacity, boolean directed)
+	private SimpleGraph(VertexStore<V> vertices, int edgeCapacity, boolean directed)
 	{
-     this.vertices = new ArrayList<>(vertexCapacity);
+     this.vertices = vertices;
      this.edges = new HashSet<>(edgeCapacity);
-     verticesCounter.set(0);
      this.directed = directed;
 	}
 
@@ -47,7 +66,7 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	 */
 	public static <V,T extends Edge> Graph<V,T> newDirected(int vertexCapacity, int edgeCapacity)
 	{
-		return new SimpleGraph<>(vertexCapacity, edgeCapacity, true);
+		return new SimpleGraph<>(new ChunkedVertexStore<>(vertexCapacity), edgeCapacity, true);
 	}
 
 	/**
@@ -58,7 +77,33 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	 */
 	public static <V,T extends Edge> Graph<V,T> newUndirected(int vertexCapacity, int edgeCapacity)
 	{
-		return new SimpleGraph<>(vertexCapacity,edgeCapacity, false);
+		return new SimpleGraph<>(new ChunkedVertexStore<>(vertexCapacity), edgeCapacity, false);
+	}
+
+	/**
+	 * Returns an instance of empty directed graph keeping the objects associated with vertices
+	 * encoded outside of the heap. The heap holds at most {@code cacheSize} decoded objects.
+	 * @param edgeCapacity initial capacity of edges
+	 * @param codec the codec of objects associated with vertices
+	 * @param cacheSize the number of recently used objects kept decoded
+	 * @return an instance of directed graph
+	 */
+	public static <V,T extends Edge> Graph<V,T> newDirected(int edgeCapacity, PayloadCodec<V> codec, int cacheSize)
+	{
+		return new SimpleGraph<>(new OffHeapVertexStore<>(codec, cacheSize), edgeCapacity, true);
+	}
+
+	/**
+	 * Returns an instance of empty undirected graph keeping the objects associated with vertices
+	 * encoded outside of the heap. The heap holds at most {@code cacheSize} decoded objects.
+	 * @param edgeCapacity initial capacity of edges
+	 * @param codec the codec of objects associated with vertices
+	 * @param cacheSize the number of recently used objects kept decoded
+	 * @return an instance of undirected graph
+	 */
+	public static <V,T extends Edge> Graph<V,T> newUndirected(int edgeCapacity, PayloadCodec<V> codec, int cacheSize)
+	{
+		return new SimpleGraph<>(new OffHeapVertexStore<>(codec, cacheSize), edgeCapacity, false);
 	}
 
 	/**
@@ -69,33 +114,137 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	 */
 	@Override public int addVertex(V o)
 	{
+		if(!changes.hasSubscriptions()) return vertexAdded(o, vertices.add(o), -1);
+
+		// The sequence number is claimed with the ID, in the order of the other mutations
 		int vertexID;
-		synchronized(vertices)
+		long sequence;
+		lock.writeLock().lock();
+		try
 		{
-			vertices.add(o);
-			vertexID = verticesCounter.incrementAndGet();
+			vertexID = vertices.add(o);
+			sequence = changes.claim();
 		}
-		return vertexID;
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		return vertexAdded(o, vertexID, sequence);
 	}
 
 	/**
 	 * Adds an edge connecting two vertices.
 	 * @param edge an instance of edge.
 	 */
+	@SuppressWarnings("unchecked")
 	@Override public void addEdge(T edge)
 	{
-		int last = verticesCounter.get();
+		int last = vertices.size();
+		long sequence = -1;
 
 		if(last < edge.getFrom() || last < edge.getTo())
 		{
 			throw new IllegalArgumentException("Unable to add edge: vertex " + edge.getFrom() + " or " + edge.getTo() + " not found." );
 		}
-		synchronized(edges)
+		// The event is copied only for subscriptions, and before the edge is added, so that copying cannot fail afterwards
+		T copy = changes.hasSubscriptions() ? (T) edge.copy() : null;
+		lock.writeLock().lock();
+		try
 		{
-			edges.add(edge);
+			if(edges.add(edge))
+			{
+				edgesByEnds.computeIfAbsent(ends(edge.getFrom(), edge.getTo()), key -> new ArrayList<>(1)).add(edge);
+				link(edge.getFrom(), edge);
+				if(!directed && edge.getFrom() != edge.getTo()) link(edge.getTo(), edge);
+				transitions = null;
+				if(copy != null) sequence = changes.claim();
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		try
+		{
+			trees.invalidate();
+		}
+		finally
+		{
+			changes.publish(sequence, GraphEvent.Type.EDGE_ADDED, 0, null, copy);
+		}
+	}
+
+	/**
+	 * Sets the weight of the weighed edges connecting two vertices, in both directions for undirected graphs,
+	 * and repairs the registered shortest path trees.
+	 * @param from ID of the start vertex of the edges
+	 * @param to ID of the end vertex of the edges
+	 * @param weight the new weight
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public void updateWeight(int from, int to, float weight)
+	{
+		long[] sequence = {-1};
+		Edge[] event = new Edge[1];
+		try
+		{
+			trees.updateWeight(from, to, weight, () -> {
+				lock.writeLock().lock();
+				try
+				{
+					List<T> found = new ArrayList<>(edgesByEnds.getOrDefault(ends(from, to), Collections.emptyList()));
+					if(!directed && from != to) found.addAll(edgesByEnds.getOrDefault(ends(to, from), Collections.emptyList()));
+					if(found.isEmpty())
+					{
+						throw new IllegalArgumentException("Unable to update weight: edge (" + from + "," + to + ") not found.");
+					}
+					for(T edge : found)
+					{
+						if(!(edge instanceof WeighedEdge))
+						{
+							throw new IllegalArgumentException("Unable to update weight: edge " + edge + " is not weighed.");
+						}
+					}
+					if(changes.hasSubscriptions())
+					{
+						event[0] = found.get(0).copy();
+						((WeighedEdge) event[0]).setWeight(weight);
+					}
+					found.forEach(edge -> ((WeighedEdge) edge).setWeight(weight));
+					transitions = null;
+					if(event[0] != null) sequence[0] = changes.claim();
+				}
+				finally
+				{
+					lock.writeLock().unlock();
+				}
+			});
+		}
+		finally
+		{
+			changes.publish(sequence[0], GraphEvent.Type.WEIGHT_UPDATED, 0, null, (T) event[0]);
 		}
 	}
 
+	/**
+	 * Registers a shortest path tree kept up to date with weight updates
+	 * @param source ID of the source vertex
+	 * @return an instance of shortest path tree
+	 */
+	@Override public ShortestPathTree<T> addShortestPathTree(int source)
+	{
+		return trees.add(source);
+	}
+
+	/**
+	 * Stops updating the shortest path tree
+	 * @param tree a tree registered with this graph
+	 */
+	@Override public void removeShortestPathTree(ShortestPathTree<T> tree)
+	{
+		trees.remove(tree);
+	}
+
 	/**
 	 * Returns an oriented path between two vertices with IDs {@code from} and {@code to}.
 	 * The path has a fixed direction for traversing it, even for an undirected graph.
@@ -104,23 +253,26 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	 * so that the first edges starts at vertex with ID {@code form}
 	 * and the last edge ends with the vertex with ID {@code to}.
 	 *
-	 * Uses the default path finder {@link DefaultGraphPathFinder}.
-	 * The found path is not the shortest one.
+	 * The path has the fewest edges, found by breadth-first search on the edges of the graph while it is locked
+	 * against changes, but not against other queries. The search reuses the arrays of the current thread, so that repeated queries allocate
+	 * only the returned path, made of copies of the edges.
 	 *
 	 * @param from ID of the first vertex in the path
 	 * @param to ID of the last vertex in the path
 	 * @return a list of edges ordered along the path.
 	 */
 
-	@SuppressWarnings("unchecked")
 	@Override public List<T> getPath(int from, int to)
 	{
-		return getPath(from, to, (GraphPathFinder<T>) new DefaultGraphPathFinder());
+		return getPath(from, to, null, null);
 	}
 
 	/**
 	 * Does the same as method {@link #getPath(int from, int to) getPath}.
 	 * Allows to specify a user-defined path finer.
+	 * The transition map passed to the finder is built from copies of the edges once for each change of the edges,
+	 * and shared by the queries until the next change, so the finder must not modify it.
+	 * The edges of the returned path are copies owned by the caller.
 	 * @param from ID of the first vertex in the path
 	 * @param to ID of the last vertex in the path
 	 * @param finder an instance of path finder
@@ -129,61 +281,290 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	public List<T> getPath(int from, int to, GraphPathFinder<T> finder)
 	{
 		finder.setTransitionMap(getTransitionsMap());
-		return finder.find(from, to);
+		List<T> path = finder.find(from, to);
+		if(path == null || path.isEmpty()) return path;
+		return Collections.unmodifiableList(path.stream().map(SimpleGraph::copy).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Does the same as method {@link #getPath(int from, int to) getPath}, visiting only the vertices and edges
+	 * accepted by the filters. For undirected graphs, the edge filter gets each edge in the direction
+	 * it is traversed. The filters are called while the graph is locked against changes, so they must not change it.
+	 * @param from ID of the first vertex in the path
+	 * @param to ID of the last vertex in the path
+	 * @param edgeFilter accepts the edges which the path may use, or {@code null} to accept all edges
+	 * @param vertexFilter accepts the IDs of the vertices which the path may visit, or {@code null} to accept all vertices
+	 * @return a list of edges ordered along the path.
+	 */
+	@Override public List<T> getPath(int from, int to, Predicate<? super T> edgeFilter, IntPredicate vertexFilter)
+	{
+		lock.readLock().lock();
+		try
+		{
+			// Edges refer only to vertices added before them
+			int vertexCount = vertices.size();
+			if(from == to || from < 1 || to < 1 || from > vertexCount || to > vertexCount) return Collections.emptyList();
+			if(vertexFilter != null && !vertexFilter.test(from)) return Collections.emptyList();
+
+			SearchWorkspace workspace = SearchWorkspace.borrow(vertexCount);
+			IntList queue = workspace.queue();
+			workspace.visit(from);
+			queue.add(from);
+			for(int head = 0; head < queue.size(); head++)
+			{
+				int u = queue.get(head);
+				for(T edge : arcs(u))
+				{
+					int x = edge.getFrom() == u ? edge.getTo() : edge.getFrom();
+					if(workspace.isVisited(x) || vertexFilter != null && !vertexFilter.test(x)
+							|| edgeFilter != null && !edgeFilter.test(arc(edge, u))) continue;
+
+					workspace.visit(x);
+					workspace.setParentVertex(x, u);
+					if(x == to) return toPath(workspace, from, to, edgeFilter);
+					queue.add(x);
+				}
+			}
+			return Collections.emptyList();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the object assigned to the vertex with the specified ID.
+	 * For graphs keeping objects outside of the heap, only this object is decoded.
+	 * @param id vertex ID
+	 * @return an object of type {@code V}
+	 */
+	@Override public V getVertex(int id)
+	{
+		if(id < 1 || id > vertices.size())
+		{
+			throw new IllegalArgumentException("Vertex " + id + " not found.");
+		}
+		return vertices.get(id);
 	}
 
 	/**
-	 * Returns a snapshot of the graph's vertices collection
+	 * Returns a snapshot of the graph's vertices collection.
+	 * For graphs keeping objects outside of the heap, the objects are decoded on access.
 	 * @return a list of vertices
 	 */
 	public List<V> getVertices()
 	{
-		List<V> verticesCopy;
-		synchronized(vertices)
+		return vertices.snapshot();
+	}
+
+	/**
+	 * Returns a snapshot of the graph's edges
+	 * @return a list of copies of the edges
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public List<T> getEdges()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return Collections.unmodifiableList(edges.stream().map(Edge::copy).map(edge -> (T) edge).collect(Collectors.toList()));
+		}
+		finally
 		{
-			verticesCopy = vertices.stream().sequential().collect(Collectors.toList());
+			lock.readLock().unlock();
 		}
-		return Collections.unmodifiableList(verticesCopy);
 	}
 
+	/**
+	 * Applies a function to each vertex and replaces it with the result.
+	 * The events of the replaced objects are published after all of them are replaced.
+	 * @param function function that takes an object of type {@code V} and returns an object of the same type.
+	 */
 	@Override public void apply(UnaryOperator<V> function)
 	{
-		synchronized(vertices)
+		if(!changes.hasSubscriptions())
+		{
+			vertices.apply(function);
+			return;
+		}
+
+		// The replaced objects are read, and their sequence numbers claimed, in the order of the other mutations
+		List<V> replaced;
+		long first;
+		lock.writeLock().lock();
+		try
+		{
+			vertices.apply(function);
+			replaced = vertices.snapshot();
+			first = changes.claim(replaced.size());
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		changes.publishReplaced(first, replaced.size(), replaced);
+	}
+
+	/**
+	 * Subscribes to the mutations of the graph
+	 * @return a subscription with its own cursor
+	 */
+	@Override public GraphSubscription<V, T> subscribe()
+	{
+		return changes.subscribe();
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph.
+	 * The edges are copied before the vertices, so that every edge of the snapshot refers to a copied vertex.
+	 * @return an instance of {@link FrozenGraph}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override public FrozenGraph<V, T> freeze()
+	{
+		List<T> copyOfEdges;
+		lock.readLock().lock();
+		try
+		{
+			copyOfEdges = edges.stream().map(Edge::copy).map(edge -> (T) edge).collect(Collectors.toList());
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		return FrozenGraph.of(vertices.snapshot(), copyOfEdges, directed);
+	}
+
+	/*
+		Adds the edge to the adjacency list of the vertex
+	 */
+	private void link(int vertex, T edge)
+	{
+		while(adjacency.size() <= vertex)
 		{
-			for(int id = 1; id <= vertices.size(); id++)
+			adjacency.add(null);
+		}
+		List<T> arcs = adjacency.get(vertex);
+		if(arcs == null)
+		{
+			arcs = new ArrayList<>(4);
+			adjacency.set(vertex, arcs);
+		}
+		arcs.add(edge);
+	}
+
+	private List<T> arcs(int vertex)
+	{
+		List<T> arcs = vertex < adjacency.size() ? adjacency.get(vertex) : null;
+		return arcs == null ? Collections.emptyList() : arcs;
+	}
+
+	/*
+		Returns the edge in the direction of traversing it from the vertex, reversed if it enters the vertex
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Edge> T arc(T edge, int vertex)
+	{
+		return edge.getFrom() == vertex ? edge : (T) edge.reverse();
+	}
+
+	/*
+		Materializes the path found by the search as copies of the edges, taking from each vertex on the path
+		the first edge to the next vertex which is accepted by the filter, as the search does
+	 */
+	private List<T> toPath(SearchWorkspace workspace, int from, int to, Predicate<? super T> edgeFilter)
+	{
+		IntList vertexIds = workspace.path();
+		for(int v = to; v != from; v = workspace.parentVertex(v))
+		{
+			vertexIds.add(v);
+		}
+		vertexIds.add(from);
+		vertexIds.reverse();
+
+		List<T> path = new ArrayList<>(vertexIds.size() - 1);
+		for(int i = 1; i < vertexIds.size(); i++)
+		{
+			int u = vertexIds.get(i - 1);
+			int x = vertexIds.get(i);
+			for(T edge : arcs(u))
 			{
-				vertices.set(id - 1, function.apply(vertices.get(id - 1)));
+				if((edge.getFrom() == u ? edge.getTo() : edge.getFrom()) != x) continue;
+
+				T arc = arc(edge, u);
+				if(edgeFilter != null && !edgeFilter.test(arc)) continue;
+
+				path.add(arc == edge ? copy(edge) : arc);
+				break;
 			}
 		}
+		return Collections.unmodifiableList(path);
 	}
 
 	/*
-		Returns a transition map to be used for path finding.
-		The key of each map entry corresponds to a vertex ID.
-		The value of each map entry is a list of edges connected to the vertex with the ID equal to the key.
-		Each edge is directed 'out' from the vertex.
-		For undirected graphs, each undirected edge is represented by a couple of directed edges with opposite
-		orientation, except the case when the edge closes to the same vertex (from = to).
+		Returns a transition map for path finders: copies of the edges leaving each vertex by vertex ID,
+		with both directions of the edges of undirected graphs. The map is published under the read lock,
+		so that a change of the edges cannot drop it between building and publishing it
 	 */
-	@SuppressWarnings("unchecked")
-	private Map<Integer,List<T>> getTransitionsMap(){
-		List<T> copyOfEdges;
+	private Map<Integer, List<T>> getTransitionsMap()
+	{
+		Map<Integer, List<T>> map = transitions;
+		if(map != null) return map;
 
-		synchronized(edges)
+		map = new HashMap<>();
+		lock.readLock().lock();
+		try
 		{
-			copyOfEdges = edges.stream().map(Edge::copy).map(edge -> (T) edge).collect(Collectors.toList());
+			for(int u = 1; u < adjacency.size(); u++)
+			{
+				List<T> arcs = arcs(u);
+				if(arcs.isEmpty()) continue;
+
+				List<T> copies = new ArrayList<>(arcs.size());
+				for(T edge : arcs)
+				{
+					T arc = arc(edge, u);
+					copies.add(arc == edge ? copy(edge) : arc);
+				}
+				map.put(u, Collections.unmodifiableList(copies));
+			}
+			map = Collections.unmodifiableMap(map);
+			transitions = map;
 		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		return map;
+	}
 
-		if(!directed)
+	@SuppressWarnings("unchecked")
+	private static <T extends Edge> T copy(T edge)
+	{
+		return (T) edge.copy();
+	}
+
+	/*
+		Invalidates the shortest path trees and publishes the event of the added vertex
+	 */
+	private int vertexAdded(V o, int vertexID, long sequence)
+	{
+		try
 		{
-				List<T> reversedEdges = copyOfEdges.stream().filter(edge -> edge.getTo() != edge.getFrom())
-						.map(Edge::reverse)
-						.map(edge -> (T) edge)
-						.collect(Collectors.toList());
-				copyOfEdges.addAll(reversedEdges);
+			trees.invalidate();
 		}
+		finally
+		{
+			changes.publish(sequence, GraphEvent.Type.VERTEX_ADDED, vertexID, o, null);
+		}
+		return vertexID;
+	}
 
-		return Collections.unmodifiableMap(copyOfEdges.stream().collect(Collectors.groupingBy(Edge::getFrom)));
+	private static long ends(int from, int to)
+	{
+		return (long) from << 32 | (to & 0xFFFFFFFFL);
 	}
 
 	/**
@@ -193,10 +574,15 @@ public class SimpleGraph<V, T extends Edge> implements Graph<V, T>
 	public String toString()
 	{
 		String str;
-		synchronized(edges)
+		lock.readLock().lock();
+		try
 		{
 			str = edges.stream().map(Edge::toString).collect(Collectors.joining(","));
 		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
 		return str;
 	}
 }
@@ -0,0 +1,26 @@
+package graph;
+
+/**
+ * Defines the order in which {@link FrozenGraph#reorder(VertexOrdering)} renumbers vertices.
+ * Edge directions are ignored by all orderings.
+ */
+public enum VertexOrdering
+{
+	/**
+	 * Order of breadth-first traversal, component by component.
+	 * Neighbours of a vertex get close numbers.
+	 */
+	BFS,
+
+	/**
+	 * Reverse Cuthill-McKee order: breadth-first traversal from a peripheral vertex, visiting neighbours
+	 * by increasing degree, reversed. Minimizes the bandwidth, i.e. the greatest difference between
+	 * numbers of neighbours.
+	 */
+	REVERSE_CUTHILL_MCKEE,
+
+	/**
+	 * Order of decreasing degree, so that the most often visited vertices are packed together.
+	 */
+	DEGREE
+}
@@ -0,0 +1,213 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Computes vertex orderings defined by {@link VertexOrdering} on internal IDs of a {@link FrozenGraph}.
+ */
+final class VertexReorderer
+{
+	private final FrozenGraph<?, ?> graph;
+	private final int vertexCount;
+	private final int[] degrees;
+	// Arrays of the peripheral vertex search, reset after each traversal
+	private final int[] levels;
+	private final int[] queue;
+
+	private VertexReorderer(FrozenGraph<?, ?> graph)
+	{
+		this.graph = graph;
+		this.vertexCount = graph.getVertexCount();
+		this.degrees = new int[vertexCount + 1];
+		this.levels = new int[vertexCount + 1];
+		this.queue = new int[vertexCount + 1];
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			degrees[v] = graph.edgeEnd(v) - graph.edgeStart(v);
+			if(graph.isDirected()) degrees[v] += graph.inEdgeEnd(v) - graph.inEdgeStart(v);
+		}
+	}
+
+	/*
+		Returns an array where element i is the internal ID of the vertex to be renumbered to i.
+		Element 0 is unused.
+	 */
+	static int[] order(FrozenGraph<?, ?> graph, VertexOrdering ordering)
+	{
+		VertexReorderer reorderer = new VertexReorderer(graph);
+		switch(ordering)
+		{
+			case BFS:
+				return reorderer.breadthFirst(false);
+			case REVERSE_CUTHILL_MCKEE:
+				return reorderer.breadthFirst(true);
+			case DEGREE:
+				return reorderer.byDegree();
+			default:
+				throw new IllegalArgumentException("Unsupported ordering: " + ordering);
+		}
+	}
+
+	private int[] byDegree()
+	{
+		int[] order = new int[vertexCount + 1];
+		Integer[] sorted = IntStream.rangeClosed(1, vertexCount).boxed().toArray(Integer[]::new);
+		Arrays.sort(sorted, Comparator.comparingInt((Integer v) -> -degrees[v]).thenComparingInt(v -> v));
+		for(int i = 0; i < vertexCount; i++)
+		{
+			order[i + 1] = sorted[i];
+		}
+		return order;
+	}
+
+	/*
+		Breadth-first traversal of all components. Cuthill-McKee traversal starts each component
+		from a pseudo-peripheral vertex, visits neighbours by increasing degree and is reversed at the end.
+	 */
+	private int[] breadthFirst(boolean cuthillMcKee)
+	{
+		int[] order = new int[vertexCount + 1];
+		boolean[] visited = new boolean[vertexCount + 1];
+		int size = 0;
+		for(int root = 1; root <= vertexCount; root++)
+		{
+			if(visited[root]) continue;
+
+			int start = cuthillMcKee ? peripheral(root) : root;
+			size = traverse(start, order, size, visited, cuthillMcKee);
+		}
+
+		if(cuthillMcKee)
+		{
+			for(int i = 1, j = vertexCount; i < j; i++, j--)
+			{
+				int vertex = order[i];
+				order[i] = order[j];
+				order[j] = vertex;
+			}
+		}
+		return order;
+	}
+
+	/*
+		Appends the vertices of the component of the start vertex to the order in breadth-first order.
+		The order array serves as the queue. Returns the new size of the order.
+	 */
+	private int traverse(int start, int[] order, int size, boolean[] visited, boolean byDegree)
+	{
+		IntList neighbours = new IntList(16);
+		visited[start] = true;
+		order[++size] = start;
+		for(int head = size; head <= size; head++)
+		{
+			int u = order[head];
+			neighbours.clear();
+			collectNeighbours(u, neighbours, visited);
+			int[] next = neighbours.toArray();
+			if(byDegree) sortByDegree(next);
+			for(int x : next)
+			{
+				order[++size] = x;
+			}
+		}
+		return size;
+	}
+
+	/*
+		Adds the neighbours not visited yet to the list and marks them visited
+	 */
+	private void collectNeighbours(int u, IntList neighbours, boolean[] visited)
+	{
+		for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+		{
+			int x = graph.target(e);
+			if(!visited[x])
+			{
+				visited[x] = true;
+				neighbours.add(x);
+			}
+		}
+		if(!graph.isDirected()) return;
+
+		for(int i = graph.inEdgeStart(u); i < graph.inEdgeEnd(u); i++)
+		{
+			int x = graph.source(graph.inEdge(i));
+			if(!visited[x])
+			{
+				visited[x] = true;
+				neighbours.add(x);
+			}
+		}
+	}
+
+	private void sortByDegree(int[] vertices)
+	{
+		// Insertion sort, since neighbour lists are usually short
+		for(int i = 1; i < vertices.length; i++)
+		{
+			int vertex = vertices[i];
+			int j = i - 1;
+			while(j >= 0 && degrees[vertices[j]] > degrees[vertex])
+			{
+				vertices[j + 1] = vertices[j];
+				j--;
+			}
+			vertices[j + 1] = vertex;
+		}
+	}
+
+	/*
+		Finds a pseudo-peripheral vertex of the component by repeated breadth-first traversals:
+		the next start is the vertex of minimal degree in the last level, while the depth grows.
+	 */
+	private int peripheral(int root)
+	{
+		int start = root;
+		int depth = -1;
+		for(int attempt = 0; attempt < 8; attempt++)
+		{
+			levels[start] = 1;
+			int size = 0;
+			queue[size++] = start;
+			for(int head = 0; head < size; head++)
+			{
+				int u = queue[head];
+				for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+				{
+					size = enqueue(graph.target(e), levels[u] + 1, size);
+				}
+				if(!graph.isDirected()) continue;
+				for(int i = graph.inEdgeStart(u); i < graph.inEdgeEnd(u); i++)
+				{
+					size = enqueue(graph.source(graph.inEdge(i)), levels[u] + 1, size);
+				}
+			}
+
+			int lastLevel = levels[queue[size - 1]];
+			int next = queue[size - 1];
+			for(int i = size - 1; i >= 0 && levels[queue[i]] == lastLevel; i--)
+			{
+				if(degrees[queue[i]] < degrees[next]) next = queue[i];
+			}
+			for(int i = 0; i < size; i++)
+			{
+				levels[queue[i]] = 0;
+			}
+
+			if(lastLevel <= depth) break;
+			depth = lastLevel;
+			start = next;
+		}
+		return start;
+	}
+
+	private int enqueue(int x, int level, int size)
+	{
+		if(levels[x] != 0) return size;
+		levels[x] = level;
+		queue[size] = x;
+		return size + 1;
+	}
+}
@@ -0,0 +1,35 @@
+package graph;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage of the objects associated with vertices of a {@link SimpleGraph}.
+ * Vertex IDs are assigned in the order of adding, starting from 1.
+ * Implementations are thread-safe.
+ * @param <V> type of the object associated with a vertex
+ */
+interface VertexStore<V>
+{
+	/*
+		Adds the object and returns the ID of the new vertex
+	 */
+	int add(V vertex);
+
+	/*
+		Returns the object of the vertex with the specified ID, which must be valid
+	 */
+	V get(int id);
+
+	/*
+		Returns the number of vertices
+	 */
+	int size();
+
+	void apply(UnaryOperator<V> function);
+
+	/*
+		Returns an immutable list of the objects, not affected by later changes of the store
+	 */
+	List<V> snapshot();
+}
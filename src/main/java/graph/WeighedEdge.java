@@ -3,10 +3,14 @@ package graph;
 /**
  * Implements a weighed edges. Extends {@link Edge} by adding a weight.
  * Weight is represented by a {@code float} value.
+ * The weight of an edge added to a graph is changed in place by {@link Graph#updateWeight(int, int, float)}
+ * under the lock of the graph; the copies of edges returned by the graph and by its snapshots are not changed.
  */
 public class WeighedEdge extends Edge
 {
-	private final float weight;
+	private static final long serialVersionUID = 1L;
+
+	private float weight;
 
 	/**
 	 * Constructor
@@ -29,6 +33,11 @@ public class WeighedEdge extends Edge
 		return weight;
 	}
 
+	void setWeight(float weight)
+	{
+		this.weight = weight;
+	}
+
 	/**
 	 * Returns a new object with all fields copied
 	 * @return a new instance
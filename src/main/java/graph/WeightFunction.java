@@ -0,0 +1,22 @@
+package graph;
+
+/**
+ * Computes the weights of the edges of a {@link FrozenGraph}, see {@link FrozenGraph#withWeights(WeightFunction)}.
+ * The weights are computed once per snapshot into a primitive array which the path finders read,
+ * so a function may be as costly as deriving a weight from the objects associated with the vertices.
+ * @param <V> type of the object associated with a vertex
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+@FunctionalInterface
+public interface WeightFunction<V, T extends Edge>
+{
+	/**
+	 * Returns the weight of the edge. For undirected graphs, the function is called for each direction
+	 * of an edge, with the edge and the vertices in that direction.
+	 * @param edge an edge of the snapshot
+	 * @param from the object associated with the start vertex of the edge
+	 * @param to the object associated with the end vertex of the edge
+	 * @return the weight
+	 */
+	float weightOf(T edge, V from, V to);
+}
@@ -0,0 +1,137 @@
+package graph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements a histogram of latencies in nanoseconds with a precision of 1/64 of the value.
+ * Latencies below 128 ns are counted exactly; each next power of two is divided into 64 buckets of equal width,
+ * so that recording is a few arithmetic operations on a fixed array and the histogram takes 30 KB
+ * for any range of values.
+ *
+ * A histogram is not thread-safe: each thread records into its own histogram, and the histograms are added together.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+	private long count;
+	private long max;
+	private double sum;
+
+	/**
+	 * Records a latency
+	 * @param nanos the latency in nanoseconds; negative values are recorded as 0
+	 */
+	public void record(long nanos)
+	{
+		long value = Math.max(0, nanos);
+		counts[bucket(value)]++;
+		count++;
+		sum += value;
+		if(value > max) max = value;
+	}
+
+	/**
+	 * Adds the latencies recorded by another histogram to this one
+	 * @param other an instance of histogram
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for(int i = 0; i < counts.length; i++)
+		{
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the number of recorded latencies
+	 * @return the number of latencies
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the largest recorded latency
+	 * @return the latency in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the average of the recorded latencies
+	 * @return the average in nanoseconds, 0 if nothing is recorded
+	 */
+	public double getMean()
+	{
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Returns the latency which the specified percentage of the recorded latencies does not exceed,
+	 * rounded up to the bucket bound
+	 * @param percentile the percentage, from 0 to 100, e.g. 99.9
+	 * @return the latency in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getPercentile(double percentile)
+	{
+		if(!(percentile >= 0 && percentile <= 100))
+		{
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+		}
+		if(count == 0) return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++)
+		{
+			seen += counts[i];
+			if(seen >= rank) return Math.min(max, highestValue(i));
+		}
+		return max;
+	}
+
+	/**
+	 * Returns a summary of the histogram in microseconds
+	 * @return string representation of the histogram
+	 */
+	public String toString()
+	{
+		return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", count,
+				micros(getMean()), micros(getPercentile(50)), micros(getPercentile(99)), micros(getPercentile(99.9)), micros(max));
+	}
+
+	private static double micros(double nanos)
+	{
+		return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+	}
+
+	/*
+		Values below 2 * SUB_BUCKETS have buckets of their own; a larger value with the highest bit m
+		goes to the bucket given by its SUB_BUCKET_BITS + 1 highest bits and the shift m - SUB_BUCKET_BITS
+	 */
+	private static int bucket(long value)
+	{
+		if(value < 2 * SUB_BUCKETS) return (int) value;
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	private static long highestValue(int bucket)
+	{
+		if(bucket < 2 * SUB_BUCKETS) return bucket;
+
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
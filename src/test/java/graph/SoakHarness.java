@@ -0,0 +1,373 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs a mixed workload of {@link Graph#addVertex}, {@link Graph#addEdge}, {@link Graph#getPath(int, int)}
+ * and {@link Graph#apply} calls from several threads against a graph for a fixed duration,
+ * and reports the throughput and the latency histogram of each operation.
+ *
+ * Each thread calls the operations one after another, chosen at random in proportion to the mix,
+ * with the end vertices of new edges and paths chosen uniformly among the vertices of the graph.
+ * The latencies are measured around each call, so they do not include the time an operation would wait
+ * behind a slow one under a fixed arrival rate.
+ *
+ * A harness can run from the test classes in a separate JVM against a generated R-MAT graph:
+ * {@code java graph.SoakHarness <threads> <seconds> [<scale>]}.
+ *
+ * @param <V> type of the object associated with a vertex
+ * @param <T> type of the edge; a subclass of {@link Edge}
+ */
+public final class SoakHarness<V, T extends Edge>
+{
+	/**
+	 * Operations of the workload
+	 */
+	public enum Operation
+	{
+		ADD_VERTEX,
+		ADD_EDGE,
+		GET_PATH,
+		APPLY
+	}
+
+	private static final Operation[] OPERATIONS = Operation.values();
+
+	private final Graph<V, T> graph;
+	private final IntFunction<? extends V> vertexFactory;
+	private final GraphGenerator.EdgeFactory<? extends T> edgeFactory;
+	private final UnaryOperator<V> function;
+	// Relative frequencies of the operations, in the order of Operation
+	private final int[] mix;
+	private final long seed;
+
+	private SoakHarness(Graph<V, T> graph, IntFunction<? extends V> vertexFactory, GraphGenerator.EdgeFactory<? extends T> edgeFactory,
+			UnaryOperator<V> function, int[] mix, long seed)
+	{
+		this.graph = graph;
+		this.vertexFactory = vertexFactory;
+		this.edgeFactory = edgeFactory;
+		this.function = function;
+		this.mix = mix;
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates a harness with the mix of 10 vertex additions, 30 edge additions, 59 path queries and 1 apply
+	 * of the identity function per 100 operations
+	 * @param graph the graph under test, which may already contain vertices and edges
+	 * @param vertexFactory creates the object of an added vertex from the number of vertices added by the harness
+	 * @param edgeFactory creates added edges
+	 * @param <V> type of the object associated with a vertex
+	 * @param <T> type of the edge; a subclass of {@link Edge}
+	 * @return an instance of harness
+	 */
+	public static <V, T extends Edge> SoakHarness<V, T> of(Graph<V, T> graph, IntFunction<? extends V> vertexFactory,
+			GraphGenerator.EdgeFactory<? extends T> edgeFactory)
+	{
+		return new SoakHarness<>(graph, vertexFactory, edgeFactory, UnaryOperator.identity(), new int[] {10, 30, 59, 1}, 0);
+	}
+
+	/**
+	 * Returns a copy of the harness with another mix of operations
+	 * @param addVertex relative frequency of vertex additions
+	 * @param addEdge relative frequency of edge additions
+	 * @param getPath relative frequency of path queries
+	 * @param apply relative frequency of applying the function to all vertices
+	 * @return a new instance of harness
+	 */
+	public SoakHarness<V, T> withMix(int addVertex, int addEdge, int getPath, int apply)
+	{
+		int[] frequencies = {addVertex, addEdge, getPath, apply};
+		for(int frequency : frequencies)
+		{
+			if(frequency < 0)
+			{
+				throw new IllegalArgumentException("Operation frequency must not be negative: " + frequency);
+			}
+		}
+		if(addVertex + addEdge + getPath + apply == 0)
+		{
+			throw new IllegalArgumentException("Operation frequencies must not be all 0.");
+		}
+		return new SoakHarness<>(graph, vertexFactory, edgeFactory, function, frequencies, seed);
+	}
+
+	/**
+	 * Returns a copy of the harness which applies the specified function
+	 * @param function function applied to each vertex by {@link Graph#apply}
+	 * @return a new instance of harness
+	 */
+	public SoakHarness<V, T> withFunction(UnaryOperator<V> function)
+	{
+		return new SoakHarness<>(graph, vertexFactory, edgeFactory, function, mix, seed);
+	}
+
+	/**
+	 * Returns a copy of the harness whose threads draw the operations and vertices from the specified seed
+	 * @param seed the seed of the random generators of the threads
+	 * @return a new instance of harness
+	 */
+	public SoakHarness<V, T> withSeed(long seed)
+	{
+		return new SoakHarness<>(graph, vertexFactory, edgeFactory, function, mix, seed);
+	}
+
+	/**
+	 * Runs the workload and waits until it is done
+	 * @param threads the number of threads
+	 * @param duration the duration of the run
+	 * @param unit the unit of the duration
+	 * @return the report of the run
+	 * @throws IllegalStateException if an operation fails; the run is stopped at the first failure
+	 */
+	public Report run(int threads, long duration, TimeUnit unit)
+	{
+		if(threads < 1)
+		{
+			throw new IllegalArgumentException("Thread count must be positive: " + threads);
+		}
+		AtomicInteger vertexCount = new AtomicInteger(graph.getVertices().size());
+		AtomicInteger added = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Worker> workers = new ArrayList<>(threads);
+		List<Thread> running = new ArrayList<>(threads);
+		for(int i = 0; i < threads; i++)
+		{
+			Worker worker = new Worker(new Random(seed + i), vertexCount, added, failure);
+			Thread thread = new Thread(() -> worker.run(start, unit.toNanos(duration)), "soak-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			workers.add(worker);
+			running.add(thread);
+		}
+
+		long started = System.nanoTime();
+		start.countDown();
+		try
+		{
+			for(Thread thread : running)
+			{
+				thread.join();
+			}
+		}
+		catch(InterruptedException ex)
+		{
+			failure.compareAndSet(null, ex);
+			Thread.currentThread().interrupt();
+		}
+		long elapsed = System.nanoTime() - started;
+		if(failure.get() != null)
+		{
+			throw new IllegalStateException("Soak run failed", failure.get());
+		}
+
+		Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+		for(Operation operation : OPERATIONS)
+		{
+			LatencyHistogram histogram = new LatencyHistogram();
+			for(Worker worker : workers)
+			{
+				histogram.add(worker.histograms[operation.ordinal()]);
+			}
+			histograms.put(operation, histogram);
+		}
+		return new Report(threads, elapsed, histograms);
+	}
+
+	/**
+	 * Runs a harness against a generated R-MAT graph and prints the report
+	 * @param args the number of threads, the duration in seconds and optionally the scale of the graph, 16 by default
+	 */
+	public static void main(String[] args)
+	{
+		int threads = Integer.parseInt(args[0]);
+		long seconds = Long.parseLong(args[1]);
+		int scale = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		GraphGenerator generator = GraphGenerator.rmat(scale, 8 << scale, 1);
+		Graph<Integer, WeighedEdge> graph = generator.populate(SimpleGraph.newDirected(2 << scale, 16 << scale),
+				Integer::valueOf, GraphGenerator.weighedEdges(100));
+		System.out.println(generator);
+		System.out.println(of(graph, Integer::valueOf, GraphGenerator.weighedEdges(100)).run(threads, seconds, TimeUnit.SECONDS));
+	}
+
+	/*
+		Runs the operations of one thread and records their latencies
+	 */
+	private final class Worker
+	{
+		private final Random random;
+		private final AtomicInteger vertexCount;
+		private final AtomicInteger added;
+		private final AtomicReference<Throwable> failure;
+		private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+		private final int total;
+
+		private Worker(Random random, AtomicInteger vertexCount, AtomicInteger added, AtomicReference<Throwable> failure)
+		{
+			this.random = random;
+			this.vertexCount = vertexCount;
+			this.added = added;
+			this.failure = failure;
+			for(int i = 0; i < histograms.length; i++)
+			{
+				histograms[i] = new LatencyHistogram();
+			}
+			this.total = mix[0] + mix[1] + mix[2] + mix[3];
+		}
+
+		private void run(CountDownLatch start, long durationNanos)
+		{
+			try
+			{
+				start.await();
+				long end = System.nanoTime() + durationNanos;
+				while(System.nanoTime() < end && failure.get() == null)
+				{
+					Operation operation = next();
+					int from = randomVertex();
+					int to = randomVertex();
+					if(from == 0 && (operation == Operation.ADD_EDGE || operation == Operation.GET_PATH)) continue;
+
+					// The operands are created before the clock starts
+					V vertex = operation == Operation.ADD_VERTEX ? vertexFactory.apply(added.getAndIncrement()) : null;
+					T edge = operation == Operation.ADD_EDGE ? edgeFactory.create(from, to, random) : null;
+					long started = System.nanoTime();
+					switch(operation)
+					{
+						case ADD_VERTEX:
+							vertexCount.accumulateAndGet(graph.addVertex(vertex), Math::max);
+							break;
+						case ADD_EDGE:
+							graph.addEdge(edge);
+							break;
+						case GET_PATH:
+							graph.getPath(from, to);
+							break;
+						default:
+							graph.apply(function);
+					}
+					histograms[operation.ordinal()].record(System.nanoTime() - started);
+				}
+			}
+			catch(Throwable ex)
+			{
+				failure.compareAndSet(null, ex);
+			}
+		}
+
+		private Operation next()
+		{
+			int value = random.nextInt(total);
+			int operation = 0;
+			while(value >= mix[operation])
+			{
+				value -= mix[operation++];
+			}
+			return OPERATIONS[operation];
+		}
+
+		/*
+			Returns the ID of a vertex, or 0 if the graph has no vertices yet
+		 */
+		private int randomVertex()
+		{
+			int count = vertexCount.get();
+			return count == 0 ? 0 : 1 + random.nextInt(count);
+		}
+	}
+
+	/**
+	 * Holds the results of a run of the harness
+	 */
+	public static final class Report
+	{
+		private final int threads;
+		private final long elapsedNanos;
+		private final Map<Operation, LatencyHistogram> histograms;
+
+		private Report(int threads, long elapsedNanos, Map<Operation, LatencyHistogram> histograms)
+		{
+			this.threads = threads;
+			this.elapsedNanos = elapsedNanos;
+			this.histograms = histograms;
+		}
+
+		/**
+		 * Returns the number of threads of the run
+		 * @return the number of threads
+		 */
+		public int getThreads()
+		{
+			return threads;
+		}
+
+		/**
+		 * Returns the duration of the run, measured until all threads stopped
+		 * @return the duration in nanoseconds
+		 */
+		public long getElapsedNanos()
+		{
+			return elapsedNanos;
+		}
+
+		/**
+		 * Returns the latencies of an operation
+		 * @param operation the operation
+		 * @return the histogram of the latencies
+		 */
+		public LatencyHistogram getHistogram(Operation operation)
+		{
+			return histograms.get(operation);
+		}
+
+		/**
+		 * Returns the latencies of all operations together
+		 * @return the histogram of the latencies
+		 */
+		public LatencyHistogram getHistogram()
+		{
+			LatencyHistogram total = new LatencyHistogram();
+			for(LatencyHistogram histogram : histograms.values())
+			{
+				total.add(histogram);
+			}
+			return total;
+		}
+
+		/**
+		 * Returns the number of operations completed per second by all threads
+		 * @return the throughput
+		 */
+		public double getThroughput()
+		{
+			return getHistogram().getCount() * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Returns a table of the throughput and the latencies of each operation
+		 * @return string representation of the report
+		 */
+		public String toString()
+		{
+			StringBuilder builder = new StringBuilder(String.format("%d threads, %.1f s, %.0f ops/s%n", threads, elapsedNanos / 1e9,
+					getThroughput()));
+			for(Operation operation : OPERATIONS)
+			{
+				builder.append(String.format("%-10s %s%n", operation, histograms.get(operation)));
+			}
+			return builder.append(String.format("%-10s %s", "ALL", getHistogram())).toString();
+		}
+	}
+}
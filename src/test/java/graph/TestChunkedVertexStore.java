@@ -0,0 +1,222 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestChunkedVertexStore
+{
+	@Test
+	public void testAddAcrossChunks()
+	{
+		ChunkedVertexStore<String> store = new ChunkedVertexStore<>(10);
+		for(int i = 1; i <= 10000; i++)
+		{
+			Assert.assertEquals(i, store.add(i == 500 ? null : "v" + i));
+		}
+
+		Assert.assertEquals(10000, store.size());
+		// Chunks hold 64, 128, 256, ... vertices
+		for(int id : new int[] {1, 64, 65, 192, 193, 449, 4033, 10000})
+		{
+			Assert.assertEquals("v" + id, store.get(id));
+		}
+		Assert.assertNull(store.get(500));
+
+		List<String> snapshot = store.snapshot();
+		Assert.assertEquals(10000, snapshot.size());
+		Assert.assertEquals("v4033", snapshot.get(4032));
+		Assert.assertNull(snapshot.get(499));
+
+		store.apply(vertex -> vertex == null ? "empty" : vertex.toUpperCase());
+		Assert.assertEquals("V10000", store.get(10000));
+		Assert.assertEquals("empty", store.get(500));
+		Assert.assertEquals("v10000", snapshot.get(9999));
+		try
+		{
+			snapshot.set(0, "v0");
+			Assert.fail("Snapshot is read-only");
+		}
+		catch(UnsupportedOperationException ex)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentAdds() throws InterruptedException
+	{
+		ChunkedVertexStore<Integer> store = new ChunkedVertexStore<>(1);
+		int threads = 8;
+		int count = 20000;
+		int[][] ids = new int[threads][count];
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> running = new ArrayList<>();
+		for(int t = 0; t < threads; t++)
+		{
+			int thread = t;
+			running.add(new Thread(() ->
+			{
+				try
+				{
+					start.await();
+					for(int i = 0; i < count; i++)
+					{
+						int value = thread * count + i;
+						ids[thread][i] = store.add(value);
+						if(store.get(ids[thread][i]) != value) throw new AssertionError("Vertex " + ids[thread][i]);
+						if(i % 1000 == 0)
+						{
+							// A snapshot sees all vertices whose ID was claimed before it started
+							int size = store.size();
+							if(store.snapshot().size() < size) throw new AssertionError("Snapshot of " + size);
+						}
+					}
+				}
+				catch(Throwable ex)
+				{
+					failure.compareAndSet(null, ex);
+				}
+			}));
+		}
+		running.forEach(Thread::start);
+		start.countDown();
+		for(Thread thread : running)
+		{
+			thread.join();
+		}
+
+		Assert.assertNull(failure.get());
+		Assert.assertEquals(threads * count, store.size());
+		boolean[] seen = new boolean[threads * count + 1];
+		for(int t = 0; t < threads; t++)
+		{
+			for(int i = 0; i < count; i++)
+			{
+				Assert.assertFalse(seen[ids[t][i]]);
+				seen[ids[t][i]] = true;
+				Assert.assertEquals(Integer.valueOf(t * count + i), store.get(ids[t][i]));
+			}
+		}
+		List<Integer> snapshot = store.snapshot();
+		Assert.assertEquals(threads * count, snapshot.size());
+		Assert.assertEquals(store.get(threads * count), snapshot.get(threads * count - 1));
+	}
+
+	@Test
+	public void testConcurrentAddsStopAtMaxSize() throws InterruptedException
+	{
+		ChunkedVertexStore<Integer> store = new ChunkedVertexStore<>(1, 1000);
+		int threads = 4;
+		AtomicInteger rejected = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> running = new ArrayList<>();
+		for(int t = 0; t < threads; t++)
+		{
+			running.add(new Thread(() ->
+			{
+				try
+				{
+					start.await();
+					for(int i = 0; i < 500; i++)
+					{
+						try
+						{
+							int id = store.add(i);
+							if(id < 1 || id > 1000) throw new AssertionError("Vertex " + id);
+						}
+						catch(IllegalStateException ex)
+						{
+							// The size never goes over the maximum, so no other add is rejected by this one
+							if(store.size() != 1000) throw new AssertionError("Rejected at size " + store.size());
+							rejected.incrementAndGet();
+						}
+					}
+				}
+				catch(Throwable ex)
+				{
+					failure.compareAndSet(null, ex);
+				}
+			}));
+		}
+		running.forEach(Thread::start);
+		start.countDown();
+		for(Thread thread : running)
+		{
+			thread.join();
+		}
+
+		Assert.assertNull(failure.get());
+		Assert.assertEquals(1000, rejected.get());
+		Assert.assertEquals(1000, store.size());
+		// Every claimed slot is written, so reading all of them does not wait forever
+		Assert.assertEquals(1000, store.snapshot().size());
+	}
+
+	@Test
+	public void testSnapshotsDuringApply() throws InterruptedException
+	{
+		ChunkedVertexStore<Integer> store = new ChunkedVertexStore<>(16);
+		for(int i = 0; i < 20000; i++)
+		{
+			store.add(0);
+		}
+		Thread applier = new Thread(() ->
+		{
+			for(int i = 0; i < 50; i++)
+			{
+				store.apply(vertex -> vertex + 1);
+			}
+		});
+		applier.start();
+		int snapshots = 0;
+		while(applier.isAlive() || snapshots == 0)
+		{
+			// A snapshot sees either all or none of the vertices replaced by an application
+			List<Integer> snapshot = store.snapshot();
+			for(Integer vertex : snapshot)
+			{
+				Assert.assertEquals(snapshot.get(0), vertex);
+			}
+			snapshots++;
+		}
+		applier.join();
+		Assert.assertEquals(Integer.valueOf(50), store.snapshot().get(19999));
+	}
+
+	@Test
+	public void testApplyDuringAdds() throws InterruptedException
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newDirected(16, 0);
+		for(int i = 0; i < 1000; i++)
+		{
+			graph.addVertex(0);
+		}
+		Thread adder = new Thread(() ->
+		{
+			for(int i = 0; i < 50000; i++)
+			{
+				graph.addVertex(-1);
+			}
+		});
+		adder.start();
+		for(int i = 0; i < 10; i++)
+		{
+			graph.apply(vertex -> vertex < 0 ? vertex : vertex + 1);
+		}
+		adder.join();
+
+		List<Integer> vertices = graph.getVertices();
+		Assert.assertEquals(51000, vertices.size());
+		Assert.assertEquals(Integer.valueOf(10), vertices.get(0));
+		Assert.assertEquals(Integer.valueOf(10), graph.getVertex(1000));
+		Assert.assertEquals(Integer.valueOf(-1), graph.getVertex(51000));
+	}
+}
@@ -0,0 +1,138 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TestCompressedGraph
+{
+	@Test
+	public void testShortestPathsMatchFrozenGraph()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = newRandomGraph(2000, 8000).reorder(VertexOrdering.REVERSE_CUTHILL_MCKEE);
+		CompressedGraph<Integer> compressed = graph.compress();
+		CompressedGraph<Integer> quantized = graph.compress(0.25f);
+		DijkstraPathFinder<WeighedEdge> dijkstra = new DijkstraPathFinder<>(graph);
+
+		Assert.assertEquals(graph.getVertices(), compressed.getVertices());
+		Assert.assertEquals(graph.getEdgeCount(), compressed.getEdgeCount());
+
+		Random random = new Random(29);
+		for(int query = 0; query < 100; query++)
+		{
+			int from = 1 + random.nextInt(graph.getVertexCount());
+			int to = 1 + random.nextInt(graph.getVertexCount());
+			float expected = weight(dijkstra.find(from, to));
+
+			List<Edge> path = compressed.getShortestPath(from, to);
+			Assert.assertEquals(expected, weight(path), 0.001f);
+			assertPath(from, to, path);
+
+			path = quantized.getShortestPath(from, to);
+			Assert.assertEquals(expected, weight(path), 0.125f * path.size() + 0.001f);
+			assertPath(from, to, path);
+		}
+	}
+
+	@Test
+	public void testBreadthFirstPath()
+	{
+		Graph<String,Edge> graph = SimpleGraph.newUndirected(10, 20);
+		for(int i = 1; i <= 10; i++)
+		{
+			graph.addVertex("Vertex " + i);
+		}
+		for(int i = 1; i < 10; i++)
+		{
+			graph.addEdge(new Edge(i, i + 1));
+		}
+		graph.addEdge(new Edge(2, 9));
+
+		CompressedGraph<String> compressed = graph.freeze().compress();
+		Assert.assertEquals("[(1,2), (2,9), (9,10)]", compressed.getPath(1, 10).toString());
+		Assert.assertEquals("[(10,9), (9,2), (2,1)]", compressed.getShortestPath(10, 1).toString());
+		Assert.assertTrue(compressed.getPath(1, 1).isEmpty());
+		Assert.assertEquals("Vertex 7", compressed.getVertex(7));
+	}
+
+	@Test
+	public void testNegativeWeightRejected()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(2, 1);
+		graph.addVertex("Vertex 1");
+		graph.addVertex("Vertex 2");
+		graph.addEdge(new WeighedEdge(1,2, -1.f));
+
+		CompressedGraph<String> compressed = graph.freeze().compress();
+		Assert.assertEquals("[(1,2|-1.0)]", compressed.getPath(1, 2).toString());
+		try
+		{
+			compressed.getShortestPath(1, 2);
+			Assert.fail("An exception must have been thrown here");
+		}
+		catch(IllegalArgumentException iaex)
+		{
+			Assert.assertEquals("Unable to find shortest path: edge (1,2|-1.0) has negative weight.", iaex.getMessage());
+		}
+		try
+		{
+			compressed.findShortestPath(1, 2);
+			Assert.fail("An exception must have been thrown here");
+		}
+		catch(IllegalArgumentException iaex)
+		{
+			Assert.assertEquals("Unable to find shortest path: edge (1,2|-1.0) has negative weight.", iaex.getMessage());
+		}
+	}
+
+	@Test
+	public void testCompressedAdjacencyIsSmaller()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = newRandomGraph(5000, 20000).reorder(VertexOrdering.REVERSE_CUTHILL_MCKEE);
+		// Plain adjacency takes at least an int target and a float weight per edge
+		long plainBytes = 8L * graph.getEdgeCount();
+		Assert.assertTrue(graph.compress().getAdjacencyBytes() < plainBytes);
+		Assert.assertTrue(graph.compress(1.0f).getAdjacencyBytes() < plainBytes / 2);
+	}
+
+	private static void assertPath(int from, int to, List<Edge> path)
+	{
+		if(path.isEmpty()) return;
+		Assert.assertEquals(from, path.get(0).getFrom());
+		Assert.assertEquals(to, path.get(path.size() - 1).getTo());
+		for(int i = 1; i < path.size(); i++)
+		{
+			Assert.assertEquals(path.get(i - 1).getTo(), path.get(i).getFrom());
+		}
+	}
+
+	private static float weight(List<? extends Edge> path)
+	{
+		float weight = 0;
+		for(Edge edge : path)
+		{
+			weight += ((WeighedEdge) edge).getWeight();
+		}
+		return weight;
+	}
+
+	private static FrozenGraph<Integer,WeighedEdge> newRandomGraph(int vertexCount, int edgeCount)
+	{
+		Random random = new Random(vertexCount);
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newUndirected(vertexCount, edgeCount);
+		for(int i = 0; i < vertexCount; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int i = 0; i < edgeCount; i++)
+		{
+			// Mostly local edges, as in road networks
+			int from = 1 + random.nextInt(vertexCount);
+			int to = Math.min(vertexCount, Math.max(1, from + random.nextInt(21) - 10));
+			graph.addEdge(new WeighedEdge(from, to, 0.5f + random.nextInt(100) / 4.0f));
+		}
+		return graph.freeze();
+	}
+}
@@ -0,0 +1,127 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestContractionHierarchy
+{
+	@Test
+	public void testShortestPathInDirectedGraph()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(5, 10);
+		graph.addVertex("Vertex 1");
+		graph.addVertex("Vertex 2");
+		graph.addVertex("Vertex 3");
+		graph.addVertex("Vertex 4");
+		graph.addVertex("Vertex 5");
+
+		graph.addEdge(new WeighedEdge(1,2, 1.4f));
+		graph.addEdge(new WeighedEdge(2,3, 2.7f));
+		graph.addEdge(new WeighedEdge(2,4, 3.1f));
+		graph.addEdge(new WeighedEdge(3,5, 6.5f));
+		graph.addEdge(new WeighedEdge(4,3, 0.2f));
+		graph.addEdge(new WeighedEdge(5,2, 12.f));
+		graph.addEdge(new WeighedEdge(1,3, 2.f));
+
+		GraphPathFinder<WeighedEdge> finder = new ContractionHierarchyPathFinder<>(graph.freeze(), 2);
+
+		List<WeighedEdge> path = finder.find(1, 5);
+		Assert.assertEquals("[(1,3|2.0), (3,5|6.5)]", path.toString());
+
+		path = finder.find(5, 4);
+		Assert.assertEquals("[(5,2|12.0), (2,4|3.1)]", path.toString());
+
+		Assert.assertTrue(finder.find(3, 1).isEmpty());
+	}
+
+	@Test
+	public void testShortestPathsInRandomGrid()
+	{
+		Random random = new Random(26);
+		int side = 30;
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newUndirected(side * side, 4 * side * side);
+		for(int i = 0; i < side * side; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int row = 0; row < side; row++)
+		{
+			for(int column = 0; column < side; column++)
+			{
+				int v = row * side + column + 1;
+				if(column + 1 < side) graph.addEdge(new WeighedEdge(v, v + 1, 1 + random.nextInt(20)));
+				if(row + 1 < side) graph.addEdge(new WeighedEdge(v, v + side, 1 + random.nextInt(20)));
+			}
+		}
+		FrozenGraph<Integer,WeighedEdge> frozen = graph.freeze();
+		ContractionHierarchyPathFinder<WeighedEdge> finder = new ContractionHierarchyPathFinder<>(frozen, 4);
+		Assert.assertTrue(finder.getShortcutCount() > 0);
+
+		for(int query = 0; query < 200; query++)
+		{
+			int from = 1 + random.nextInt(side * side);
+			int to = 1 + random.nextInt(side * side);
+			if(from == to) continue;
+
+			List<WeighedEdge> path = finder.find(from, to);
+			Assert.assertEquals(from, path.get(0).getFrom());
+			Assert.assertEquals(to, path.get(path.size() - 1).getTo());
+			float weight = 0;
+			for(int i = 0; i < path.size(); i++)
+			{
+				if(i > 0) Assert.assertEquals(path.get(i - 1).getTo(), path.get(i).getFrom());
+				weight += path.get(i).getWeight();
+			}
+			Assert.assertEquals(dijkstra(frozen, from)[to], weight, 0.001f);
+		}
+	}
+
+	@Test
+	public void testNegativeWeightRejected()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(2, 1);
+		graph.addVertex("Vertex 1");
+		graph.addVertex("Vertex 2");
+		graph.addEdge(new WeighedEdge(1,2, -1.f));
+
+		try
+		{
+			new ContractionHierarchyPathFinder<>(graph.freeze());
+			Assert.fail("An exception must have been thrown here");
+		}
+		catch(IllegalArgumentException iaex)
+		{
+			Assert.assertEquals("Unable to build contraction hierarchy: edge (1,2|-1.0) has negative weight.", iaex.getMessage());
+		}
+	}
+
+	/*
+		Reference distances computed by a quadratic Dijkstra algorithm
+	 */
+	private static float[] dijkstra(FrozenGraph<?,WeighedEdge> graph, int source)
+	{
+		int n = graph.getVertexCount();
+		float[] distances = new float[n + 1];
+		boolean[] settled = new boolean[n + 1];
+		Arrays.fill(distances, Float.POSITIVE_INFINITY);
+		distances[source] = 0;
+		for(int step = 0; step < n; step++)
+		{
+			int u = 0;
+			for(int v = 1; v <= n; v++)
+			{
+				if(!settled[v] && (u == 0 || distances[v] < distances[u])) u = v;
+			}
+			settled[u] = true;
+			for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+			{
+				distances[graph.target(e)] = Math.min(distances[graph.target(e)], distances[u] + graph.weight(e));
+			}
+		}
+		return distances;
+	}
+}
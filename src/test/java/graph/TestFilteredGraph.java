@@ -0,0 +1,191 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+public class TestFilteredGraph
+{
+	@Test
+	public void testPathAvoidingVertexAndHeavyEdges()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newUndirected(5, 5);
+		for(String name : new String[] {"A", "B", "C", "D", "E"})
+		{
+			graph.addVertex(name);
+		}
+		graph.addEdge(new WeighedEdge(1, 2, 1));
+		graph.addEdge(new WeighedEdge(2, 5, 1));
+		graph.addEdge(new WeighedEdge(1, 3, 1));
+		graph.addEdge(new WeighedEdge(3, 4, 8));
+		graph.addEdge(new WeighedEdge(4, 5, 1));
+
+		Assert.assertEquals("[(1,2|1.0), (2,5|1.0)]", graph.getPath(1, 5).toString());
+		Assert.assertEquals("[(1,3|1.0), (3,4|8.0), (4,5|1.0)]", graph.getPath(1, 5, null, id -> id != 2).toString());
+		Assert.assertTrue(graph.getPath(1, 5, edge -> edge.getWeight() < 5, id -> id != 2).isEmpty());
+		Assert.assertTrue(graph.getPath(1, 5, null, id -> id != 5).isEmpty());
+		Assert.assertEquals("[(5,2|1.0), (2,1|1.0)]", graph.getPath(5, 1, edge -> edge.getWeight() < 5, null).toString());
+	}
+
+	@Test
+	public void testExcludedRegionIsNotVisited()
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newDirected(10, 9);
+		for(int i = 0; i < 10; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int v = 1; v < 10; v++)
+		{
+			graph.addEdge(new Edge(v, v + 1));
+		}
+		Set<Integer> tested = new HashSet<>();
+		Set<Edge> testedEdges = new HashSet<>();
+		Predicate<Edge> edgeFilter = edge ->
+		{
+			testedEdges.add(edge);
+			return true;
+		};
+		IntPredicate vertexFilter = id ->
+		{
+			tested.add(id);
+			return id != 5;
+		};
+
+		Assert.assertTrue(graph.getPath(1, 10, edgeFilter, vertexFilter).isEmpty());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5)), tested);
+		Assert.assertEquals(3, testedEdges.size());
+
+		tested.clear();
+		FrozenGraph<Integer,Edge> view = graph.freeze().filter(null, vertexFilter);
+		Assert.assertTrue(new DijkstraPathFinder<>(view).find(1, 10).isEmpty());
+		Assert.assertFalse(tested.contains(6));
+		Assert.assertEquals("(1,2),(2,3),(3,4),(6,7),(7,8),(8,9),(9,10)", view.toString());
+	}
+
+	@Test
+	public void testViewsMatchFilteredCopies()
+	{
+		Random random = new Random(39);
+		int vertexCount = 300;
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newDirected(vertexCount, 1500);
+		for(int i = 0; i < vertexCount; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int i = 0; i < 1500; i++)
+		{
+			graph.addEdge(new WeighedEdge(1 + random.nextInt(vertexCount), 1 + random.nextInt(vertexCount), 1 + random.nextInt(20)));
+		}
+		BitSet mask = new BitSet();
+		for(int v = 1; v <= vertexCount; v++)
+		{
+			if(random.nextInt(5) != 0) mask.set(v);
+		}
+		Predicate<WeighedEdge> light = edge -> edge.getWeight() <= 15;
+
+		// The filtered copy keeps vertex IDs, with the excluded vertices isolated
+		Graph<Integer,WeighedEdge> copy = SimpleGraph.newDirected(vertexCount, 1500);
+		for(int i = 0; i < vertexCount; i++)
+		{
+			copy.addVertex(i);
+		}
+		for(WeighedEdge edge : graph.getEdges())
+		{
+			if(mask.get(edge.getFrom()) && mask.get(edge.getTo()) && light.test(edge)) copy.addEdge(edge);
+		}
+		FrozenGraph<Integer,WeighedEdge> expected = copy.freeze();
+
+		FrozenGraph<Integer,WeighedEdge> frozen = graph.freeze();
+		FrozenGraph<Integer,WeighedEdge> view = frozen.filter(mask).filter(light, null);
+		FrozenGraph<Integer,WeighedEdge> reordered = frozen.reorder(VertexOrdering.REVERSE_CUTHILL_MCKEE).filter(light, mask::get);
+		FrozenGraph<Integer,WeighedEdge> reorderedView = view.reorder(VertexOrdering.DEGREE);
+
+		DijkstraPathFinder<WeighedEdge> dijkstra = new DijkstraPathFinder<>(expected);
+		List<GraphPathFinder<WeighedEdge>> finders = Arrays.asList(new DijkstraPathFinder<>(view),
+				new DijkstraPathFinder<>(reordered), new DijkstraPathFinder<>(reorderedView),
+				new LandmarkPathFinder<>(view, 4, LandmarkSelection.FARTHEST, 1), new ContractionHierarchyPathFinder<>(view, 1));
+		CompressedGraph<Integer> compressed = view.compress();
+		Assert.assertEquals(expected.getEdgeCount(), compressed.getEdgeCount());
+		for(int from = 1; from <= vertexCount; from += 7)
+		{
+			for(int to = 1; to <= vertexCount; to += 11)
+			{
+				float distance = weight(dijkstra.find(from, to));
+				for(GraphPathFinder<WeighedEdge> finder : finders)
+				{
+					Assert.assertEquals(distance, weight(finder.find(from, to)), 0.001f);
+				}
+				Assert.assertEquals(distance, weight(compressed.getShortestPath(from, to)), 0.001f);
+				Assert.assertEquals(expected.getPath(from, to).size(), view.getPath(from, to).size());
+				Assert.assertEquals(expected.getPath(from, to).size(), reordered.getPath(from, to).size());
+
+				if(from == to) continue;
+				List<List<WeighedEdge>> paths = view.getKShortestPaths(from, to, 3);
+				List<List<WeighedEdge>> expectedPaths = expected.getKShortestPaths(from, to, 3);
+				Assert.assertEquals(expectedPaths.size(), paths.size());
+				for(int i = 0; i < paths.size(); i++)
+				{
+					Assert.assertEquals(weight(expectedPaths.get(i)), weight(paths.get(i)), 0.001f);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testViewSharesSnapshot()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(3, 3);
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addVertex("C");
+		graph.addEdge(new WeighedEdge(1, 2, 1));
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+		graph.addEdge(new WeighedEdge(1, 3, 5));
+		FrozenGraph<String,WeighedEdge> frozen = graph.freeze();
+		BitSet mask = new BitSet();
+		mask.set(1);
+		mask.set(3);
+		FrozenGraph<String,WeighedEdge> view = frozen.filter(mask);
+		mask.set(2);
+
+		Assert.assertEquals(frozen.getEdges(), view.getEdges());
+		Assert.assertEquals(3, view.getVertexCount());
+		Assert.assertEquals("B", view.getVertex(2));
+		Assert.assertEquals("[(1,3|5.0)]", view.getPath(1, 3, new GraphPathFinder<WeighedEdge>()
+		{
+			private Map<Integer, List<WeighedEdge>> transitions;
+
+			@Override public void setTransitionMap(Map<Integer, List<WeighedEdge>> transitionMap)
+			{
+				transitions = transitionMap;
+			}
+
+			@Override public List<WeighedEdge> find(int from, int to)
+			{
+				return transitions.get(from);
+			}
+		}).toString());
+		Assert.assertEquals("[(1,3|5.0)]", view.withWeights((edge, from, to) -> 1).getPath(1, 3).toString());
+		Assert.assertEquals("[(1,2|1.0), (2,3|1.0)]", new DijkstraPathFinder<>(frozen).find(1, 3).toString());
+	}
+
+	private static float weight(List<? extends Edge> path)
+	{
+		float weight = 0;
+		for(Edge edge : path)
+		{
+			weight += ((WeighedEdge) edge).getWeight();
+		}
+		return weight;
+	}
+}
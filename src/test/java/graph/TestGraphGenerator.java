@@ -0,0 +1,96 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestGraphGenerator
+{
+	@Test
+	public void testErdosRenyi()
+	{
+		GraphGenerator generator = GraphGenerator.erdosRenyi(100, 400, 40);
+		Graph<Integer,WeighedEdge> graph = generator.populate(SimpleGraph.newDirected(100, 400), i -> i, GraphGenerator.weighedEdges(10));
+		Assert.assertEquals(100, graph.getVertices().size());
+		Assert.assertEquals(Integer.valueOf(99), graph.getVertex(100));
+
+		List<WeighedEdge> edges = graph.getEdges();
+		Assert.assertEquals(400, edges.size());
+		for(WeighedEdge edge : edges)
+		{
+			Assert.assertNotEquals(edge.getFrom(), edge.getTo());
+			Assert.assertTrue(edge.getWeight() >= 1 && edge.getWeight() <= 10);
+		}
+
+		Graph<Integer,WeighedEdge> same = generator.populate(SimpleGraph.newDirected(100, 400), i -> i, GraphGenerator.weighedEdges(10));
+		Assert.assertEquals(sorted(edges), sorted(same.getEdges()));
+	}
+
+	@Test
+	public void testRmatDegreesAreSkewed()
+	{
+		GraphGenerator generator = GraphGenerator.rmat(10, 8192, 40);
+		Assert.assertEquals(1024, generator.getVertexCount());
+		Graph<String,Edge> graph = generator.populate(SimpleGraph.newDirected(1024, 8192), i -> "v" + i, GraphGenerator.edges());
+		FrozenGraph<String,Edge> frozen = graph.freeze();
+		Assert.assertEquals(8192, frozen.getEdgeCount());
+
+		int maxDegree = 0;
+		int isolated = 0;
+		for(int v = 1; v <= 1024; v++)
+		{
+			int degree = frozen.edgeEnd(frozen.internal(v)) - frozen.edgeStart(frozen.internal(v));
+			maxDegree = Math.max(maxDegree, degree);
+			if(degree == 0) isolated++;
+		}
+		// A uniform graph of the same size has the maximal degree around 20 and almost no isolated vertices
+		Assert.assertTrue("Max degree " + maxDegree, maxDegree > 100);
+		Assert.assertTrue("Isolated " + isolated, isolated > 100);
+	}
+
+	@Test
+	public void testGrid()
+	{
+		GraphGenerator generator = GraphGenerator.grid(4, 5, 40);
+		Assert.assertEquals(20, generator.getVertexCount());
+		Assert.assertEquals(31, generator.getEdgeCount());
+
+		Graph<Integer,Edge> graph = SimpleGraph.newUndirected(21, 31);
+		graph.addVertex(-1);
+		generator.populate(graph, i -> i, GraphGenerator.edges());
+		Assert.assertEquals(31, graph.getEdges().size());
+		// Vertex IDs are shifted by the vertex added before; opposite corners are 3 + 4 edges apart
+		Assert.assertEquals(7, graph.getPath(2, 21).size());
+		Assert.assertEquals("[(2,3), (3,4), (4,5), (5,6)]", graph.getPath(2, 6).toString());
+	}
+
+	@Test
+	public void testInvalidParameters()
+	{
+		try
+		{
+			GraphGenerator.rmat(31, 10, 1);
+			Assert.fail("Scale is too large");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to generate graph: scale 31, 10 edges.", ex.getMessage());
+		}
+		try
+		{
+			GraphGenerator.rmat(10, 10, 0.6, 0.3, 0.2, 1);
+			Assert.fail("Probabilities exceed 1");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Invalid quadrant probabilities: 0.6, 0.3, 0.2", ex.getMessage());
+		}
+	}
+
+	private static List<String> sorted(List<? extends Edge> edges)
+	{
+		return edges.stream().map(Edge::toString).sorted().collect(Collectors.toList());
+	}
+}
@@ -10,6 +10,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class TestGraphMultiThreaded
@@ -209,5 +210,45 @@ public class TestGraphMultiThreaded
 			executorService.shutdown();
 		}
 	}
-}
 
+	@Test(timeout = 10000)
+	public void testPathQueriesDoNotBlockEachOther() throws Exception
+	{
+		SimpleGraph<String,Edge> graph = (SimpleGraph<String,Edge>) SimpleGraph.<String,Edge>newUndirected(3, 2);
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addVertex("C");
+		graph.addEdge(new Edge(1, 2));
+		graph.addEdge(new Edge(2, 3));
+
+		CountDownLatch searching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try
+		{
+			// The first query holds the graph locked against changes until the second one completes
+			Future<List<Edge>> blocked = executorService.submit(() -> graph.getPath(1, 3, null, vertex -> {
+				searching.countDown();
+				try
+				{
+					release.await();
+				}
+				catch(InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}));
+			searching.await();
+			Assert.assertEquals(2, graph.getPath(3, 1).size());
+			Assert.assertEquals(2, graph.getPath(1, 3, new DijkstraPathFinder<>(graph.freeze())).size());
+			release.countDown();
+			Assert.assertEquals(2, blocked.get(5, TimeUnit.SECONDS).size());
+		}
+		finally
+		{
+			release.countDown();
+			executorService.shutdown();
+		}
+	}
+}
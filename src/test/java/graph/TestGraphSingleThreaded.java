@@ -226,5 +226,31 @@ public class TestGraphSingleThreaded
 
 	}
 
+	@Test
+	public void testPathFollowsChangesOfTheGraph()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newUndirected(4, 4);
+		for(String vertex : new String[]{"A", "B", "C", "D"})
+		{
+			graph.addVertex(vertex);
+		}
+		graph.addEdge(new WeighedEdge(2, 1, 1));
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+
+		List<WeighedEdge> path = graph.getPath(1, 3);
+		Assert.assertEquals("[(1,2|1.0), (2,3|1.0)]", path.toString());
+		Assert.assertTrue(graph.getPath(1, 4).isEmpty());
+
+		// Returned edges are copies
+		graph.updateWeight(2, 3, 7);
+		Assert.assertEquals("[(1,2|1.0), (2,3|1.0)]", path.toString());
+		Assert.assertEquals("[(3,2|7.0), (2,1|1.0)]", graph.getPath(3, 1).toString());
+
+		graph.addEdge(new WeighedEdge(4, 3, 1));
+		Assert.assertEquals("[(1,2|1.0), (2,3|7.0), (3,4|1.0)]", graph.getPath(1, 4).toString());
+		Assert.assertTrue(graph.getPath(1, 4, edge -> edge.getWeight() < 5, null).isEmpty());
+		Assert.assertEquals("[(3,4|1.0)]", graph.getPath(3, 4, edge -> edge.getFrom() == 3, null).toString());
+	}
+
 
 }
@@ -0,0 +1,215 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class TestGraphSubscription
+{
+	@Test
+	public void testEventsOfMutations()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newUndirected(3, 2);
+		graph.addVertex("Ignored");
+		GraphSubscription<String,WeighedEdge> subscription = graph.subscribe();
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+		graph.updateWeight(3, 2, 5);
+		graph.apply(vertex -> vertex.toLowerCase());
+
+		List<GraphEvent<String,WeighedEdge>> events = subscription.poll(4);
+		Assert.assertEquals("[0:VERTEX_ADDED(2|A), 1:VERTEX_ADDED(3|B), 2:EDGE_ADDED(2,3|1.0), 3:WEIGHT_UPDATED(2,3|5.0)]",
+				events.toString());
+		Assert.assertEquals(GraphEvent.Type.VERTEX_ADDED, events.get(0).getType());
+		Assert.assertEquals(2, events.get(0).getVertexId());
+		Assert.assertEquals("A", events.get(0).getVertex());
+		Assert.assertNull(events.get(0).getEdge());
+		Assert.assertEquals(5, events.get(3).getEdge().getWeight(), 0);
+
+		events = subscription.poll(10);
+		Assert.assertEquals("[4:VERTEX_REPLACED(1|ignored), 5:VERTEX_REPLACED(2|a), 6:VERTEX_REPLACED(3|b)]", events.toString());
+		Assert.assertTrue(subscription.poll(10).isEmpty());
+
+		subscription.close();
+		graph.addVertex("C");
+		Assert.assertTrue(subscription.poll(10).isEmpty());
+	}
+
+	@Test
+	public void testBackpressureAndIndependentCursors() throws InterruptedException
+	{
+		ChangeStream<Integer,Edge> stream = new ChangeStream<>(8);
+		GraphSubscription<Integer,Edge> fast = stream.subscribe();
+		GraphSubscription<Integer,Edge> slow = stream.subscribe();
+		int count = 2000;
+		List<Thread> writers = new ArrayList<>();
+		for(int t = 0; t < 3; t++)
+		{
+			Thread writer = new Thread(() -> {
+				for(int i = 0; i < count; i++)
+				{
+					long sequence = stream.claim();
+					stream.publish(sequence, GraphEvent.Type.VERTEX_ADDED, (int) sequence, null, null);
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+
+		Thread fastReader = new Thread(() -> Assert.assertEquals(3 * count, read(fast, 3 * count, 100)));
+		fastReader.start();
+		Assert.assertEquals(3 * count, read(slow, 3 * count, 3));
+		fastReader.join();
+		for(Thread writer : writers)
+		{
+			writer.join();
+		}
+	}
+
+	@Test
+	public void testClosedSubscriptionDoesNotBlockWriters()
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newDirected(16, 16);
+		GraphSubscription<Integer,Edge> subscription = graph.subscribe();
+		for(int i = 0; i < 100; i++)
+		{
+			graph.addVertex(i);
+		}
+		Assert.assertEquals(100, subscription.poll(1000).size());
+		subscription.close();
+		for(int i = 0; i < 5000; i++)
+		{
+			graph.addVertex(i);
+		}
+		Assert.assertEquals(5100, graph.getVertices().size());
+	}
+
+	@Test
+	public void testPartitionedGraphEvents()
+	{
+		try(PartitionedGraph<String,Edge> graph = PartitionedGraph.newDirected(2))
+		{
+			GraphSubscription<String,Edge> subscription = graph.subscribe();
+			graph.addVertex("A");
+			graph.addVertex("B");
+			graph.addEdge(new Edge(1, 2));
+			List<String> types = subscription.poll(10, 1, TimeUnit.SECONDS).stream()
+					.map(event -> event.getType().name()).collect(Collectors.toList());
+			Assert.assertEquals("[VERTEX_ADDED, VERTEX_ADDED, EDGE_ADDED]", types.toString());
+		}
+	}
+
+	@Test
+	public void testPartitionedGraphWeightUpdateEvent()
+	{
+		try(PartitionedGraph<String,WeighedEdge> graph = PartitionedGraph.newUndirected(2))
+		{
+			graph.addVertex("A");
+			graph.addVertex("B");
+			graph.addEdge(new WeighedEdge(1, 2, 1));
+			GraphSubscription<String,WeighedEdge> subscription = graph.subscribe();
+			graph.updateWeight(2, 1, 5);
+			graph.apply(vertex -> vertex.toLowerCase());
+			Assert.assertEquals("[0:WEIGHT_UPDATED(1,2|5.0), 1:VERTEX_REPLACED(1|a), 2:VERTEX_REPLACED(2|b)]",
+					subscription.poll(10, 1, TimeUnit.SECONDS).toString());
+		}
+	}
+
+	@Test
+	public void testCancelledSequencesAreSkipped()
+	{
+		ChangeStream<Integer,Edge> stream = new ChangeStream<>(16);
+		GraphSubscription<Integer,Edge> subscription = stream.subscribe();
+		for(int i = 0; i < 10; i++)
+		{
+			long sequence = stream.claim();
+			if(i % 3 == 0) stream.cancel(sequence);
+			else stream.publish(sequence, GraphEvent.Type.VERTEX_ADDED, i, null, null);
+		}
+		long first = stream.claim(3);
+		stream.publishReplaced(first, 3, Collections.singletonList(7));
+
+		List<Integer> ids = subscription.poll(100).stream().map(GraphEvent::getVertexId).collect(Collectors.toList());
+		Assert.assertEquals("[1, 2, 4, 5, 7, 8, 1]", ids.toString());
+		stream.publish(stream.claim(), GraphEvent.Type.VERTEX_ADDED, 11, null, null);
+		Assert.assertEquals(13, subscription.poll(100).get(0).getSequence());
+	}
+
+	@Test
+	public void testEventsFollowMutationOrder() throws InterruptedException
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newDirected(16, 16);
+		graph.addVertex(0);
+		GraphSubscription<Integer,Edge> subscription = graph.subscribe();
+		int count = 3000;
+		Thread adder = new Thread(() -> {
+			for(int i = 0; i < count; i++)
+			{
+				graph.addEdge(new Edge(1, graph.addVertex(i)));
+			}
+		});
+		Thread applier = new Thread(() -> {
+			for(int i = 0; i < 20; i++)
+			{
+				graph.apply(vertex -> vertex);
+			}
+		});
+		adder.start();
+		applier.start();
+
+		Set<Integer> added = new HashSet<>(Collections.singleton(1));
+		long next = 0;
+		int edges = 0;
+		while(edges < count || adder.isAlive() || applier.isAlive())
+		{
+			for(GraphEvent<Integer,Edge> event : subscription.poll(64, 10, TimeUnit.MILLISECONDS))
+			{
+				Assert.assertEquals(next++, event.getSequence());
+				switch(event.getType())
+				{
+					case VERTEX_ADDED:
+						Assert.assertTrue(added.add(event.getVertexId()));
+						break;
+					case EDGE_ADDED:
+						Assert.assertTrue(added.contains(event.getEdge().getTo()));
+						edges++;
+						break;
+					case VERTEX_REPLACED:
+						Assert.assertTrue(added.contains(event.getVertexId()));
+						break;
+					default:
+						Assert.fail(event.toString());
+				}
+			}
+		}
+		adder.join();
+		applier.join();
+		Assert.assertEquals(count + 1, added.size());
+	}
+
+	/*
+		Reads the events in batches of at most the given size, checking that sequence numbers are consecutive
+	 */
+	private static int read(GraphSubscription<Integer,Edge> subscription, int count, int batchSize)
+	{
+		int read = 0;
+		while(read < count)
+		{
+			for(GraphEvent<Integer,Edge> event : subscription.poll(batchSize, 1, TimeUnit.SECONDS))
+			{
+				Assert.assertEquals(read, event.getSequence());
+				Assert.assertEquals(read, event.getVertexId());
+				read++;
+			}
+		}
+		return read;
+	}
+}
@@ -0,0 +1,362 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TestJournaledGraph
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRecoveryFromSnapshotAndJournal() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,WeighedEdge> graph = open(directory, 0))
+		{
+			for(int i = 1; i <= 50; i++)
+			{
+				graph.addVertex("Vertex " + i);
+			}
+			for(int i = 1; i < 50; i++)
+			{
+				graph.addEdge(new WeighedEdge(i, i + 1, i));
+			}
+			graph.snapshot();
+			graph.addVertex("Vertex 51");
+			graph.addEdge(new WeighedEdge(50, 51, 7));
+			graph.updateWeight(2, 3, 100);
+			graph.updateWeight(51, 50, 8);
+		}
+
+		try(JournaledGraph<String,WeighedEdge> graph = open(directory, 0))
+		{
+			Assert.assertEquals(51, graph.getVertices().size());
+			Assert.assertEquals("Vertex 51", graph.getVertex(51));
+			Assert.assertEquals(50, graph.getEdges().size());
+			Assert.assertEquals(100, weightOf(graph, 2, 3), 0);
+			Assert.assertEquals(8, weightOf(graph, 50, 51), 0);
+			Assert.assertEquals(49, graph.getPath(51, 2).size());
+
+			graph.apply(vertex -> vertex.toUpperCase());
+		}
+
+		try(JournaledGraph<String,WeighedEdge> graph = open(directory, 0))
+		{
+			Assert.assertEquals("VERTEX 7", graph.getVertex(7));
+			Assert.assertEquals(50, graph.getEdges().size());
+		}
+	}
+
+	@Test
+	public void testTornRecordIsDiscarded() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			graph.addVertex("A");
+			graph.addVertex("B");
+			graph.addEdge(new Edge(1, 2));
+			graph.addVertex("C");
+		}
+		Path journal = Files.list(directory).filter(file -> file.getFileName().toString().startsWith("journal.")).findFirst().get();
+		try(RandomAccessFile file = new RandomAccessFile(journal.toFile(), "rw"))
+		{
+			file.setLength(file.length() - 2);
+		}
+
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertEquals("[A, B]", graph.getVertices().toString());
+			Assert.assertEquals(1, graph.getEdges().size());
+			graph.addVertex("D");
+		}
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertEquals("[A, B, D]", graph.getVertices().toString());
+		}
+	}
+
+	@Test
+	public void testSnapshotsTruncateJournal() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = open(directory, 2048))
+		{
+			for(int i = 1; i <= 2000; i++)
+			{
+				graph.addVertex("Vertex " + i);
+				if(i > 1) graph.addEdge(new Edge(i - 1, i));
+			}
+			graph.flush();
+		}
+		long journaled = Files.list(directory).filter(file -> file.getFileName().toString().startsWith("journal."))
+				.mapToLong(file -> file.toFile().length()).sum();
+		Assert.assertTrue(Files.exists(directory.resolve("snapshot")));
+		Assert.assertTrue(journaled < 64 * 1024);
+
+		try(JournaledGraph<String,Edge> graph = open(directory, 2048))
+		{
+			Assert.assertEquals(2000, graph.getVertices().size());
+			Assert.assertEquals(1999, graph.getEdges().size());
+			Assert.assertEquals(99, graph.getPath(1901, 2000).size());
+		}
+	}
+
+	@Test
+	public void testConcurrentMutationsShareSyncs() throws Exception
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			for(int i = 1; i <= 10; i++)
+			{
+				graph.addVertex("Vertex " + i);
+			}
+			List<Thread> threads = new ArrayList<>();
+			for(int t = 0; t < 4; t++)
+			{
+				int offset = t;
+				Thread thread = new Thread(() -> {
+					for(int i = 0; i < 100; i++)
+					{
+						graph.addEdge(new WeighedEdge(1 + offset, 1 + i % 10, i));
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for(Thread thread : threads)
+			{
+				thread.join();
+			}
+		}
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertEquals(400, graph.getEdges().size());
+			Set<String> edges = graph.getEdges().stream().map(Edge::toString).collect(Collectors.toSet());
+			Assert.assertTrue(edges.contains("(4,10|99.0)"));
+		}
+	}
+
+	@Test
+	public void testInvalidArguments() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		Graph<String,Edge> nonEmpty = SimpleGraph.newDirected(1, 1);
+		nonEmpty.addVertex("A");
+		try
+		{
+			JournaledGraph.open(directory, nonEmpty, PayloadCodec.utf8());
+			Assert.fail("The graph is not empty");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to open journal: the graph is not empty.", ex.getMessage());
+		}
+
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			graph.addVertex("A");
+			try
+			{
+				graph.addEdge(new Edge(1, 1) {});
+				Assert.fail("Anonymous edge classes cannot be journaled");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertTrue(ex.getMessage().endsWith(" cannot be journaled."));
+			}
+			try
+			{
+				graph.addEdge(new Edge(1, 2));
+				Assert.fail("Vertex 2 does not exist");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertEquals("Unable to add edge: vertex 1 or 2 not found.", ex.getMessage());
+			}
+		}
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertTrue(graph.getEdges().isEmpty());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testMutationsAfterClose() throws IOException
+	{
+		for(long syncInterval : new long[] {0, 10})
+		{
+			JournaledGraph<String,Edge> graph = JournaledGraph.open(folder.newFolder().toPath(), SimpleGraph.newDirected(4, 4),
+					PayloadCodec.utf8(), syncInterval, 1L << 30);
+			graph.addVertex("A");
+			graph.close();
+			try
+			{
+				graph.addVertex("B");
+				Assert.fail("The journal is closed");
+			}
+			catch(IllegalStateException ex)
+			{
+				Assert.assertEquals("Journal is closed", ex.getMessage());
+			}
+			Assert.assertEquals(1, graph.getVertices().size());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testSyncIntervalIsHonored() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = JournaledGraph.open(directory, SimpleGraph.newDirected(4, 4), PayloadCodec.utf8(),
+				60_000, 1L << 30))
+		{
+			graph.addVertex("A");
+			graph.flush();
+			long synced = Files.size(directory.resolve("journal.1"));
+			graph.addVertex("B");
+			graph.addVertex("C");
+			// The records are written at the next interval, not as soon as they are appended
+			Assert.assertEquals(synced, Files.size(directory.resolve("journal.1")));
+			graph.flush();
+			Assert.assertTrue(Files.size(directory.resolve("journal.1")) > synced);
+		}
+	}
+
+	@Test
+	public void testCorruptEarlierJournalFailsOpening() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			graph.addVertex("A");
+			graph.addVertex("B");
+		}
+		// A later generation, as left by snapshots that failed after rotating the journal
+		Files.copy(directory.resolve("journal.1"), directory.resolve("journal.2"));
+		long size = Files.size(directory.resolve("journal.1"));
+		try(RandomAccessFile file = new RandomAccessFile(directory.resolve("journal.1").toFile(), "rw"))
+		{
+			file.seek(size - 1);
+			int last = file.read();
+			file.seek(size - 1);
+			file.write(last ^ 1);
+		}
+
+		try
+		{
+			open(directory, 0);
+			Assert.fail("Journal 1 is corrupt");
+		}
+		catch(UncheckedIOException ex)
+		{
+			Assert.assertTrue(ex.getCause().getMessage().contains("is corrupt at offset"));
+		}
+		Assert.assertEquals(size, Files.size(directory.resolve("journal.1")));
+		Assert.assertEquals(size, Files.size(directory.resolve("journal.2")));
+	}
+
+	@Test(timeout = 10000)
+	public void testSnapshotFailureIsReportedByNextMutation() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		// The snapshot cannot be written over a directory
+		Files.createDirectory(directory.resolve("snapshot.tmp"));
+		try(JournaledGraph<String,Edge> graph = JournaledGraph.open(directory, SimpleGraph.newDirected(4, 4), PayloadCodec.utf8(),
+				0, 64))
+		{
+			int added = 0;
+			try
+			{
+				while(true)
+				{
+					graph.addVertex("Vertex " + added);
+					added++;
+				}
+			}
+			catch(UncheckedIOException ex)
+			{
+				Assert.assertTrue(ex.getMessage().startsWith("Unable to write snapshot"));
+			}
+			// The failed mutation is not applied, and the next one succeeds
+			Assert.assertEquals(added, graph.getVertices().size());
+			Files.delete(directory.resolve("snapshot.tmp"));
+			graph.addVertex("Last");
+			graph.snapshot();
+		}
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertEquals("Last", graph.getVertex(graph.getVertices().size()));
+		}
+	}
+
+	@Test
+	public void testFailedApplyBlocksMutationsUntilSnapshot() throws IOException
+	{
+		Path directory = folder.newFolder().toPath();
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			graph.addVertex("a");
+			graph.addVertex("b");
+			Files.createDirectory(directory.resolve("snapshot.tmp"));
+			try
+			{
+				graph.apply(vertex -> vertex.toUpperCase());
+				Assert.fail("The snapshot cannot be written over a directory");
+			}
+			catch(UncheckedIOException ex)
+			{
+				Assert.assertTrue(ex.getMessage().startsWith("Unable to write snapshot"));
+			}
+			try
+			{
+				graph.addVertex("c");
+				Assert.fail("A mutation after the function would be recovered without it");
+			}
+			catch(IllegalStateException ex)
+			{
+				Assert.assertTrue(ex.getMessage().startsWith("Unable to mutate graph"));
+			}
+			Files.delete(directory.resolve("snapshot.tmp"));
+			graph.snapshot();
+			graph.addVertex("c");
+		}
+		try(JournaledGraph<String,Edge> graph = open(directory, 0))
+		{
+			Assert.assertEquals("[A, B, c]", graph.getVertices().toString());
+		}
+	}
+
+	private static <T extends Edge> JournaledGraph<String,T> open(Path directory, long snapshotThreshold)
+	{
+		Graph<String,T> graph = SimpleGraph.newUndirected(16, 16);
+		return snapshotThreshold == 0
+				? JournaledGraph.open(directory, graph, PayloadCodec.utf8(), 0, 1L << 30)
+				: JournaledGraph.open(directory, graph, PayloadCodec.utf8(), 1, snapshotThreshold);
+	}
+
+	private static float weightOf(Graph<String,WeighedEdge> graph, int from, int to)
+	{
+		Set<Float> weights = new HashSet<>();
+		for(WeighedEdge edge : graph.getEdges())
+		{
+			if(edge.getFrom() == from && edge.getTo() == to || edge.getFrom() == to && edge.getTo() == from) weights.add(edge.getWeight());
+		}
+		Assert.assertEquals(1, weights.size());
+		return weights.iterator().next();
+	}
+}
@@ -0,0 +1,147 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TestKShortestPaths
+{
+	@Test
+	public void testKnownPaths()
+	{
+		// C=1, D=2, E=3, F=4, G=5, H=6
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(6, 10);
+		for(String name : new String[] {"C", "D", "E", "F", "G", "H"})
+		{
+			graph.addVertex(name);
+		}
+		graph.addEdge(new WeighedEdge(1, 2, 3));
+		graph.addEdge(new WeighedEdge(1, 3, 2));
+		graph.addEdge(new WeighedEdge(2, 4, 4));
+		graph.addEdge(new WeighedEdge(3, 2, 1));
+		graph.addEdge(new WeighedEdge(3, 4, 2));
+		graph.addEdge(new WeighedEdge(3, 5, 3));
+		graph.addEdge(new WeighedEdge(4, 5, 2));
+		graph.addEdge(new WeighedEdge(4, 6, 1));
+		graph.addEdge(new WeighedEdge(5, 6, 2));
+
+		List<List<WeighedEdge>> paths = graph.freeze().getKShortestPaths(1, 6, 3);
+		Assert.assertEquals(3, paths.size());
+		Assert.assertEquals("[(1,3|2.0), (3,4|2.0), (4,6|1.0)]", paths.get(0).toString());
+		Assert.assertEquals("[(1,3|2.0), (3,5|3.0), (5,6|2.0)]", paths.get(1).toString());
+		Assert.assertEquals("[(1,2|3.0), (2,4|4.0), (4,6|1.0)]", paths.get(2).toString());
+		Assert.assertEquals(7, graph.freeze().getKShortestPaths(1, 6, 100).size());
+		Assert.assertTrue(graph.freeze().getKShortestPaths(6, 1, 3).isEmpty());
+	}
+
+	@Test
+	public void testMatchesEnumerationOfAllPaths()
+	{
+		Random random = new Random(32);
+		for(int round = 0; round < 20; round++)
+		{
+			boolean directed = round % 2 == 0;
+			Graph<Integer,WeighedEdge> graph = directed ? SimpleGraph.newDirected(9, 30) : SimpleGraph.newUndirected(9, 30);
+			for(int i = 0; i < 9; i++)
+			{
+				graph.addVertex(i);
+			}
+			for(int i = 0; i < 22; i++)
+			{
+				graph.addEdge(new WeighedEdge(1 + random.nextInt(9), 1 + random.nextInt(9), 1 + random.nextInt(5)));
+			}
+			FrozenGraph<Integer,WeighedEdge> frozen = graph.freeze();
+
+			List<Float> expected = new ArrayList<>();
+			enumerate(frozen, 1, 9, new HashSet<>(Collections.singleton(1)), 0, expected);
+			Collections.sort(expected);
+
+			List<List<WeighedEdge>> paths = frozen.getKShortestPaths(1, 9, 15);
+			Assert.assertEquals(Math.min(15, expected.size()), paths.size());
+			// Parallel edges with equal weights print the same, so paths are told apart by edge identity
+			Set<List<Integer>> distinct = new HashSet<>();
+			for(int i = 0; i < paths.size(); i++)
+			{
+				Assert.assertEquals(expected.get(i), weight(paths.get(i)), 0.001f);
+				Assert.assertTrue(isLoopless(paths.get(i)));
+				Assert.assertTrue(distinct.add(paths.get(i).stream().map(System::identityHashCode).collect(Collectors.toList())));
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidArguments()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(2, 1);
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addEdge(new WeighedEdge(1, 2, -1));
+		try
+		{
+			graph.freeze().getKShortestPaths(1, 2, 2);
+			Assert.fail("Negative weight is not supported");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to find k shortest paths: edge (1,2|-1.0) has negative weight.", ex.getMessage());
+		}
+		try
+		{
+			graph.freeze().getKShortestPaths(1, 3, 2);
+			Assert.fail("Vertex 3 does not exist");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to find paths: vertex 1 or 3 not found.", ex.getMessage());
+		}
+	}
+
+	/*
+		Collects weights of all loopless paths by depth-first enumeration
+	 */
+	private static void enumerate(FrozenGraph<?,?> graph, int u, int to, Set<Integer> visited, float weight, List<Float> weights)
+	{
+		if(u == to)
+		{
+			weights.add(weight);
+			return;
+		}
+		for(int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+		{
+			int x = graph.target(e);
+			if(visited.add(x))
+			{
+				enumerate(graph, x, to, visited, weight + graph.weight(e), weights);
+				visited.remove(x);
+			}
+		}
+	}
+
+	private static boolean isLoopless(List<WeighedEdge> path)
+	{
+		Set<Integer> vertices = new HashSet<>();
+		vertices.add(path.get(0).getFrom());
+		for(WeighedEdge edge : path)
+		{
+			if(!vertices.add(edge.getTo())) return false;
+		}
+		return true;
+	}
+
+	private static float weight(List<WeighedEdge> path)
+	{
+		float weight = 0;
+		for(WeighedEdge edge : path)
+		{
+			weight += edge.getWeight();
+		}
+		return weight;
+	}
+}
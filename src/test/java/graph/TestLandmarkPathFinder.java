@@ -0,0 +1,113 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TestLandmarkPathFinder
+{
+	@Test
+	public void testShortestPathsMatchDijkstra()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = newRandomGrid(40, true);
+		DijkstraPathFinder<WeighedEdge> dijkstra = new DijkstraPathFinder<>(graph);
+
+		for(LandmarkSelection selection : LandmarkSelection.values())
+		{
+			LandmarkPathFinder<WeighedEdge> finder = new LandmarkPathFinder<>(graph, 8, selection, 2);
+			Assert.assertEquals(8, finder.getLandmarks().length);
+
+			Random random = new Random(27);
+			int settledByDijkstra = 0;
+			int settledByLandmarks = 0;
+			for(int query = 0; query < 100; query++)
+			{
+				int from = 1 + random.nextInt(graph.getVertexCount());
+				int to = 1 + random.nextInt(graph.getVertexCount());
+				List<WeighedEdge> expected = dijkstra.find(from, to);
+				settledByDijkstra += settledCount(graph, from, to);
+				List<WeighedEdge> path = finder.find(from, to);
+				settledByLandmarks += finder.lastSettledCount();
+
+				Assert.assertEquals(weight(expected), weight(path), 0.001f);
+				for(int i = 1; i < path.size(); i++)
+				{
+					Assert.assertEquals(path.get(i - 1).getTo(), path.get(i).getFrom());
+				}
+			}
+			Assert.assertTrue(selection + " settled " + settledByLandmarks + " vertices", settledByLandmarks < settledByDijkstra / 2);
+		}
+	}
+
+	@Test
+	public void testUnreachableVertex()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(4, 3);
+		graph.addVertex("Vertex 1");
+		graph.addVertex("Vertex 2");
+		graph.addVertex("Vertex 3");
+		graph.addVertex("Vertex 4");
+		graph.addEdge(new WeighedEdge(1,2, 1.f));
+		graph.addEdge(new WeighedEdge(2,3, 1.f));
+		graph.addEdge(new WeighedEdge(4,3, 1.f));
+
+		LandmarkPathFinder<WeighedEdge> finder = new LandmarkPathFinder<>(graph.freeze(), 2, LandmarkSelection.FARTHEST);
+		Assert.assertEquals("[(1,2|1.0), (2,3|1.0)]", finder.find(1, 3).toString());
+		Assert.assertTrue(finder.find(1, 4).isEmpty());
+		Assert.assertTrue(finder.find(3, 1).isEmpty());
+	}
+
+	@Test
+	public void testLandmarkMemory()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = newRandomGrid(10, false);
+		int count = LandmarkPathFinder.landmarkCountFor(graph, 4 * 101 * 3);
+		Assert.assertEquals(3, count);
+
+		LandmarkPathFinder<WeighedEdge> finder = new LandmarkPathFinder<>(graph, count, LandmarkSelection.AVOID);
+		Assert.assertEquals(4 * 101 * 3, finder.getLandmarkMemory());
+	}
+
+	private static int settledCount(FrozenGraph<?,?> graph, int from, int to)
+	{
+		ShortestPathSearch search = new ShortestPathSearch(graph, null);
+		search.find(from, to);
+		return search.lastSettledCount();
+	}
+
+	private static float weight(List<WeighedEdge> path)
+	{
+		float weight = 0;
+		for(WeighedEdge edge : path)
+		{
+			weight += edge.getWeight();
+		}
+		return weight;
+	}
+
+	private static FrozenGraph<Integer,WeighedEdge> newRandomGrid(int side, boolean directed)
+	{
+		Random random = new Random(side);
+		Graph<Integer,WeighedEdge> graph = directed
+				? SimpleGraph.newDirected(side * side, 4 * side * side)
+				: SimpleGraph.newUndirected(side * side, 2 * side * side);
+		for(int i = 0; i < side * side; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int row = 0; row < side; row++)
+		{
+			for(int column = 0; column < side; column++)
+			{
+				int v = row * side + column + 1;
+				if(column + 1 < side) graph.addEdge(new WeighedEdge(v, v + 1, 1 + random.nextInt(20)));
+				if(row + 1 < side) graph.addEdge(new WeighedEdge(v, v + side, 1 + random.nextInt(20)));
+				if(directed && column + 1 < side) graph.addEdge(new WeighedEdge(v + 1, v, 1 + random.nextInt(20)));
+				if(directed && row + 1 < side) graph.addEdge(new WeighedEdge(v + side, v, 1 + random.nextInt(20)));
+			}
+		}
+		return graph.freeze();
+	}
+}
@@ -0,0 +1,120 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestOffHeapVertexStore
+{
+	@Test
+	public void testGraphWithOffHeapPayloads()
+	{
+		Graph<String,Edge> graph = SimpleGraph.newUndirected(20, PayloadCodec.utf8(), 2);
+		for(int i = 1; i <= 10; i++)
+		{
+			graph.addVertex("Vertex " + i);
+		}
+		for(int i = 1; i < 10; i++)
+		{
+			graph.addEdge(new Edge(i, i + 1));
+		}
+
+		Assert.assertEquals("Vertex 7", graph.getVertex(7));
+		Assert.assertEquals(10, graph.getVertices().size());
+		Assert.assertEquals("Vertex 10", graph.getVertices().get(9));
+		Assert.assertFalse(graph.getPath(1, 10).isEmpty());
+
+		FrozenGraph<String,Edge> frozen = graph.freeze();
+		graph.apply(vertex -> vertex.toUpperCase());
+		Assert.assertEquals("VERTEX 3", graph.getVertex(3));
+		Assert.assertEquals("Vertex 3", frozen.getVertex(3));
+
+		try
+		{
+			graph.getVertex(11);
+			Assert.fail("Vertex 11 does not exist");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Vertex 11 not found.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testCacheIsBounded()
+	{
+		OffHeapVertexStore<String> store = new OffHeapVertexStore<>(PayloadCodec.utf8(), 100);
+		char[] document = new char[5000];
+		for(int i = 1; i <= 3000; i++)
+		{
+			Arrays.fill(document, (char) ('a' + i % 26));
+			Assert.assertEquals(i, store.add(i + new String(document)));
+		}
+		store.add(null);
+		store.add("");
+
+		Assert.assertEquals(100, store.cachedCount());
+		Assert.assertTrue(store.get(1).startsWith("1b"));
+		Assert.assertTrue(store.get(2999).startsWith("2999j"));
+		Assert.assertNull(store.get(3001));
+		Assert.assertEquals("", store.get(3002));
+		Assert.assertEquals(100, store.cachedCount());
+
+		List<String> snapshot = store.snapshot();
+		store.apply(vertex -> vertex == null ? "null" : vertex.substring(0, Math.min(1, vertex.length())));
+		Assert.assertEquals("1", store.get(1000));
+		Assert.assertEquals("null", store.get(3001));
+		Assert.assertTrue(snapshot.get(999).startsWith("1000m"));
+		Assert.assertEquals(3002, snapshot.size());
+		Assert.assertEquals(100, store.cachedCount());
+	}
+
+	@Test
+	public void testApplyReleasesSegments()
+	{
+		OffHeapVertexStore<String> store = new OffHeapVertexStore<>(PayloadCodec.utf8(), 10);
+		char[] document = new char[10000];
+		Arrays.fill(document, 'x');
+		for(int i = 1; i <= 2000; i++)
+		{
+			store.add(i + new String(document));
+		}
+		Assert.assertEquals(2, store.segmentCount());
+
+		List<String> snapshot = store.snapshot();
+		for(int i = 0; i < 20; i++)
+		{
+			store.apply(vertex -> vertex.substring(0, vertex.length() - 1));
+		}
+		// Each application rewrites the objects compactly instead of appending them to the old segments
+		Assert.assertEquals(2, store.segmentCount());
+		Assert.assertEquals(10000 - 20 + 4, store.get(1000).length());
+		Assert.assertEquals(10000 + 4, snapshot.get(999).length());
+		Assert.assertTrue(snapshot.get(1999).startsWith("2000x"));
+		Assert.assertEquals(2000, store.snapshot().size());
+	}
+
+	@Test
+	public void testVertexCountIsLimited()
+	{
+		OffHeapVertexStore<String> store = new OffHeapVertexStore<>(PayloadCodec.utf8(), 10, 3000);
+		for(int i = 1; i <= 3000; i++)
+		{
+			Assert.assertEquals(i, store.add("v" + i));
+		}
+		try
+		{
+			store.add("v3001");
+			Assert.fail("The index is full");
+		}
+		catch(IllegalStateException ex)
+		{
+			Assert.assertEquals("Unable to add vertex: the number of vertices exceeds 3000", ex.getMessage());
+		}
+		Assert.assertEquals(3000, store.size());
+		Assert.assertEquals("v3000", store.get(3000));
+		Assert.assertEquals("v1", store.snapshot().get(0));
+	}
+}
@@ -0,0 +1,357 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+public class TestPartitionedGraph
+{
+	@Test
+	public void testPathAcrossPartitions()
+	{
+		try(PartitionedGraph<String,WeighedEdge> graph = PartitionedGraph.newUndirected(4))
+		{
+			Graph<String,WeighedEdge> expected = SimpleGraph.newUndirected(400, 800);
+			addRandomGraph(graph, 400, 500);
+			addRandomGraph(expected, 400, 500);
+
+			Assert.assertEquals(expected.getVertices(), graph.getVertices());
+			DijkstraPathFinder<WeighedEdge> reachability = new DijkstraPathFinder<>(expected.freeze());
+			Random random = new Random(30);
+			for(int query = 0; query < 100; query++)
+			{
+				int from = 1 + random.nextInt(400);
+				int to = 1 + random.nextInt(400);
+				if(from == to) continue;
+
+				List<WeighedEdge> path = graph.getPath(from, to);
+				Assert.assertEquals(reachability.find(from, to).isEmpty(), path.isEmpty());
+				assertPath(from, to, path);
+			}
+		}
+	}
+
+	@Test
+	public void testDirectedGraphWithPartitioner()
+	{
+		// Even and odd vertices in separate partitions, so that every edge crosses them
+		GraphPartitioner<String> partitioner = (id, vertex) -> id % 2;
+		try(PartitionedGraph<String,Edge> graph = PartitionedGraph.newDirected(PartitionTransport.inProcess(2), partitioner))
+		{
+			for(int i = 1; i <= 6; i++)
+			{
+				graph.addVertex("Vertex " + i);
+			}
+			graph.addEdge(new Edge(1, 2));
+			graph.addEdge(new Edge(2, 3));
+			graph.addEdge(new Edge(3, 4));
+			graph.addEdge(new Edge(1, 5));
+			graph.addEdge(new Edge(5, 6));
+
+			Assert.assertEquals("[(1,2), (2,3), (3,4)]", graph.getPath(1, 4).toString());
+			Assert.assertTrue(graph.getPath(4, 1).isEmpty());
+			Assert.assertFalse(graph.getPath(1, 6, new DijkstraPathFinder<>(graph.freeze())).isEmpty());
+
+			graph.apply(vertex -> vertex.toUpperCase());
+			Assert.assertEquals("VERTEX 6", graph.getVertices().get(5));
+			Assert.assertEquals(5, graph.freeze().getEdgeCount());
+		}
+	}
+
+	@Test
+	public void testInvalidEdgeAndPartition()
+	{
+		try(PartitionedGraph<String,Edge> graph = PartitionedGraph.newDirected(PartitionTransport.inProcess(2), (id, vertex) -> id))
+		{
+			graph.addVertex("Vertex 1");
+			try
+			{
+				graph.addVertex("Vertex 2");
+				Assert.fail("Partition 2 does not exist");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertEquals("Unable to add vertex: partition 2 not found.", ex.getMessage());
+			}
+			try
+			{
+				graph.addEdge(new Edge(1, 2));
+				Assert.fail("Vertex 2 does not exist");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertEquals("Unable to add edge: vertex 1 or 2 not found.", ex.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testPartitionsOverLoopback()
+	{
+		List<PartitionServer> servers = new ArrayList<>();
+		List<InetSocketAddress> addresses = new ArrayList<>();
+		for(int i = 0; i < 3; i++)
+		{
+			servers.add(PartitionServer.start(0));
+			addresses.add(servers.get(i).getAddress());
+		}
+		try(PartitionedGraph<String,WeighedEdge> graph = PartitionedGraph.newUndirected(PartitionTransport.connect(addresses), GraphPartitioner.byHash(3)))
+		{
+			Graph<String,WeighedEdge> expected = SimpleGraph.newUndirected(200, 400);
+			addRandomGraph(graph, 200, 300);
+			addRandomGraph(expected, 200, 300);
+
+			FrozenGraph<String,WeighedEdge> frozen = graph.freeze();
+			Assert.assertEquals(expected.getVertices(), frozen.getVertices());
+			Assert.assertEquals(expected.freeze().getEdgeCount(), frozen.getEdgeCount());
+
+			DijkstraPathFinder<WeighedEdge> reachability = new DijkstraPathFinder<>(frozen);
+			for(int to = 2; to <= 200; to++)
+			{
+				List<WeighedEdge> path = graph.getPath(1, to);
+				Assert.assertEquals(reachability.find(1, to).isEmpty(), path.isEmpty());
+				assertPath(1, to, path);
+			}
+		}
+		finally
+		{
+			servers.forEach(PartitionServer::close);
+		}
+	}
+
+	@Test
+	public void testServerRejectsClassesNotAllowed()
+	{
+		try(PartitionServer server = PartitionServer.start(0);
+			PartitionedGraph<Date,Edge> graph = PartitionedGraph.newDirected(PartitionTransport.connect(
+					Collections.singletonList(server.getAddress())), GraphPartitioner.byHash(1)))
+		{
+			graph.addVertex(new Date(0));
+			Assert.fail("Date is not allowed");
+		}
+		catch(UncheckedIOException ex)
+		{
+			Assert.assertTrue(ex.getMessage().startsWith("Unable to call partition server"));
+		}
+
+		try(PartitionServer server = PartitionServer.start(0, Date.class, TestPartitionedGraph.class);
+			PartitionedGraph<Date,Edge> graph = PartitionedGraph.newDirected(PartitionTransport.connect(
+					Collections.singletonList(server.getAddress())), GraphPartitioner.byHash(1)))
+		{
+			graph.addVertex(new Date(0));
+			graph.addVertex(new Date(1));
+			graph.addEdge(new Edge(1, 2));
+			Assert.assertEquals(new Date(1), graph.getVertex(2));
+			Assert.assertEquals(1, graph.getPath(1, 2).size());
+			long shift = 10;
+			graph.apply((UnaryOperator<Date> & Serializable) date -> new Date(date.getTime() + shift));
+			Assert.assertEquals(new Date(11), graph.getVertex(2));
+		}
+	}
+
+	@Test
+	public void testFailedVertexKeepsItsID()
+	{
+		FailingTransport transport = new FailingTransport(2);
+		try(PartitionedGraph<String,Edge> graph = PartitionedGraph.newDirected(transport, GraphPartitioner.byHash(2)))
+		{
+			graph.addVertex("A");
+			transport.failing = command -> command instanceof PartitionCommand.AddVertex;
+			try
+			{
+				graph.addVertex("B");
+				Assert.fail("The partition call must fail");
+			}
+			catch(IllegalStateException ex)
+			{
+				Assert.assertEquals("Partition unavailable", ex.getMessage());
+			}
+			transport.failing = command -> false;
+			Assert.assertEquals(3, graph.addVertex("C"));
+			graph.addEdge(new Edge(1, 3));
+
+			Assert.assertEquals(Arrays.asList("A", null, "C"), graph.getVertices());
+			Assert.assertEquals("C", graph.getVertex(3));
+			Assert.assertEquals("[(1,3)]", graph.getPath(1, 3).toString());
+			Assert.assertTrue(graph.getPath(1, 2).isEmpty());
+			Assert.assertEquals(3, graph.freeze().getVertexCount());
+			try
+			{
+				graph.getVertex(2);
+				Assert.fail("Vertex 2 is not stored");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertEquals("Vertex 2 not found.", ex.getMessage());
+			}
+			try
+			{
+				graph.addEdge(new Edge(1, 2));
+				Assert.fail("Vertex 2 is not stored");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertEquals("Unable to add edge: vertex 1 or 2 not found.", ex.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testReturnedEdgesAreCopies()
+	{
+		try(PartitionedGraph<String,WeighedEdge> graph = PartitionedGraph.newUndirected(2))
+		{
+			graph.addVertex("A");
+			graph.addVertex("B");
+			graph.addVertex("C");
+			graph.addEdge(new WeighedEdge(1, 2, 1));
+			graph.addEdge(new WeighedEdge(2, 3, 1));
+			List<WeighedEdge> path = graph.getPath(1, 3);
+			List<WeighedEdge> edges = graph.getEdges();
+			Map<Integer,List<WeighedEdge>> transitions = new HashMap<>();
+			graph.getPath(1, 3, new GraphPathFinder<WeighedEdge>()
+			{
+				@Override public void setTransitionMap(Map<Integer,List<WeighedEdge>> transitionMap)
+				{
+					transitions.putAll(transitionMap);
+				}
+
+				@Override public List<WeighedEdge> find(int from, int to)
+				{
+					return Collections.emptyList();
+				}
+			});
+
+			graph.updateWeight(1, 2, 5);
+			graph.updateWeight(3, 2, 5);
+			Assert.assertEquals("[(1,2|1.0), (2,3|1.0)]", path.toString());
+			Assert.assertTrue(edges.stream().allMatch(edge -> edge.getWeight() == 1));
+			Assert.assertTrue(transitions.values().stream().flatMap(List::stream).allMatch(edge -> edge.getWeight() == 1));
+			Assert.assertEquals("[(1,2|5.0), (2,3|5.0)]", graph.getPath(1, 3).toString());
+		}
+	}
+
+	@Test
+	public void testSearchIsReleasedWhenTracingFails()
+	{
+		FailingTransport transport = new FailingTransport(2);
+		try(PartitionedGraph<String,Edge> graph = PartitionedGraph.newDirected(transport, (id, vertex) -> id % 2))
+		{
+			for(int i = 1; i <= 4; i++)
+			{
+				graph.addVertex("Vertex " + i);
+			}
+			graph.addEdge(new Edge(1, 2));
+			graph.addEdge(new Edge(2, 3));
+			graph.addEdge(new Edge(3, 4));
+			transport.failing = command -> command instanceof PartitionCommand.Trace;
+			try
+			{
+				graph.getPath(1, 4);
+				Assert.fail("The partition call must fail");
+			}
+			catch(IllegalStateException ex)
+			{
+				Assert.assertEquals("Partition unavailable", ex.getMessage());
+			}
+			for(Partition partition : transport.partitions)
+			{
+				Assert.assertEquals(0, partition.searchCount());
+			}
+
+			transport.failing = command -> command instanceof PartitionCommand.Release;
+			try
+			{
+				graph.getPath(1, 4);
+				Assert.fail("The release must fail");
+			}
+			catch(IllegalStateException ex)
+			{
+				Assert.assertEquals(1, ex.getSuppressed().length);
+			}
+		}
+	}
+
+	@Test
+	public void testServerArgumentsAreValidated() throws InterruptedException
+	{
+		for(String[] args : new String[][] {{}, {"port"}, {"70000"}, {"0", "graph.Missing"}})
+		{
+			try
+			{
+				PartitionServer.main(args);
+				Assert.fail("Arguments " + Arrays.toString(args) + " are invalid");
+			}
+			catch(IllegalArgumentException ex)
+			{
+				Assert.assertTrue(ex.getMessage().startsWith("Unable to start partition server: "));
+			}
+		}
+	}
+
+	private static void assertPath(int from, int to, List<? extends Edge> path)
+	{
+		if(path.isEmpty()) return;
+		Assert.assertEquals(from, path.get(0).getFrom());
+		Assert.assertEquals(to, path.get(path.size() - 1).getTo());
+		for(int i = 1; i < path.size(); i++)
+		{
+			Assert.assertEquals(path.get(i - 1).getTo(), path.get(i).getFrom());
+		}
+	}
+
+	private static void addRandomGraph(Graph<String,WeighedEdge> graph, int vertexCount, int edgeCount)
+	{
+		Random random = new Random(vertexCount);
+		for(int i = 1; i <= vertexCount; i++)
+		{
+			graph.addVertex("Vertex " + i);
+		}
+		for(int i = 0; i < edgeCount; i++)
+		{
+			graph.addEdge(new WeighedEdge(1 + random.nextInt(vertexCount), 1 + random.nextInt(vertexCount), 1 + random.nextInt(10)));
+		}
+	}
+
+	/*
+		Keeps the partitions in the current JVM, and fails the commands accepted by a predicate
+	 */
+	private static final class FailingTransport extends PartitionTransport
+	{
+		private final Partition[] partitions;
+		private volatile Predicate<PartitionCommand> failing = command -> false;
+
+		private FailingTransport(int partitionCount)
+		{
+			this.partitions = new Partition[partitionCount];
+			for(int i = 0; i < partitionCount; i++)
+			{
+				partitions[i] = new Partition();
+			}
+		}
+
+		@Override public int getPartitionCount()
+		{
+			return partitions.length;
+		}
+
+		@Override Object call(int partition, PartitionCommand command)
+		{
+			if(failing.test(command)) throw new IllegalStateException("Partition unavailable");
+			return command.applyTo(partitions[partition]);
+		}
+	}
+}
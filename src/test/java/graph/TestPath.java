@@ -0,0 +1,187 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestPath
+{
+	@Test
+	public void testCompactPathsMatchEdgeLists()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = randomGraph(new Random(38), 200, 800);
+		List<GraphPathFinder<WeighedEdge>> finders = Arrays.asList(new DijkstraPathFinder<>(graph),
+				new LandmarkPathFinder<>(graph, 4, LandmarkSelection.FARTHEST, 1), new ContractionHierarchyPathFinder<>(graph, 1));
+		CompressedGraph<Integer> compressed = graph.compress();
+		for(int from = 1; from <= 200; from += 13)
+		{
+			for(int to = 1; to <= 200; to += 17)
+			{
+				List<WeighedEdge> expected = finders.get(0).find(from, to);
+				for(GraphPathFinder<WeighedEdge> finder : finders)
+				{
+					Path<WeighedEdge> path = finder.findPath(from, to);
+					Assert.assertEquals(finder.find(from, to), path.getEdges());
+					Assert.assertEquals(weight(expected), path.getWeight(), 0.001f);
+					assertConsistent(path);
+				}
+
+				Path<Edge> shortest = compressed.findShortestPath(from, to);
+				Assert.assertEquals(compressed.getShortestPath(from, to).toString(), shortest.getEdges().toString());
+				Assert.assertEquals(weight(expected), shortest.getWeight(), 0.001f);
+				assertConsistent(shortest);
+
+				Assert.assertEquals(graph.getPath(from, to), graph.findPath(from, to).getEdges());
+				Assert.assertEquals(compressed.getPath(from, to).toString(), compressed.findPath(from, to).getEdges().toString());
+			}
+		}
+	}
+
+	@Test
+	public void testVerticesAndWeight()
+	{
+		Graph<String,Edge> graph = SimpleGraph.newUndirected(4, 3);
+		for(String name : new String[] {"A", "B", "C", "D"})
+		{
+			graph.addVertex(name);
+		}
+		graph.addEdge(new Edge(1, 2));
+		graph.addEdge(new Edge(3, 2));
+		graph.addEdge(new WeighedEdge(3, 4, 2.5f));
+
+		Path<Edge> path = graph.freeze().findPath(4, 1);
+		Assert.assertEquals(3, path.length());
+		Assert.assertFalse(path.isEmpty());
+		Assert.assertEquals(4.5f, path.getWeight(), 0);
+		Assert.assertArrayEquals(new int[] {4, 3, 2, 1}, path.getVertices());
+		Assert.assertEquals(2, path.getVertex(2));
+		Assert.assertEquals("[(4,3|2.5), (3,2), (2,1)]", path.getEdges().toString());
+		Assert.assertEquals("[4, 3, 2, 1]|4.5", path.toString());
+
+		Path<Edge> empty = graph.freeze().findPath(1, 1);
+		Assert.assertTrue(empty.isEmpty());
+		Assert.assertEquals(0, empty.length());
+		Assert.assertEquals(0, empty.getVertices().length);
+		Assert.assertTrue(empty.getEdges().isEmpty());
+	}
+
+	@Test
+	public void testDefaultFinderPath()
+	{
+		GraphPathFinder<Edge> finder = new GraphPathFinder<Edge>()
+		{
+			@Override public void setTransitionMap(Map<Integer, List<Edge>> transitionMap)
+			{
+			}
+
+			@Override public List<Edge> find(int from, int to)
+			{
+				return Arrays.asList(new Edge(from, 5), new WeighedEdge(5, to, 3));
+			}
+		};
+		Path<Edge> path = finder.findPath(1, 2);
+		Assert.assertArrayEquals(new int[] {1, 5, 2}, path.getVertices());
+		Assert.assertEquals(4, path.getWeight(), 0);
+		Assert.assertEquals("[(1,5), (5,2|3.0)]", path.getEdges().toString());
+	}
+
+	@Test
+	public void testEdgesOfCompressedGraphAreCreatedOnAccess()
+	{
+		FrozenGraph<Integer,WeighedEdge> graph = randomGraph(new Random(8), 30, 120);
+		Path<Edge> path = graph.compress().findShortestPath(1, 30);
+		Assert.assertFalse(path.isEmpty());
+		Assert.assertNotSame(path.getEdges().get(0), path.getEdges().get(0));
+		Assert.assertEquals(path.getEdges().get(0).toString(), path.getEdges().get(0).toString());
+		try
+		{
+			path.getEdges().get(path.length());
+			Assert.fail("Index is out of bounds");
+		}
+		catch(IndexOutOfBoundsException ex)
+		{
+			Assert.assertEquals("Index: " + path.length() + ", length: " + path.length(), ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testTransitionMapIsSharedUntilEdgesChange()
+	{
+		SimpleGraph<String,WeighedEdge> graph = (SimpleGraph<String,WeighedEdge>) SimpleGraph.<String,WeighedEdge>newDirected(3, 2);
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addVertex("C");
+		graph.addEdge(new WeighedEdge(1, 2, 1));
+		List<Map<Integer, List<WeighedEdge>>> maps = new ArrayList<>();
+		GraphPathFinder<WeighedEdge> finder = new GraphPathFinder<WeighedEdge>()
+		{
+			private Map<Integer, List<WeighedEdge>> transitionMap;
+
+			@Override public void setTransitionMap(Map<Integer, List<WeighedEdge>> transitionMap)
+			{
+				this.transitionMap = transitionMap;
+				maps.add(transitionMap);
+			}
+
+			@Override public List<WeighedEdge> find(int from, int to)
+			{
+				return transitionMap.get(from);
+			}
+		};
+
+		List<WeighedEdge> path = graph.getPath(1, 2, finder);
+		graph.getPath(1, 2, finder);
+		Assert.assertSame(maps.get(0), maps.get(1));
+		Assert.assertNotSame(maps.get(0).get(1).get(0), path.get(0));
+
+		graph.updateWeight(1, 2, 5);
+		Assert.assertEquals(5, graph.getPath(1, 2, finder).get(0).getWeight(), 0);
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+		Assert.assertEquals("[(2,3|1.0)]", graph.getPath(2, 3, finder).toString());
+		Assert.assertNotSame(maps.get(1), maps.get(2));
+		Assert.assertNotSame(maps.get(2), maps.get(3));
+	}
+
+	private static FrozenGraph<Integer,WeighedEdge> randomGraph(Random random, int vertexCount, int edgeCount)
+	{
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newDirected(vertexCount, edgeCount);
+		for(int i = 0; i < vertexCount; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int v = 1; v < vertexCount; v++)
+		{
+			graph.addEdge(new WeighedEdge(v, v + 1, 1 + random.nextInt(50)));
+		}
+		for(int i = vertexCount; i < edgeCount; i++)
+		{
+			graph.addEdge(new WeighedEdge(1 + random.nextInt(vertexCount), 1 + random.nextInt(vertexCount), 1 + random.nextInt(10)));
+		}
+		return graph.freeze();
+	}
+
+	private static void assertConsistent(Path<? extends Edge> path)
+	{
+		Assert.assertEquals(path.getEdges().size(), path.length());
+		for(int i = 0; i < path.length(); i++)
+		{
+			Assert.assertEquals(path.getVertex(i), path.getEdges().get(i).getFrom());
+			Assert.assertEquals(path.getVertex(i + 1), path.getEdges().get(i).getTo());
+		}
+	}
+
+	private static float weight(List<WeighedEdge> path)
+	{
+		float weight = 0;
+		for(WeighedEdge edge : path)
+		{
+			weight += edge.getWeight();
+		}
+		return weight;
+	}
+}
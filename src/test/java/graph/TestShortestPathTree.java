@@ -0,0 +1,225 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestShortestPathTree
+{
+	@Test
+	public void testIncrementalRepairMatchesRecomputation()
+	{
+		for(boolean directed : new boolean[] {true, false})
+		{
+			Random random = new Random(33);
+			Graph<Integer,WeighedEdge> graph = directed ? SimpleGraph.newDirected(400, 2000) : SimpleGraph.newUndirected(400, 2000);
+			List<WeighedEdge> edges = addGrid(graph, 20, random);
+			ShortestPathTree<WeighedEdge> tree = graph.addShortestPathTree(1);
+
+			long repaired = 0;
+			for(int update = 0; update < 300; update++)
+			{
+				WeighedEdge edge = edges.get(random.nextInt(edges.size()));
+				float weight = random.nextInt(4) == 0 ? 100 : 1 + random.nextInt(20);
+				graph.updateWeight(edge.getFrom(), edge.getTo(), weight);
+				Assert.assertEquals(weight, edge.getWeight(), 0);
+				repaired += tree.lastRepairCount();
+
+				FrozenGraph<Integer,WeighedEdge> frozen = graph.freeze();
+				float[] expected = Landmarks.distances(frozen, frozen.internal(1), false, null, null);
+				for(int v = 1; v <= 400; v++)
+				{
+					Assert.assertEquals(expected[frozen.internal(v)], tree.getDistance(v), 0.001f);
+				}
+				int to = 1 + random.nextInt(400);
+				Assert.assertEquals(tree.getDistance(to), weight(tree.getPath(to)), 0.001f);
+			}
+			// Most updates touch a small part of the tree
+			Assert.assertTrue(repaired < 300 * 400 / 4);
+		}
+	}
+
+	@Test
+	public void testTreeIsRebuiltAfterAddingEdges()
+	{
+		Graph<String,WeighedEdge> graph = SimpleGraph.newDirected(4, 4);
+		for(int i = 1; i <= 4; i++)
+		{
+			graph.addVertex("Vertex " + i);
+		}
+		graph.addEdge(new WeighedEdge(1, 2, 1));
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+		ShortestPathTree<WeighedEdge> tree = graph.addShortestPathTree(1);
+		Assert.assertEquals(2, tree.getDistance(3), 0);
+		Assert.assertEquals(Float.POSITIVE_INFINITY, tree.getDistance(4), 0);
+
+		graph.addEdge(new WeighedEdge(3, 4, 5));
+		Assert.assertEquals(7, tree.getDistance(4), 0);
+		graph.updateWeight(2, 3, 10);
+		Assert.assertEquals(16, tree.getDistance(4), 0);
+		Assert.assertEquals("[(1,2|1.0), (2,3|10.0), (3,4|5.0)]", tree.getPath(4).toString());
+
+		graph.removeShortestPathTree(tree);
+		graph.updateWeight(2, 3, 1);
+		Assert.assertEquals(16, tree.getDistance(4), 0);
+	}
+
+	@Test
+	public void testTreesKeepTheirOwnWeights() throws InterruptedException
+	{
+		Random random = new Random(33);
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newUndirected(100, 200);
+		List<WeighedEdge> edges = addGrid(graph, 10, random);
+		FrozenGraph<Integer,WeighedEdge> before = graph.freeze();
+		ShortestPathTree<WeighedEdge> first = graph.addShortestPathTree(1);
+		ShortestPathTree<WeighedEdge> last = graph.addShortestPathTree(100);
+
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread reader = new Thread(() ->
+		{
+			try
+			{
+				while(!done.get())
+				{
+					int to = 1 + random.nextInt(100);
+					if(first.getDistance(to) == Float.POSITIVE_INFINITY || last.getPath(to).isEmpty() && to != 100)
+					{
+						throw new AssertionError("Vertex " + to + " is not reachable");
+					}
+				}
+			}
+			catch(Throwable ex)
+			{
+				failure.set(ex);
+			}
+		});
+		reader.start();
+		for(int update = 0; update < 200; update++)
+		{
+			WeighedEdge edge = edges.get(update % edges.size());
+			graph.updateWeight(edge.getFrom(), edge.getTo(), 1 + update % 7);
+		}
+		done.set(true);
+		reader.join();
+		Assert.assertNull(failure.get());
+
+		FrozenGraph<Integer,WeighedEdge> after = graph.freeze();
+		float[] fromFirst = Landmarks.distances(after, after.internal(1), false, null, null);
+		float[] fromLast = Landmarks.distances(after, after.internal(100), false, null, null);
+		for(int v = 1; v <= 100; v++)
+		{
+			Assert.assertEquals(fromFirst[after.internal(v)], first.getDistance(v), 0.001f);
+			Assert.assertEquals(fromLast[after.internal(v)], last.getDistance(v), 0.001f);
+		}
+		Assert.assertEquals(last.getDistance(1), weight(last.getPath(1)), 0.001f);
+		// Snapshots taken before the updates keep their weights
+		for(int e = 0; e < before.getEdgeCount(); e++)
+		{
+			Assert.assertEquals(before.getWeight(e), before.getEdges().get(e).getWeight(), 0);
+		}
+		Assert.assertNotEquals(fromFirst[after.internal(100)],
+				Landmarks.distances(before, before.internal(1), false, null, null)[before.internal(100)], 0.001f);
+	}
+
+	@Test
+	public void testInvalidUpdates()
+	{
+		Graph<String,Edge> graph = SimpleGraph.newUndirected(3, 2);
+		for(int i = 1; i <= 3; i++)
+		{
+			graph.addVertex("Vertex " + i);
+		}
+		graph.addEdge(new Edge(1, 2));
+		graph.addEdge(new WeighedEdge(2, 3, 1));
+		graph.updateWeight(3, 2, 4);
+		try
+		{
+			graph.updateWeight(1, 3, 1);
+			Assert.fail("Edge (1,3) does not exist");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to update weight: edge (1,3) not found.", ex.getMessage());
+		}
+		try
+		{
+			graph.updateWeight(2, 1, 1);
+			Assert.fail("Edge (1,2) is not weighed");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to update weight: edge (1,2) is not weighed.", ex.getMessage());
+		}
+
+		graph.addShortestPathTree(1);
+		try
+		{
+			graph.updateWeight(2, 3, -1);
+			Assert.fail("Negative weights are not supported by trees");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to update weight: shortest path trees require non-negative weights.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testPartitionedGraphUpdates()
+	{
+		try(PartitionedGraph<Integer,WeighedEdge> graph = PartitionedGraph.newUndirected(3))
+		{
+			Random random = new Random(33);
+			List<WeighedEdge> edges = addGrid(graph, 10, random);
+			ShortestPathTree<WeighedEdge> tree = graph.addShortestPathTree(1);
+			for(int update = 0; update < 50; update++)
+			{
+				WeighedEdge edge = edges.get(random.nextInt(edges.size()));
+				graph.updateWeight(edge.getTo(), edge.getFrom(), 1 + random.nextInt(50));
+			}
+			FrozenGraph<Integer,WeighedEdge> frozen = graph.freeze();
+			float[] expected = Landmarks.distances(frozen, frozen.internal(1), false, null, null);
+			for(int v = 1; v <= 100; v++)
+			{
+				Assert.assertEquals(expected[frozen.internal(v)], tree.getDistance(v), 0.001f);
+			}
+		}
+	}
+
+	private static List<WeighedEdge> addGrid(Graph<Integer,WeighedEdge> graph, int side, Random random)
+	{
+		List<WeighedEdge> edges = new ArrayList<>();
+		for(int i = 0; i < side * side; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int row = 0; row < side; row++)
+		{
+			for(int column = 0; column < side; column++)
+			{
+				int v = row * side + column + 1;
+				if(column + 1 < side) edges.add(new WeighedEdge(v, v + 1, 1 + random.nextInt(20)));
+				if(row + 1 < side) edges.add(new WeighedEdge(v, v + side, 1 + random.nextInt(20)));
+				if(column > 0) edges.add(new WeighedEdge(v, v - 1, 1 + random.nextInt(20)));
+				if(row > 0) edges.add(new WeighedEdge(v, v - side, 1 + random.nextInt(20)));
+			}
+		}
+		edges.forEach(graph::addEdge);
+		return edges;
+	}
+
+	private static float weight(List<WeighedEdge> path)
+	{
+		float weight = 0;
+		for(WeighedEdge edge : path)
+		{
+			weight += edge.getWeight();
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,102 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class TestSoakHarness
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMixedWorkload()
+	{
+		Graph<Integer,WeighedEdge> graph = GraphGenerator.erdosRenyi(500, 2000, 40)
+				.populate(SimpleGraph.newUndirected(1000, 4000), i -> i, GraphGenerator.weighedEdges(10));
+		SoakHarness.Report report = SoakHarness.of(graph, i -> 500 + i, GraphGenerator.weighedEdges(10))
+				.withFunction(i -> i + 1).run(8, 300, TimeUnit.MILLISECONDS);
+
+		Assert.assertEquals(8, report.getThreads());
+		Assert.assertTrue(report.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(300));
+		long vertices = report.getHistogram(SoakHarness.Operation.ADD_VERTEX).getCount();
+		long edges = report.getHistogram(SoakHarness.Operation.ADD_EDGE).getCount();
+		Assert.assertTrue(vertices > 0 && edges > 0 && report.getHistogram(SoakHarness.Operation.GET_PATH).getCount() > 0);
+		Assert.assertEquals(500 + vertices, graph.getVertices().size());
+		Assert.assertEquals(2000 + edges, graph.getEdges().size());
+
+		LatencyHistogram all = report.getHistogram();
+		Assert.assertEquals(report.getThroughput() * report.getElapsedNanos() / 1e9, all.getCount(), 0.5);
+		Assert.assertTrue(all.getPercentile(50) <= all.getPercentile(99));
+		Assert.assertTrue(all.getPercentile(99.9) <= all.getMax());
+		Assert.assertTrue(report.toString().contains("GET_PATH"));
+	}
+
+	@Test
+	public void testEmptyJournaledGraph() throws IOException
+	{
+		try(JournaledGraph<String,Edge> graph = JournaledGraph.open(folder.getRoot().toPath(), SimpleGraph.newDirected(10, 10),
+				PayloadCodec.utf8()))
+		{
+			SoakHarness.Report report = SoakHarness.of(graph, i -> "v" + i, GraphGenerator.edges()).withMix(1, 1, 1, 0)
+					.withSeed(7).run(2, 100, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(0, report.getHistogram(SoakHarness.Operation.APPLY).getCount());
+			Assert.assertEquals(report.getHistogram(SoakHarness.Operation.ADD_VERTEX).getCount(), graph.getVertices().size());
+		}
+	}
+
+	@Test
+	public void testFailureStopsRun()
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newDirected(10, 10);
+		try
+		{
+			SoakHarness.of(graph, i -> i, (from, to, random) -> null).withMix(1, 1, 0, 0).run(2, 10, TimeUnit.SECONDS);
+			Assert.fail("Null edges are not accepted");
+		}
+		catch(IllegalStateException ex)
+		{
+			Assert.assertEquals("Soak run failed", ex.getMessage());
+			Assert.assertTrue(ex.getCause() instanceof NullPointerException);
+		}
+	}
+
+	@Test
+	public void testHistogramPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getPercentile(99));
+		for(int i = 1; i <= 1000; i++)
+		{
+			histogram.record(i * 1000L);
+		}
+		LatencyHistogram other = new LatencyHistogram();
+		other.record(5_000_000_000L);
+		other.record(-1);
+		histogram.add(other);
+
+		Assert.assertEquals(1002, histogram.getCount());
+		Assert.assertEquals(5_000_000_000L, histogram.getMax());
+		assertClose(500_000, histogram.getPercentile(50));
+		assertClose(990_000, histogram.getPercentile(99));
+		assertClose(1_000_000, histogram.getPercentile(99.9));
+		Assert.assertEquals(5_000_000_000L, histogram.getPercentile(100));
+		Assert.assertEquals(0, histogram.getPercentile(0));
+		Assert.assertEquals((500_500_000L + 5_000_000_000L) / 1002.0, histogram.getMean(), 1);
+
+		LatencyHistogram small = new LatencyHistogram();
+		small.record(3);
+		small.record(127);
+		Assert.assertEquals(3, small.getPercentile(50));
+		Assert.assertEquals(127, small.getPercentile(100));
+	}
+
+	private static void assertClose(long expected, long actual)
+	{
+		Assert.assertTrue("Expected about " + expected + ", got " + actual, actual >= expected && actual <= expected + expected / 64);
+	}
+}
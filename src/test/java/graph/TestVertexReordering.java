@@ -0,0 +1,118 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TestVertexReordering
+{
+	@Test
+	public void testReorderedGraphKeepsVertexIDs()
+	{
+		FrozenGraph<String,WeighedEdge> graph = newShuffledGrid(20, true);
+
+		for(VertexOrdering ordering : VertexOrdering.values())
+		{
+			FrozenGraph<String,WeighedEdge> reordered = graph.reorder(ordering);
+			Assert.assertEquals(graph.getVertexCount(), reordered.getVertexCount());
+			Assert.assertEquals(graph.getEdgeCount(), reordered.getEdgeCount());
+			Assert.assertEquals(graph.getVertices(), reordered.getVertices());
+			for(int id = 1; id <= graph.getVertexCount(); id++)
+			{
+				Assert.assertEquals(graph.getVertex(id), reordered.getVertex(id));
+			}
+
+			DijkstraPathFinder<WeighedEdge> expected = new DijkstraPathFinder<>(graph);
+			DijkstraPathFinder<WeighedEdge> finder = new DijkstraPathFinder<>(reordered);
+			Random random = new Random(28);
+			for(int query = 0; query < 50; query++)
+			{
+				int from = 1 + random.nextInt(graph.getVertexCount());
+				int to = 1 + random.nextInt(graph.getVertexCount());
+				List<WeighedEdge> path = finder.find(from, to);
+				Assert.assertEquals(weight(expected.find(from, to)), weight(path), 0.001f);
+				if(from != to)
+				{
+					Assert.assertEquals(from, path.get(0).getFrom());
+					Assert.assertEquals(to, path.get(path.size() - 1).getTo());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testReverseCuthillMcKeeReducesBandwidth()
+	{
+		FrozenGraph<String,WeighedEdge> graph = newShuffledGrid(30, false);
+		FrozenGraph<String,WeighedEdge> reordered = graph.reorder(VertexOrdering.REVERSE_CUTHILL_MCKEE);
+		Assert.assertTrue(bandwidth(reordered) <= 2 * 30);
+		Assert.assertTrue(bandwidth(reordered) * 4 < bandwidth(graph));
+		Assert.assertTrue(bandwidth(graph.reorder(VertexOrdering.BFS)) * 4 < bandwidth(graph));
+	}
+
+	@Test
+	public void testReorderedGraphWithContractionHierarchy()
+	{
+		FrozenGraph<String,WeighedEdge> graph = newShuffledGrid(15, false);
+		FrozenGraph<String,WeighedEdge> reordered = graph.reorder(VertexOrdering.DEGREE).reorder(VertexOrdering.BFS);
+		DijkstraPathFinder<WeighedEdge> expected = new DijkstraPathFinder<>(graph);
+		ContractionHierarchyPathFinder<WeighedEdge> finder = new ContractionHierarchyPathFinder<>(reordered, 2);
+		for(int to = 2; to <= graph.getVertexCount(); to++)
+		{
+			Assert.assertEquals(weight(expected.find(1, to)), weight(finder.find(1, to)), 0.001f);
+		}
+	}
+
+	private static int bandwidth(FrozenGraph<?,?> graph)
+	{
+		int bandwidth = 0;
+		for(int e = 0; e < graph.getEdgeCount(); e++)
+		{
+			bandwidth = Math.max(bandwidth, Math.abs(graph.source(e) - graph.target(e)));
+		}
+		return bandwidth;
+	}
+
+	private static float weight(List<WeighedEdge> path)
+	{
+		float weight = 0;
+		for(WeighedEdge edge : path)
+		{
+			weight += edge.getWeight();
+		}
+		return weight;
+	}
+
+	/*
+		A grid with vertex IDs assigned in random order
+	 */
+	private static FrozenGraph<String,WeighedEdge> newShuffledGrid(int side, boolean directed)
+	{
+		Random random = new Random(side);
+		Graph<String,WeighedEdge> graph = directed
+				? SimpleGraph.newDirected(side * side, 4 * side * side)
+				: SimpleGraph.newUndirected(side * side, 2 * side * side);
+		List<Integer> ids = new ArrayList<>();
+		for(int i = 0; i < side * side; i++)
+		{
+			ids.add(graph.addVertex("Vertex " + (i + 1)));
+		}
+		Collections.shuffle(ids, random);
+		for(int row = 0; row < side; row++)
+		{
+			for(int column = 0; column < side; column++)
+			{
+				int v = ids.get(row * side + column);
+				if(column + 1 < side) graph.addEdge(new WeighedEdge(v, ids.get(row * side + column + 1), 1 + random.nextInt(20)));
+				if(row + 1 < side) graph.addEdge(new WeighedEdge(v, ids.get((row + 1) * side + column), 1 + random.nextInt(20)));
+				if(directed && column + 1 < side) graph.addEdge(new WeighedEdge(ids.get(row * side + column + 1), v, 1 + random.nextInt(20)));
+				if(directed && row + 1 < side) graph.addEdge(new WeighedEdge(ids.get((row + 1) * side + column), v, 1 + random.nextInt(20)));
+			}
+		}
+		return graph.freeze();
+	}
+}
@@ -0,0 +1,159 @@
+package graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TestWeightFunction
+{
+	@Test
+	public void testWeightsFromVertices()
+	{
+		// Vertices are positions on a line; plain edges get the distance between their ends
+		Graph<Integer,Edge> graph = SimpleGraph.newUndirected(4, 4);
+		for(int position : new int[] {0, 10, 3, 4})
+		{
+			graph.addVertex(position);
+		}
+		graph.addEdge(new Edge(1, 2));
+		graph.addEdge(new Edge(2, 4));
+		graph.addEdge(new Edge(1, 3));
+		graph.addEdge(new Edge(3, 4));
+
+		FrozenGraph<Integer,Edge> frozen = graph.freeze();
+		Assert.assertEquals("[(1,2), (2,4)]", new DijkstraPathFinder<>(frozen).find(1, 4).toString());
+
+		FrozenGraph<Integer,Edge> distances = frozen.withWeights((edge, from, to) -> Math.abs(to - from));
+		Assert.assertEquals("[(1,3), (3,4)]", new DijkstraPathFinder<>(distances).find(1, 4).toString());
+		Assert.assertEquals("[(4,3), (3,1)]", new ContractionHierarchyPathFinder<>(distances, 1).find(4, 1).toString());
+		Assert.assertEquals(10, distances.getWeight(distances.getEdges().indexOf(frozen.getEdges().get(0))), 0);
+	}
+
+	@Test
+	public void testMetricsShareTopology()
+	{
+		Random random = new Random(36);
+		Graph<Integer,WeighedEdge> graph = SimpleGraph.newDirected(100, 400);
+		for(int i = 0; i < 100; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int i = 0; i < 400; i++)
+		{
+			graph.addEdge(new WeighedEdge(1 + random.nextInt(100), 1 + random.nextInt(100), 1 + random.nextInt(10)));
+		}
+		FrozenGraph<Integer,WeighedEdge> time = graph.freeze();
+		float[] tolls = new float[time.getEdgeCount()];
+		for(int e = 0; e < tolls.length; e++)
+		{
+			tolls[e] = random.nextInt(3);
+		}
+		FrozenGraph<Integer,WeighedEdge> toll = time.withWeights(tolls);
+		FrozenGraph<Integer,WeighedEdge> hops = time.withWeights((edge, from, to) -> 1);
+		tolls[0] = 100;
+
+		for(int e = 0; e < time.getEdgeCount(); e++)
+		{
+			Assert.assertSame(time.getEdges().get(e), toll.getEdges().get(e));
+			Assert.assertEquals(time.getEdges().get(e).getWeight(), time.getWeight(e), 0);
+			Assert.assertNotEquals(100, toll.getWeight(e), 0);
+		}
+
+		for(int from = 1; from <= 100; from += 7)
+		{
+			for(int to = 1; to <= 100; to += 11)
+			{
+				assertShortest(time, from, to);
+				assertShortest(toll, from, to);
+				assertShortest(hops, from, to);
+			}
+		}
+	}
+
+	@Test
+	public void testReorderKeepsWeights()
+	{
+		Graph<Integer,Edge> graph = SimpleGraph.newUndirected(50, 50);
+		for(int i = 0; i < 50; i++)
+		{
+			graph.addVertex(i);
+		}
+		for(int i = 1; i < 50; i++)
+		{
+			graph.addEdge(new Edge(i, i + 1));
+			if(i + 7 <= 50) graph.addEdge(new Edge(i, i + 7));
+		}
+		FrozenGraph<Integer,Edge> weighted = graph.freeze().withWeights((edge, from, to) -> from * to % 13);
+		FrozenGraph<Integer,Edge> reordered = weighted.reorder(VertexOrdering.REVERSE_CUTHILL_MCKEE);
+		for(int to = 2; to <= 50; to++)
+		{
+			Assert.assertEquals(weight(weighted, new DijkstraPathFinder<>(weighted).find(1, to)),
+					weight(reordered, new DijkstraPathFinder<>(reordered).find(1, to)), 0.001f);
+		}
+		Assert.assertEquals(weight(weighted, new DijkstraPathFinder<>(weighted).find(1, 50)),
+				weight(weighted, weighted.compress().getShortestPath(1, 50)), 0.001f);
+	}
+
+	@Test
+	public void testInvalidWeights()
+	{
+		Graph<String,Edge> graph = SimpleGraph.newDirected(2, 1);
+		graph.addVertex("A");
+		graph.addVertex("B");
+		graph.addEdge(new Edge(1, 2));
+		FrozenGraph<String,Edge> frozen = graph.freeze();
+		try
+		{
+			frozen.withWeights(new float[2]);
+			Assert.fail("There is one edge");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Weight count 2 does not match edge count 1.", ex.getMessage());
+		}
+		try
+		{
+			new DijkstraPathFinder<>(frozen.withWeights((edge, from, to) -> -1));
+			Assert.fail("Negative weight is not supported");
+		}
+		catch(IllegalArgumentException ex)
+		{
+			Assert.assertEquals("Unable to find shortest paths: edge (1,2) has negative weight.", ex.getMessage());
+		}
+	}
+
+	private static <T extends Edge> void assertShortest(FrozenGraph<Integer,T> graph, int from, int to)
+	{
+		float[] expected = Landmarks.distances(graph, graph.internal(from), false, null, null);
+		List<T> path = new DijkstraPathFinder<>(graph).find(from, to);
+		float distance = expected[graph.internal(to)];
+		if(from == to || distance == Float.POSITIVE_INFINITY)
+		{
+			Assert.assertTrue(path.isEmpty());
+			return;
+		}
+		Assert.assertEquals(distance, weight(graph, path), 0.001f);
+		Assert.assertEquals(distance, weight(graph, graph.getKShortestPaths(from, to, 1).get(0)), 0.001f);
+	}
+
+	/*
+		Sums the weights of the path edges as seen by the snapshot
+	 */
+	private static <T extends Edge> float weight(FrozenGraph<?,T> graph, List<? extends Edge> path)
+	{
+		float weight = 0;
+		for(Edge edge : path)
+		{
+			float best = Float.POSITIVE_INFINITY;
+			for(int e = 0; e < graph.getEdgeCount(); e++)
+			{
+				Edge candidate = graph.getEdges().get(e);
+				if(candidate.getFrom() == edge.getFrom() && candidate.getTo() == edge.getTo()) best = Math.min(best, graph.getWeight(e));
+			}
+			weight += best;
+		}
+		return weight;
+	}
+}